@@ -0,0 +1,132 @@
+package classes;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures judging submitted answers with Card.isCorrectAnswer and
+ * Card.submitAnswer, for the exact and the fuzzy answer matcher. Each call
+ * judges the next card of a fixed set of real questions, answered either
+ * correctly (with "what is" in front for the fuzzy matcher) or with the
+ * answer of another card.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnswerBenchmark
+{
+    private static final int CARDS = 1024;
+
+    @Param({ "exact", "fuzzy" })
+    private String           matcher;
+
+    @Param({ "true", "false" })
+    private boolean          correct;
+
+    private Card[]           cards;
+    private String[]         answers;
+    private Player           player;
+    private int              next;
+
+    /**
+     * Reads the cards and the answers to submit
+     *
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        Card.setAnswerMatcher(matcher.equals("exact") ? new ExactAnswerMatcher()
+            : new FuzzyAnswerMatcher());
+
+        QuestionBank bank = Benchmarks.getSharedBank();
+        int points = bank.getPointValues().first();
+        int count = bank.getQuestionCount(points);
+
+        cards = new Card[CARDS];
+        for (int i = 0; i < CARDS; i++)
+        {
+            cards[i] = bank.getCard(points, (int)((long)i * count / CARDS));
+        }
+
+        // a wrong answer is the answer of another card
+        answers = new String[CARDS];
+        for (int i = 0; i < CARDS; i++)
+        {
+            if (!correct)
+            {
+                answers[i] = cards[(i + CARDS / 2) % CARDS].getAnswer();
+            }
+            else if (matcher.equals("exact"))
+            {
+                answers[i] = cards[i].getAnswer();
+            }
+            else
+            {
+                answers[i] = "What is " + cards[i].getAnswer();
+            }
+        }
+        player = new Player("bench");
+    }
+
+
+    /**
+     * Puts back the default answer matcher
+     */
+    @TearDown
+    public void tearDown()
+    {
+        Card.setAnswerMatcher(new FuzzyAnswerMatcher());
+    }
+
+
+    /**
+     * Judges the answer for the next card. The card keeps its prepared
+     * answer, so this is the cost of judging one submission.
+     *
+     * @return whether the answer was judged correct
+     */
+    @Benchmark
+    public boolean isCorrectAnswer()
+    {
+        int i = next;
+        next = (i + 1) & (CARDS - 1);
+        return cards[i].isCorrectAnswer(answers[i]);
+    }
+
+
+    /**
+     * Submits the answer for a fresh copy of the next card, since a card can
+     * only be answered once. This includes preparing the card's answer and
+     * scoring the player.
+     *
+     * @return whether the answer was judged correct
+     */
+    @Benchmark
+    public boolean submitAnswer()
+    {
+        int i = next;
+        next = (i + 1) & (CARDS - 1);
+        Card card = cards[i];
+        return new Card(card.getQuestion(), card.getAnswer(), card.getPoints(), card.getCategory())
+            .submitAnswer(answers[i], player);
+    }
+}
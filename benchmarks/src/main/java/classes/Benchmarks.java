@@ -0,0 +1,78 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Shared setup for the benchmarks. They read the question files relative to
+ * the top of the repository, so run them from there.
+ */
+final class Benchmarks
+{
+    static final String MAIN  = "assets/jeopardy-questions/main";
+    static final String OTHER = "assets/jeopardy-questions/other";
+
+    private Benchmarks()
+    {
+    }
+
+
+    /**
+     * Returns the question bank that JeopardyGame uses
+     *
+     * @return the shared question bank
+     * @throws IOException
+     *             if the question files are not found
+     */
+    static QuestionBank getSharedBank()
+        throws IOException
+    {
+        checkDirectory();
+        return JeopardyGame.getBank();
+    }
+
+
+    /**
+     * Opens a question bank over the repository's question files
+     *
+     * @param source
+     *            "csv" for the csv files, "pack" for a compiled question pack
+     * @return the question bank
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    static QuestionBank openBank(String source)
+        throws IOException
+    {
+        checkDirectory();
+        if (source.equals("csv"))
+        {
+            return new CsvQuestionBank(MAIN, OTHER);
+        }
+
+        File pack = File.createTempFile("questions", ".pack");
+        pack.deleteOnExit();
+
+        QuestionPackCompiler compiler = new QuestionPackCompiler();
+        compiler.addDirectory(new File(MAIN));
+        compiler.addDirectory(new File(OTHER));
+        compiler.compile(pack);
+        return new QuestionPack(pack);
+    }
+
+
+    /**
+     * Makes sure the benchmarks run from the top of the repository
+     *
+     * @throws IOException
+     *             if the question files are not found
+     */
+    private static void checkDirectory()
+        throws IOException
+    {
+        if (!new File(MAIN).isDirectory())
+        {
+            throw new IOException(MAIN + " not found, run the benchmarks from the repository");
+        }
+    }
+}
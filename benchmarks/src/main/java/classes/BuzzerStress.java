@@ -0,0 +1,190 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress check for BuzzerArbiter. For every round, hundreds of threads are
+ * released at the same moment to buzz for one card, while one more thread
+ * tries to close the buzzer. Each round must end with exactly one winner, or
+ * with none if the close came first, and the recorded arrivals must account
+ * for every buzz exactly once.
+ *
+ * BuzzerStressTest runs a few rounds on every build. For a longer run, use:
+ * java -cp benchmarks/target/benchmarks.jar classes.BuzzerStress [threads
+ * [rounds]]
+ */
+public class BuzzerStress
+{
+    /**
+     * Runs the rounds and exits with status 1 if any round went wrong
+     *
+     * @param args
+     *            the number of buzzing threads and the number of rounds
+     * @throws Exception
+     *             if a thread fails
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        System.exit(run(threads, rounds) == 0 ? 0 : 1);
+    }
+
+
+    /**
+     * Runs the rounds and prints how many went wrong
+     *
+     * @param threads
+     *            the number of buzzing threads in every round
+     * @param rounds
+     *            the number of rounds
+     * @return the number of rounds that went wrong
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public static int run(int threads, int rounds)
+        throws InterruptedException
+    {
+        Player[] players = new Player[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            players[i] = new Player("player" + i);
+        }
+
+        int failures = 0;
+        int closedFirst = 0;
+        long spread = 0;
+
+        for (int round = 0; round < rounds; round++)
+        {
+            BuzzerArbiter arbiter = new BuzzerArbiter(threads);
+            CyclicBarrier start = new CyclicBarrier(threads + 1);
+            AtomicInteger wins = new AtomicInteger();
+            boolean[] closed = new boolean[1];
+
+            ArrayList<Thread> running = new ArrayList<Thread>();
+            for (int i = 0; i < threads; i++)
+            {
+                Player player = players[i];
+                running.add(new Thread(() -> {
+                    await(start);
+                    if (arbiter.buzz(player))
+                    {
+                        wins.incrementAndGet();
+                    }
+                }));
+            }
+            running.add(new Thread(() -> {
+                await(start);
+                closed[0] = arbiter.close();
+            }));
+
+            for (Thread thread : running)
+            {
+                thread.start();
+            }
+            for (Thread thread : running)
+            {
+                thread.join();
+            }
+
+            String problem = check(arbiter, wins.get(), closed[0], threads);
+            if (problem != null)
+            {
+                System.out.println("round " + round + ": " + problem);
+                failures++;
+            }
+            if (closed[0])
+            {
+                closedFirst++;
+            }
+
+            ArrayList<BuzzerArbiter.Arrival> arrivals = arbiter.getArrivals();
+            spread += arrivals.get(arrivals.size() - 1).getNanos() - arrivals.get(0).getNanos();
+        }
+
+        System.out.printf("%d rounds of %d threads: %d failures, closed before any buzz %d times, "
+            + "average spread of arrivals %.1f us%n",
+            rounds, threads, failures, closedFirst, spread / (double)rounds / 1000);
+        return failures;
+    }
+
+
+    /**
+     * Checks the outcome of one round
+     *
+     * @param arbiter
+     *            the buzzer of the round
+     * @param wins
+     *            how many buzz calls returned true
+     * @param closed
+     *            what close returned
+     * @param threads
+     *            the number of buzzing threads
+     * @return what went wrong, or null if the round is consistent
+     */
+    private static String check(BuzzerArbiter arbiter, int wins, boolean closed, int threads)
+    {
+        if (closed ? wins != 0 : wins != 1)
+        {
+            return wins + " winners, closed " + closed;
+        }
+        if (arbiter.getBuzzCount() != threads)
+        {
+            return arbiter.getBuzzCount() + " buzzes counted";
+        }
+
+        ArrayList<BuzzerArbiter.Arrival> arrivals = arbiter.getArrivals();
+        if (arrivals.size() != threads)
+        {
+            return arrivals.size() + " arrivals recorded";
+        }
+
+        HashSet<Integer> orders = new HashSet<Integer>();
+        HashSet<Player> buzzed = new HashSet<Player>();
+        int winners = 0;
+        for (BuzzerArbiter.Arrival arrival : arrivals)
+        {
+            orders.add(arrival.getOrder());
+            buzzed.add(arrival.getPlayer());
+            if (arrival.isWinner())
+            {
+                winners++;
+                if (arrival.getPlayer() != arbiter.getWinner())
+                {
+                    return "recorded winner is not the winner";
+                }
+            }
+        }
+        if (orders.size() != threads || buzzed.size() != threads || winners != wins)
+        {
+            return "arrivals do not match the buzzes";
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Waits at the start barrier
+     *
+     * @param start
+     *            the barrier
+     */
+    private static void await(CyclicBarrier start)
+    {
+        try
+        {
+            start.await();
+        }
+        catch (Exception ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package classes;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawing questions from a question pack through a QuestionCache,
+ * against drawing them from the pack itself. Draws are skewed towards a hot
+ * part of the questions, as rooms and rematches draw them, with every fourth
+ * draw from anywhere in the bank. The hit ratio and evictions of the cache
+ * are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark
+{
+    private static final int POINTS = 200;
+
+    @Param({ "none", "LRU", "TINY_LFU" })
+    private String        policy;
+
+    @Param({ "1024" })
+    private int           capacity;
+
+    private QuestionBank  bank;
+    private QuestionCache cache;
+    private int[]         rows;
+    private int           next;
+
+    /**
+     * Opens the question pack and picks the rows to draw
+     *
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        bank = Benchmarks.openBank("pack");
+        if (!policy.equals("none"))
+        {
+            cache = new QuestionCache(capacity, QuestionCache.Policy.valueOf(policy));
+            bank = new CachedQuestionBank(bank, cache);
+        }
+
+        int count = bank.getQuestionCount(POINTS);
+        Random random = new Random(42);
+        rows = new int[1 << 16];
+        for (int i = 0; i < rows.length; i++)
+        {
+            // three quarters piled up on the first few hundred rows, the
+            // rest from all of them
+            double u = random.nextDouble();
+            u *= u;
+            u *= u;
+            rows[i] = i % 4 == 3 ? random.nextInt(count) : (int)(count * u * u);
+        }
+    }
+
+
+    /**
+     * Prints how well the cache did
+     */
+    @TearDown
+    public void tearDown()
+    {
+        if (cache != null)
+        {
+            long lookups = cache.getHitCount() + cache.getMissCount();
+            System.out.printf("%n%s: %.1f%% hits, %d evictions%n", policy,
+                100.0 * cache.getHitCount() / lookups, cache.getEvictionCount());
+        }
+    }
+
+
+    /**
+     * Draws the card in the next row
+     *
+     * @return the card
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    @Benchmark
+    public Card draw()
+        throws IOException
+    {
+        int row = rows[next];
+        next = next + 1 == rows.length ? 0 : next + 1;
+        return bank.getCard(POINTS, row);
+    }
+}
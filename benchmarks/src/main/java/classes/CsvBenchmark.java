@@ -0,0 +1,120 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the csv parsing path: splitting one row into a Card, and opening a
+ * whole point file without its sidecar index, which has to find every line in
+ * the mapped bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark
+{
+    @Param({ "100", "1000" })
+    private int      points;
+
+    private File     csv;
+    private File     noIndex;
+    private byte[][] lines;
+    private int      next;
+
+    /**
+     * Reads the lines of the point file
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        csv = new File(Benchmarks.MAIN, points + ".csv");
+        if (!csv.isFile())
+        {
+            throw new IOException(csv.getPath()
+                + " not found, run the benchmarks from the repository");
+        }
+
+        // an index in a missing directory is never found and never written
+        noIndex = new File(new File(csv.getParentFile(), "missing"), points + ".idx");
+
+        List<String> text = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+        lines = new byte[text.size()][];
+        for (int i = 0; i < lines.length; i++)
+        {
+            lines[i] = text.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+
+    /**
+     * Parses the next row into a Card
+     *
+     * @return the card of the row
+     */
+    @Benchmark
+    public Card parseRow()
+    {
+        byte[] line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+
+        int[] bounds = MappedCsvFile.findFields(line);
+        return new Card(MappedCsvFile.decode(line, bounds[4], bounds[5]),
+            MappedCsvFile.decode(line, bounds[6], bounds[7]),
+            MappedCsvFile.parsePoints(line, bounds[2], bounds[3]),
+            MappedCsvFile.decode(line, bounds[0], bounds[1]));
+    }
+
+
+    /**
+     * Maps the whole file and finds the offset of every row
+     *
+     * @return the number of rows
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    @Benchmark
+    public int openFile()
+        throws IOException
+    {
+        return new MappedCsvFile(csv, noIndex).getRowCount();
+    }
+
+
+    /**
+     * Maps the whole file and decodes the category of every row, which is how
+     * the category index is built
+     *
+     * @return the categories of the rows
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    @Benchmark
+    public String[] readCategories()
+        throws IOException
+    {
+        return new MappedCsvFile(csv, noIndex).getCategories();
+    }
+}
@@ -0,0 +1,126 @@
+package classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures starting a game, from constructing a JeopardyGame to having its
+ * whole board, and building the sorted player list for the leaderboard.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark
+{
+    /**
+     * A board spec to build games with. Games always use the shared question
+     * bank, which is the compiled pack if it exists and the csv files if not.
+     */
+    @State(Scope.Benchmark)
+    public static class Boards
+    {
+        @Param({ "false", "true" })
+        private boolean         byCategory;
+
+        private BoardSpec       spec;
+        private QuestionSampler sampler;
+
+        /**
+         * Opens the shared question bank and warms up the category index
+         *
+         * @throws IOException
+         *             if the questions cannot be read
+         */
+        @Setup
+        public void setUp()
+            throws IOException
+        {
+            QuestionBank bank = Benchmarks.getSharedBank();
+            spec = BoardSpec.standard(bank);
+            if (byCategory)
+            {
+                spec = spec.byCategory();
+            }
+            sampler = new QuestionSampler(bank);
+            JeopardyGame.getCategoryIndex().getCategories(spec.getPointValues());
+        }
+    }
+
+
+    /**
+     * A game with many players and varied scores
+     */
+    @State(Scope.Benchmark)
+    public static class Players
+    {
+        @Param({ "10", "1000", "100000" })
+        private int          players;
+
+        private JeopardyGame game;
+
+        /**
+         * Adds the players to a game
+         *
+         * @throws IOException
+         *             if the questions cannot be read
+         */
+        @Setup
+        public void setUp()
+            throws IOException
+        {
+            QuestionBank bank = Benchmarks.getSharedBank();
+            game = new JeopardyGame(BoardSpec.standard(bank), new QuestionSampler(bank));
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < players; i++)
+            {
+                game.addPlayer(new Player("player" + i, random.nextInt(-5000, 20000)));
+            }
+        }
+    }
+
+
+    /**
+     * Constructs a game and waits until its board is ready
+     *
+     * @param boards
+     *            the bank and spec to build with
+     * @return the board of the game
+     */
+    @Benchmark
+    public TreeMap<Integer, Card[]> newGame(Boards boards)
+    {
+        return new JeopardyGame(boards.spec, boards.sampler).getQuestions();
+    }
+
+
+    /**
+     * Sorts the players for the leaderboard
+     *
+     * @param players
+     *            the game with players
+     * @return the players in descending order of points
+     */
+    @Benchmark
+    public ArrayList<Player> getPlayers(Players players)
+    {
+        return players.game.getPlayers();
+    }
+}
@@ -0,0 +1,86 @@
+package classes;
+
+import java.lang.management.ManagementFactory;
+import java.util.NavigableSet;
+
+import javax.management.ObjectName;
+
+/**
+ * Loads every question of the bank into memory at once, as indexing the whole
+ * bank or hosting many rooms does, and reports how much heap the questions
+ * take. After a full collection it prints the used heap per question and the
+ * top of the class histogram, which is what jmap -histo:live shows.
+ *
+ * Run it with: java -cp benchmarks/target/benchmarks.jar classes.HeapFootprint
+ * [csv|pack [histogram lines]]
+ */
+public class HeapFootprint
+{
+    /**
+     * Loads the questions and prints their footprint
+     *
+     * @param args
+     *            the source of the questions and the number of histogram
+     *            lines to print
+     * @throws Exception
+     *             if the questions cannot be read or the histogram cannot be
+     *             taken
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        String source = args.length > 0 ? args[0] : "csv";
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+
+        QuestionBank bank = Benchmarks.openBank(source);
+        NavigableSet<Integer> pointValues = bank.getPointValues();
+        int total = 0;
+        for (int points : pointValues)
+        {
+            total += bank.getQuestionCount(points);
+        }
+
+        long before = usedHeap();
+        Question[] questions = new Question[total];
+        int next = 0;
+        for (int points : pointValues)
+        {
+            for (int row = 0; row < bank.getQuestionCount(points); row++)
+            {
+                questions[next++] = bank.getCard(points, row).toQuestion();
+            }
+        }
+        long used = usedHeap() - before;
+
+        System.out.printf("%d questions from %s: %.1f MB, %.0f bytes per question%n", total,
+            source, used / 1e6, (double)used / total);
+
+        String histogram = (String)ManagementFactory.getPlatformMBeanServer().invoke(
+            new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+            new Object[] { null }, new String[] { String[].class.getName() });
+        String[] rows = histogram.split("\n");
+        for (int i = 0; i < Math.min(rows.length, lines + 2); i++)
+        {
+            System.out.println(rows[i]);
+        }
+
+        // keep the questions reachable until the histogram is taken
+        System.out.println(questions[total - 1].getPoints() > 0 ? "" : "?");
+    }
+
+
+    /**
+     * Collects garbage and returns the heap in use
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package classes;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawing a single question from one point file, which is what
+ * BoardBuilder does for every card of a board. The bank is either the csv
+ * files or a question pack compiled from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionBenchmark
+{
+    @Param({ "csv", "pack" })
+    private String          source;
+
+    @Param({ "100", "200", "300", "500", "600", "700", "800", "900", "1000" })
+    private int             points;
+
+    private QuestionBank    bank;
+    private QuestionSampler sampler;
+    private int             count;
+
+    /**
+     * Opens the question bank being measured
+     *
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        bank = Benchmarks.openBank(source);
+        sampler = new QuestionSampler(bank);
+        count = bank.getQuestionCount(points);
+    }
+
+
+    /**
+     * Draws a question without replacement, like a board does
+     *
+     * @return the drawn card
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    @Benchmark
+    public Card draw()
+        throws IOException
+    {
+        return sampler.draw(points);
+    }
+
+
+    /**
+     * Reads a question from a random row
+     *
+     * @return the card in the row
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    @Benchmark
+    public Card getCard()
+        throws IOException
+    {
+        return bank.getCard(points, ThreadLocalRandom.current().nextInt(count));
+    }
+}
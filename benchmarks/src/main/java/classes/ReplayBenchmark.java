@@ -0,0 +1,130 @@
+package classes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures replaying a GameEventLog. The log holds many whole games on a 5 by
+ * 5 board with four players: every card is opened, answered and followed by a
+ * turn, with a few points adjusted by hand. Scores are per event, so the
+ * throughput is events replayed per microsecond.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark
+{
+    private static final int GAMES           = 2000;
+    private static final int PLAYERS         = 4;
+    private static final int ADJUSTMENTS     = 10;
+    private static final int EVENTS_PER_GAME = 1 + PLAYERS + 25 * 3 + ADJUSTMENTS;
+
+    private Path             log;
+    private GameReplayer     replayer;
+
+    /**
+     * Writes the log
+     *
+     * @throws IOException
+     *             if the log cannot be written
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        log = Files.createTempFile("replay", ".log");
+        Files.delete(log);
+
+        BoardSpec spec = BoardSpec.ladder(5, 5, 200, 200);
+        GameEventLog events = new GameEventLog(log, 1000);
+        for (int game = 0; game < GAMES; game++)
+        {
+            TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+            for (int points : spec.getPointValues())
+            {
+                Card[] row = new Card[spec.getColumns()];
+                for (int column = 0; column < row.length; column++)
+                {
+                    row[column] = new Card("question " + game + " " + points + " " + column,
+                        "answer " + column, points, "category " + column);
+                }
+                board.put(points, row);
+            }
+            events.recordBoard(spec, board);
+
+            for (int player = 0; player < PLAYERS; player++)
+            {
+                events.recordPlayerAdded("player" + player);
+            }
+
+            int turn = 0;
+            for (int points : board.keySet())
+            {
+                for (int column = 0; column < spec.getColumns(); column++)
+                {
+                    events.recordCardOpened(points, column);
+                    events.recordAnswer(points, column, turn, column % 2 == 0, "answer " + column);
+                    events.recordTurnAdvanced();
+                    turn = (turn + 1) % PLAYERS;
+                }
+            }
+
+            for (int i = 0; i < ADJUSTMENTS; i++)
+            {
+                events.recordPointsAdjusted(i % PLAYERS, i % 2 == 0 ? 100 : -100);
+            }
+        }
+        events.close();
+
+        replayer = new GameReplayer(log);
+    }
+
+
+    /**
+     * Deletes the log
+     *
+     * @throws IOException
+     *             if the log cannot be deleted
+     */
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        Files.deleteIfExists(log);
+    }
+
+
+    /**
+     * Replays the whole log
+     *
+     * @return the last game
+     * @throws IOException
+     *             if the log cannot be read
+     */
+    @Benchmark
+    @OperationsPerInvocation(GAMES * EVENTS_PER_GAME)
+    public JeopardyGame replay()
+        throws IOException
+    {
+        return replayer.replay();
+    }
+}
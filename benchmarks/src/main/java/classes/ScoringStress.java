@@ -0,0 +1,277 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress check for concurrent scoring, in the spirit of a jcstress test. Each
+ * round releases many threads at the same moment against one player or one
+ * card and then checks the outcome:
+ *
+ * <ul>
+ * <li>every thread adds and takes away points on the same player, on a
+ * leaderboard, and no change may be lost</li>
+ * <li>every thread tries to claim the same card, and exactly one may win</li>
+ * <li>every thread answers the same card, and it must be scored exactly
+ * once</li>
+ * </ul>
+ *
+ * ScoringStressTest runs a few rounds on every build. For a longer run, use:
+ * java -cp benchmarks/target/benchmarks.jar classes.ScoringStress [threads
+ * [rounds]]
+ */
+public class ScoringStress
+{
+    private static int failures;
+
+    /**
+     * Runs the rounds and exits with status 1 if any round went wrong
+     *
+     * @param args
+     *            the number of threads and the number of rounds
+     * @throws Exception
+     *             if a thread fails
+     */
+    public static void main(String[] args)
+        throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        System.exit(run(threads, rounds) == 0 ? 0 : 1);
+    }
+
+
+    /**
+     * Runs the rounds and prints how many went wrong
+     *
+     * @param threads
+     *            the number of threads in every round
+     * @param rounds
+     *            the number of rounds
+     * @return the number of failed checks
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public static synchronized int run(int threads, int rounds)
+        throws InterruptedException
+    {
+        failures = 0;
+        AnswerMatcher matcher = Card.getAnswerMatcher();
+        Card.setAnswerMatcher(new ExactAnswerMatcher());
+        try
+        {
+            for (int round = 0; round < rounds; round++)
+            {
+                checkPoints(round, threads);
+                checkClaim(round, threads);
+                checkAnswer(round, threads);
+            }
+        }
+        finally
+        {
+            Card.setAnswerMatcher(matcher);
+        }
+
+        System.out.printf("%d rounds of %d threads: %d failures%n", rounds, threads, failures);
+        return failures;
+    }
+
+
+    /**
+     * Changes one player's points from every thread at once
+     *
+     * @param round
+     *            the round number
+     * @param threads
+     *            the number of threads
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void checkPoints(int round, int threads)
+        throws InterruptedException
+    {
+        Leaderboard leaderboard = new Leaderboard();
+        Player player = new Player("player");
+        Player other = new Player("other", 150);
+        leaderboard.add(player);
+        leaderboard.add(other);
+
+        // every thread adds 100 three times and takes away 100 once
+        race(threads, i -> {
+            player.changePoints(100);
+            player.changePoints(-100);
+            player.changePoints(100);
+            player.changePoints(100);
+        });
+
+        int expected = threads * 200;
+        if (player.getPoints() != expected)
+        {
+            fail(round, "points " + player.getPoints() + " instead of " + expected);
+        }
+        if (leaderboard.get(1) != player || leaderboard.getRank(other) != 2)
+        {
+            fail(round, "leaderboard out of order");
+        }
+    }
+
+
+    /**
+     * Claims one card from every thread at once
+     *
+     * @param round
+     *            the round number
+     * @param threads
+     *            the number of threads
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void checkClaim(int round, int threads)
+        throws InterruptedException
+    {
+        Card card = new Card("question", "answer", 100, "category");
+        AtomicInteger claims = new AtomicInteger();
+
+        race(threads, i -> {
+            if (card.tryClaim())
+            {
+                claims.incrementAndGet();
+            }
+        });
+
+        if (claims.get() != 1 || card.getState() != Card.CLAIMED)
+        {
+            fail(round, claims.get() + " claims");
+        }
+    }
+
+
+    /**
+     * Answers one card from every thread at once, half of them correctly
+     *
+     * @param round
+     *            the round number
+     * @param threads
+     *            the number of threads
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void checkAnswer(int round, int threads)
+        throws InterruptedException
+    {
+        Card card = new Card("question", "answer", 100, "category");
+        card.tryClaim();
+
+        Player[] players = new Player[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            players[i] = new Player("player" + i);
+        }
+        AtomicInteger scored = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        race(threads, i -> {
+            try
+            {
+                card.submitAnswer(i % 2 == 0 ? "answer" : "wrong", players[i]);
+                scored.incrementAndGet();
+            }
+            catch (IllegalStateException ex)
+            {
+                refused.incrementAndGet();
+            }
+        });
+
+        int changed = 0;
+        for (Player player : players)
+        {
+            if (player.getPoints() != 0)
+            {
+                changed++;
+            }
+        }
+
+        Player respondent = card.getRespondent();
+        int expected = card.getCorrect() ? 100 : -100;
+        if (scored.get() != 1 || refused.get() != threads - 1 || changed != 1
+            || respondent == null || respondent.getPoints() != expected)
+        {
+            fail(round, scored.get() + " answers scored, " + changed + " players changed");
+        }
+    }
+
+
+    /**
+     * Runs a task on many threads that all start at the same moment, and
+     * waits for them to finish
+     *
+     * @param threads
+     *            the number of threads
+     * @param task
+     *            the task, given the number of its thread
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private static void race(int threads, Task task)
+        throws InterruptedException
+    {
+        CyclicBarrier start = new CyclicBarrier(threads);
+        ArrayList<Thread> running = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++)
+        {
+            int index = i;
+            running.add(new Thread(() -> {
+                try
+                {
+                    start.await();
+                }
+                catch (Exception ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+                task.run(index);
+            }));
+        }
+
+        for (Thread thread : running)
+        {
+            thread.start();
+        }
+        for (Thread thread : running)
+        {
+            thread.join();
+        }
+    }
+
+
+    /**
+     * Reports a failed check
+     *
+     * @param round
+     *            the round number
+     * @param problem
+     *            what went wrong
+     */
+    private static void fail(int round, String problem)
+    {
+        System.out.println("round " + round + ": " + problem);
+        failures++;
+    }
+
+
+    /**
+     * Work done by one racing thread
+     */
+    private interface Task
+    {
+        /**
+         * Does the work
+         *
+         * @param index
+         *            the number of the thread
+         */
+        void run(int index);
+    }
+}
@@ -0,0 +1,95 @@
+package classes;
+
+import java.io.IOException;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures taking a GameSnapshot of a standard game halfway through, and
+ * restoring the game from it. The questions of the board are already in the
+ * shared QuestionStore, as they are once a game has been shown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark
+{
+    private JeopardyGame game;
+    private GameSnapshot snapshot;
+
+    /**
+     * Plays half of a game with four players
+     *
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        QuestionBank bank = Benchmarks.getSharedBank();
+        game = new JeopardyGame(BoardSpec.standard(bank), new QuestionSampler(bank));
+        for (int i = 0; i < 4; i++)
+        {
+            game.addPlayer(new Player("player" + i));
+        }
+
+        TreeMap<Integer, Card[]> board = game.getQuestions();
+        int played = 0;
+        for (Card[] row : board.values())
+        {
+            for (Card card : row)
+            {
+                if (played++ % 2 == 0)
+                {
+                    game.openCard(card);
+                    game.submitAnswer(card, played % 3 == 0 ? card.getAnswer() : "wrong");
+                    game.getNextPlayer();
+                }
+            }
+        }
+
+        snapshot = GameSnapshot.capture(game, JeopardyGame.getStore());
+    }
+
+
+    /**
+     * Encodes the game into a snapshot
+     *
+     * @return the snapshot
+     */
+    @Benchmark
+    public GameSnapshot capture()
+    {
+        return GameSnapshot.capture(game, JeopardyGame.getStore());
+    }
+
+
+    /**
+     * Rebuilds the game from the snapshot
+     *
+     * @return the restored game
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    @Benchmark
+    public JeopardyGame restore()
+        throws IOException
+    {
+        return snapshot.restore(JeopardyGame.getStore());
+    }
+}
@@ -0,0 +1,25 @@
+package classes;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Runs a short BuzzerStress on every build, so a card with more than one
+ * winner, or a buzz that is lost or recorded twice, fails the build
+ */
+public class BuzzerStressTest
+{
+    /**
+     * Races threads to buzz for one card while another closes the buzzer
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    @Test
+    public void hasAtMostOneWinnerPerCard()
+        throws InterruptedException
+    {
+        assertEquals("failed rounds", 0, BuzzerStress.run(100, 40));
+    }
+}
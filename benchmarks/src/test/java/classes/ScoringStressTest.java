@@ -0,0 +1,25 @@
+package classes;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Runs a short ScoringStress on every build, so a lost score update, a card
+ * claimed twice or an answer scored twice fails the build
+ */
+public class ScoringStressTest
+{
+    /**
+     * Races threads on one player's score, one card claim and one card answer
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    @Test
+    public void scoresEveryChangeExactlyOnce()
+        throws InterruptedException
+    {
+        assertEquals("failed checks", 0, ScoringStress.run(64, 30));
+    }
+}
@@ -0,0 +1,31 @@
+package classes;
+
+/**
+ * Decides if a submitted answer matches the answer of a card. The card's
+ * answer is prepared once with prepare() and the result is kept by the card,
+ * so judging a submission only has to look at the submitted text.
+ */
+public interface AnswerMatcher
+{
+    /**
+     * Prepares the correct answer of a card for matching, for example by
+     * normalizing it. The result is passed back to matches().
+     *
+     * @param answer
+     *            the correct answer as stored in the question bank
+     * @return the accepted forms of the answer
+     */
+    String[] prepare(String answer);
+
+
+    /**
+     * Checks a submitted answer against a prepared answer
+     *
+     * @param prepared
+     *            the result of prepare() for the correct answer
+     * @param submitted
+     *            the answer the player typed
+     * @return true if the submitted answer counts as correct
+     */
+    boolean matches(String[] prepared, String submitted);
+}
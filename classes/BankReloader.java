@@ -0,0 +1,255 @@
+package classes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the question files and loads a new QuestionLibrary when they
+ * change, so a long running game or server picks up new questions without a
+ * restart. The directories of the csv files and of the question pack are
+ * watched with a WatchService. Only changes to .csv and .pack files count;
+ * the .idx, .search and .tmp files written next to them are ignored. Once
+ * the files have been quiet for QUIET_MILLIS, the new library is opened and
+ * loaded on the reloader's own thread.
+ *
+ * The current library is held in a volatile field that is replaced in one
+ * write, so reading it never waits for a reload, and whoever read the old
+ * library keeps using it undisturbed. Listeners are told about every new
+ * library, to swap their own builders. Files should be replaced by moving a
+ * finished file into place, as QuestionPackCompiler does, because a library
+ * that is still in use keeps the old file mapped.
+ */
+public class BankReloader
+    implements Closeable
+{
+    public static final long                                QUIET_MILLIS = 500;
+
+    private String                                          packPath;
+    private String[]                                        csvDirectories;
+    private volatile QuestionLibrary                        library;
+    private CopyOnWriteArrayList<Consumer<QuestionLibrary>> listeners;
+    private WatchService                                    watcher;
+    private Thread                                          thread;
+    private volatile int                                    reloads;
+
+    /**
+     * Creates a reloader for the same files a library was opened from and
+     * starts watching them
+     *
+     * @param library
+     *            the library in use now
+     * @param packPath
+     *            path of the compiled question pack
+     * @param csvDirectories
+     *            directories holding the point value csv files
+     * @throws IOException
+     *             if the directories cannot be watched
+     */
+    public BankReloader(QuestionLibrary library, String packPath, String... csvDirectories)
+        throws IOException
+    {
+        this.library = library;
+        this.packPath = packPath;
+        this.csvDirectories = csvDirectories;
+        listeners = new CopyOnWriteArrayList<Consumer<QuestionLibrary>>();
+
+        watcher = FileSystems.getDefault().newWatchService();
+        File packDirectory = new File(packPath).getAbsoluteFile().getParentFile();
+        register(packDirectory);
+        for (String directory : csvDirectories)
+        {
+            if (!new File(directory).getAbsoluteFile().equals(packDirectory))
+            {
+                register(new File(directory));
+            }
+        }
+
+        thread = new Thread(() -> watch(), "bank-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Returns the current library. This is a single volatile read.
+     *
+     * @return the library
+     */
+    public QuestionLibrary get()
+    {
+        return library;
+    }
+
+
+    /**
+     * Returns how many times a new library has been loaded
+     *
+     * @return the number of reloads
+     */
+    public int getReloadCount()
+    {
+        return reloads;
+    }
+
+
+    /**
+     * Tells a listener about every library loaded from now on. Listeners are
+     * called on the reloader's thread, after the library has been swapped.
+     *
+     * @param listener
+     *            the listener
+     */
+    public void addListener(Consumer<QuestionLibrary> listener)
+    {
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Opens and loads the question files again and makes them the current
+     * library. If the files cannot be read, for example while they are only
+     * half copied, the current library stays.
+     *
+     * @return the new library
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public synchronized QuestionLibrary reload()
+        throws IOException
+    {
+        QuestionLibrary loaded = QuestionLibrary.open(packPath, csvDirectories);
+        try
+        {
+            loaded.load();
+        }
+        catch (RuntimeException ex)
+        {
+            // a malformed row
+            throw new IOException(ex.getMessage(), ex);
+        }
+        if (loaded.getBank().getPointValues().isEmpty())
+        {
+            throw new IOException("no questions in " + packPath);
+        }
+
+        library = loaded;
+        reloads++;
+        for (Consumer<QuestionLibrary> listener : listeners)
+        {
+            listener.accept(loaded);
+        }
+        return loaded;
+    }
+
+
+    /**
+     * Stops watching the files
+     *
+     * @throws IOException
+     *             if the watch service cannot be closed
+     */
+    public void close()
+        throws IOException
+    {
+        thread.interrupt();
+        watcher.close();
+    }
+
+
+    /**
+     * Watches a directory for files being created, changed or deleted
+     *
+     * @param directory
+     *            the directory
+     * @throws IOException
+     *             if the directory cannot be watched
+     */
+    private void register(File directory)
+        throws IOException
+    {
+        if (directory.isDirectory())
+        {
+            directory.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+    }
+
+
+    /**
+     * Waits for question files to change and reloads them once they have
+     * been quiet for a while
+     */
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                if (!isQuestionChange(watcher.take()))
+                {
+                    continue;
+                }
+
+                // wait until a copy of several files is finished
+                WatchKey key;
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                {
+                    isQuestionChange(key);
+                }
+
+                try
+                {
+                    reload();
+                }
+                catch (IOException ex)
+                {
+                    System.out.println("***Cannot reload " + ex.getMessage() + " ***");
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException ex)
+        {
+            // closed
+        }
+    }
+
+
+    /**
+     * Reads the events of a watch key and resets it
+     *
+     * @param key
+     *            the key
+     * @return true if a .csv or .pack file changed
+     */
+    private static boolean isQuestionChange(WatchKey key)
+    {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+            {
+                changed = true;
+                continue;
+            }
+
+            String name = ((Path)event.context()).getFileName().toString();
+            if (name.endsWith(".csv") || name.endsWith(".pack"))
+            {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
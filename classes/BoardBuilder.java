@@ -0,0 +1,356 @@
+package classes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds boards of cards for a board spec. Questions are drawn from a
+ * QuestionSampler, from a CategoryIndex when every column is a single
+ * category, or from the questions that match a SearchIndex query when the
+ * builder has a topic. A board is a TreeMap from point value to the cards of
+ * that row, one card per column. A CompactBoard holds only the question ids
+ * of the cards, for rooms that share their questions through a QuestionStore.
+ *
+ * The questions of a row are picked together: category and topic picks are
+ * marked as drawn in the sampler, and the random questions of the row are
+ * drawn in one step that never repeats a question already in the row.
+ *
+ * A question that cannot be read is reported to the caller, never handled
+ * here, so a server can turn it into an error for one room.
+ */
+public class BoardBuilder
+{
+    private static final int CATEGORY_TRIES = 8;
+
+    private BoardSpec       spec;
+    private QuestionSampler sampler;
+    private QuestionBank    bank;
+    private CategoryIndex   categoryIndex;
+    private int[]           pointValues;
+    private SearchIndex     searchIndex;
+    private String          topic;
+
+    /**
+     * Creates a board builder
+     *
+     * @param spec
+     *            the layout of the boards to build
+     * @param sampler
+     *            the sampler to draw random questions from
+     * @param bank
+     *            the question bank the sampler draws from
+     * @param categoryIndex
+     *            the category index used for boards built by category
+     */
+    public BoardBuilder(BoardSpec spec, QuestionSampler sampler, QuestionBank bank,
+        CategoryIndex categoryIndex)
+    {
+        this.spec = spec;
+        this.sampler = sampler;
+        this.bank = bank;
+        this.categoryIndex = categoryIndex;
+        pointValues = spec.getPointValues();
+    }
+
+
+    /**
+     * Returns the layout of the boards this builder makes
+     *
+     * @return the board spec
+     */
+    public BoardSpec getSpec()
+    {
+        return spec;
+    }
+
+
+    /**
+     * Deals every board from the questions that match a query, such as
+     * "geography" or "astro*", instead of from the whole bank. A topic takes
+     * the place of categories for a spec built by category. Rows with fewer
+     * matches than columns are filled up with random questions.
+     *
+     * @param index
+     *            the search index over the builder's question bank
+     * @param query
+     *            the query, or null to draw from the whole bank again
+     */
+    public void setTopic(SearchIndex index, String query)
+    {
+        searchIndex = index;
+        topic = query;
+    }
+
+
+    /**
+     * Builds a board on the calling thread, one row after the other
+     *
+     * @return the board
+     * @throws IOException
+     *             if a question cannot be read
+     */
+    public TreeMap<Integer, Card[]> build()
+        throws IOException
+    {
+        String[] columns = spec.isByCategory() && topic == null ? pickCategories() : null;
+
+        TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+        for (int points : spec.getPointValues())
+        {
+            board.put(points, getCards(points, columns));
+        }
+        return board;
+    }
+
+
+    /**
+     * Builds a compact board on the calling thread. Only the rows of the
+     * questions are drawn; the questions themselves are read by the store
+     * when they are first shown.
+     *
+     * @param store
+     *            the store over the same question bank as this builder
+     * @return the board
+     * @throws IOException
+     *             if a question cannot be read
+     */
+    public CompactBoard buildCompact(QuestionStore store)
+        throws IOException
+    {
+        // every compact board shares the builder's copy of the ladder
+        int columns = spec.getColumns();
+        String[] categories = spec.isByCategory() && topic == null ? pickCategories() : null;
+
+        int[] ids = new int[pointValues.length * columns];
+        for (int row = 0; row < pointValues.length; row++)
+        {
+            int points = pointValues[row];
+            int[] drawn = pickRows(points, categories);
+            for (int column = 0; column < columns; column++)
+            {
+                ids[row * columns + column] = store.getId(points, drawn[column]);
+            }
+        }
+        return new CompactBoard(pointValues, columns, ids);
+    }
+
+
+    /**
+     * Starts building a board in the background. Each point value is filled by
+     * its own task on the common fork-join pool and the tasks are combined
+     * into one TreeMap once they have all finished. For a board built by
+     * category, the categories are chosen first and every row task then picks
+     * from them.
+     *
+     * @return a future that completes with the board, or completes
+     *         exceptionally with an UncheckedIOException if a question cannot
+     *         be read
+     */
+    public CompletableFuture<TreeMap<Integer, Card[]>> buildAsync()
+    {
+        TreeMap<Integer, CompletableFuture<Card[]>> rows =
+            new TreeMap<Integer, CompletableFuture<Card[]>>();
+
+        if (spec.isByCategory() && topic == null)
+        {
+            CompletableFuture<String[]> columns =
+                CompletableFuture.supplyAsync(() -> unchecked(() -> pickCategories()));
+            for (int points : spec.getPointValues())
+            {
+                rows.put(points, columns.thenApplyAsync(c -> unchecked(() ->
+                    getCards(points, c))));
+            }
+        }
+        else
+        {
+            for (int points : spec.getPointValues())
+            {
+                rows.put(points, CompletableFuture.supplyAsync(() -> unchecked(() ->
+                    getCards(points, null))));
+            }
+        }
+
+        return CompletableFuture.allOf(rows.values().toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> {
+                TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+                for (Integer points : rows.keySet())
+                {
+                    board.put(points, rows.get(points).join());
+                }
+                return board;
+            });
+    }
+
+
+    /**
+     * Picks one category for each column that has questions for every row of
+     * the board. If there are not enough such categories, the remaining
+     * columns are left as null and filled with random questions.
+     *
+     * @return the category of each column
+     * @throws IOException
+     *             if the categories cannot be read
+     */
+    private String[] pickCategories()
+        throws IOException
+    {
+        String[] columns = new String[spec.getColumns()];
+        String[] picked = categoryIndex.pickCategories(spec.getPointValues(), columns.length);
+        System.arraycopy(picked, 0, columns, 0, picked.length);
+        return columns;
+    }
+
+
+    /**
+     * Gets the cards of one row of a board
+     *
+     * @param point
+     *            the point value of the row
+     * @param columns
+     *            the category of each column, or null if the board is not
+     *            built by category
+     * @return one card per column
+     * @throws IOException
+     *             if a question cannot be read
+     */
+    private Card[] getCards(int point, String[] columns)
+        throws IOException
+    {
+        int[] rows = pickRows(point, columns);
+        Card[] card = new Card[rows.length];
+        for (int i = 0; i < rows.length; i++)
+        {
+            card[i] = bank.getCard(point, rows[i]);
+        }
+        return card;
+    }
+
+
+    /**
+     * Picks the questions of one row of a board. With a topic each column
+     * gets a different question that matches it, as long as there are enough
+     * of them; on a board built by category each column gets a question from
+     * its category. These picks are taken from the sampler, and every other
+     * column is filled with random questions that are not in the row yet.
+     *
+     * @param point
+     *            the point value of the row
+     * @param columns
+     *            the category of each column, or null if the board is not
+     *            built by category
+     * @return the row of each column's question among those worth that many
+     *         points
+     * @throws IOException
+     *             if a question cannot be read
+     */
+    private int[] pickRows(int point, String[] columns)
+        throws IOException
+    {
+        int[] matches = topic == null ? new int[0] : searchIndex.search(topic, point);
+        RowSampler picker = new RowSampler(matches.length);
+
+        int[] rows = new int[spec.getColumns()];
+        int[] picked = new int[rows.length];
+        int count = 0;
+        for (int i = 0; i < rows.length; i++)
+        {
+            if (i < matches.length)
+            {
+                rows[i] = matches[picker.next()];
+                sampler.take(point, rows[i]);
+            }
+            else if (topic == null && columns != null && columns[i] != null)
+            {
+                rows[i] = pickCategoryRow(point, columns[i]);
+            }
+            else
+            {
+                rows[i] = -1;
+                continue;
+            }
+            picked[count++] = rows[i];
+        }
+
+        int[] drawn = sampler.drawRows(point, rows.length - count, Arrays.copyOf(picked, count));
+        int next = 0;
+        for (int i = 0; i < rows.length; i++)
+        {
+            if (rows[i] < 0)
+            {
+                rows[i] = drawn[next++];
+            }
+        }
+        return rows;
+    }
+
+
+    /**
+     * Picks a question from a category, preferring one the sampler has not
+     * drawn yet. A small category may only have questions that were drawn
+     * already, so after a few tries any of them will do.
+     *
+     * @param point
+     *            the point value of the question
+     * @param category
+     *            the category
+     * @return the row of the question among those worth that many points
+     * @throws IOException
+     *             if the category has no questions worth that many points
+     */
+    private int pickCategoryRow(int point, String category)
+        throws IOException
+    {
+        int row = categoryIndex.pickRow(point, category);
+        for (int tries = 1; tries < CATEGORY_TRIES && !sampler.take(point, row); tries++)
+        {
+            row = categoryIndex.pickRow(point, category);
+        }
+        return row;
+    }
+
+
+    /**
+     * Runs a part of a board build inside a task, which cannot throw checked
+     * exceptions
+     *
+     * @param part
+     *            the part to run
+     * @return what the part returns
+     * @throws UncheckedIOException
+     *             if a question cannot be read
+     */
+    private static <T> T unchecked(Part<T> part)
+    {
+        try
+        {
+            return part.build();
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+
+    /**
+     * A part of a board build that reads questions
+     *
+     * @param <T>
+     *            what the part builds
+     */
+    private interface Part<T>
+    {
+        /**
+         * Builds the part
+         *
+         * @return the part
+         * @throws IOException
+         *             if a question cannot be read
+         */
+        T build()
+            throws IOException;
+    }
+}
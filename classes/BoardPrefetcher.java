@@ -0,0 +1,137 @@
+package classes;
+
+import java.io.IOException;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps finished boards ready for the next game. A low priority daemon thread
+ * builds boards with a BoardBuilder and parks them in a small queue, so a new
+ * game or a rematch can start without reading any questions. If the queue is
+ * empty when a board is needed, one is built in the background right away
+ * instead of waiting for the prefetch thread.
+ */
+public class BoardPrefetcher
+{
+    private volatile BoardBuilder                        builder;
+    private ArrayBlockingQueue<TreeMap<Integer, Card[]>> ready;
+    private Thread                                       thread;
+
+    /**
+     * Creates a prefetcher and starts its background thread
+     *
+     * @param builder
+     *            the builder used to make the boards
+     * @param depth
+     *            how many finished boards to keep ready
+     */
+    public BoardPrefetcher(BoardBuilder builder, int depth)
+    {
+        this.builder = builder;
+        ready = new ArrayBlockingQueue<TreeMap<Integer, Card[]>>(depth);
+
+        thread = new Thread(() -> prefetch(), "board-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+
+    /**
+     * Returns the layout of the boards this prefetcher makes
+     *
+     * @return the board spec
+     */
+    public BoardSpec getSpec()
+    {
+        return builder.getSpec();
+    }
+
+
+    /**
+     * Switches to another builder, such as one over a reloaded question bank.
+     * Boards prefetched by the old builder are dropped, so the next game is
+     * dealt from the new one; games already dealt keep their cards.
+     *
+     * @param builder
+     *            the builder for the boards from now on
+     */
+    public void setBuilder(BoardBuilder builder)
+    {
+        this.builder = builder;
+        ready.clear();
+    }
+
+
+    /**
+     * Returns the number of boards that are ready right now
+     *
+     * @return the number of prefetched boards
+     */
+    public int getReadyCount()
+    {
+        return ready.size();
+    }
+
+
+    /**
+     * Takes the next board. A prefetched board is returned as an already
+     * completed future; otherwise a board is built in the background.
+     *
+     * @return a future that completes with the board
+     */
+    public CompletableFuture<TreeMap<Integer, Card[]>> next()
+    {
+        TreeMap<Integer, Card[]> board = ready.poll();
+        if (board != null)
+        {
+            return CompletableFuture.completedFuture(board);
+        }
+        return builder.buildAsync();
+    }
+
+
+    /**
+     * Stops the background thread. Boards that are already prefetched can
+     * still be taken.
+     */
+    public void shutdown()
+    {
+        thread.interrupt();
+    }
+
+
+    /**
+     * Builds boards until the queue is full, then waits for a board to be
+     * taken before building the next one. If a question cannot be read the
+     * thread stops, and next builds every board itself, so the error reaches
+     * whoever waits for the board.
+     */
+    private void prefetch()
+    {
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                BoardBuilder current = builder;
+                TreeMap<Integer, Card[]> board = current.build();
+                ready.put(board);
+                if (current != builder)
+                {
+                    // the builder was switched while this board was made or
+                    // waited for room in the queue
+                    ready.remove(board);
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // shut down
+        }
+        catch (IOException ex)
+        {
+            // left to next
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Describes the layout of a board: how many categories (columns) it has and
+ * the point value of each row. The standard board is 5 by 5, but any number of
+ * columns and any ladder of point values can be used as long as the question
+ * bank has enough questions for every row.
+ */
+public class BoardSpec
+{
+    public static final int STANDARD_COLUMNS = 5;
+    public static final int STANDARD_ROWS    = 5;
+
+    private int             columns;
+    private int[]           pointValues;
+    private boolean         byCategory;
+
+    /**
+     * Creates a board spec with the given number of columns and point value
+     * ladder
+     *
+     * @param columns
+     *            the number of columns (categories) on the board
+     * @param pointValues
+     *            the point value of each row, from the top row down
+     * @throws IllegalArgumentException
+     *             if the board has no rows or columns, or the point values
+     *             are not positive and strictly increasing
+     */
+    public BoardSpec(int columns, int[] pointValues)
+    {
+        if (columns < 1 || pointValues.length < 1)
+        {
+            throw new IllegalArgumentException("A board needs at least one row and one column");
+        }
+        for (int i = 0; i < pointValues.length; i++)
+        {
+            // rows are keyed by point value, so two equal values would merge
+            if (pointValues[i] <= 0 || i > 0 && pointValues[i] <= pointValues[i - 1])
+            {
+                throw new IllegalArgumentException("Point values must be positive and increase "
+                    + "from row to row: " + Arrays.toString(pointValues));
+            }
+        }
+
+        this.columns = columns;
+        this.pointValues = pointValues.clone();
+    }
+
+
+    /**
+     * Creates a board spec whose rows go up by a fixed step, such as 200, 400,
+     * ... 1000
+     *
+     * @param columns
+     *            the number of columns on the board
+     * @param rows
+     *            the number of rows on the board
+     * @param first
+     *            the point value of the top row
+     * @param step
+     *            how many points each row adds
+     * @return the board spec
+     * @throws IllegalArgumentException
+     *             if the step or a point value is not positive
+     */
+    public static BoardSpec ladder(int columns, int rows, int first, int step)
+    {
+        if (step <= 0)
+        {
+            throw new IllegalArgumentException("The step between rows must be positive, not "
+                + step);
+        }
+
+        int[] pointValues = new int[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            pointValues[i] = first + i * step;
+        }
+        return new BoardSpec(columns, pointValues);
+    }
+
+
+    /**
+     * Creates a board spec from the point values that actually have questions.
+     * The rows are the lowest point values, starting at first, that have at
+     * least one question for every column.
+     *
+     * @param bank
+     *            the question bank the board will be drawn from
+     * @param columns
+     *            the number of columns on the board
+     * @param rows
+     *            the number of rows on the board
+     * @param first
+     *            the lowest point value to use
+     * @return the board spec
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    public static BoardSpec fromData(QuestionBank bank, int columns, int rows, int first)
+        throws IOException
+    {
+        int[] pointValues = new int[rows];
+        int found = 0;
+
+        for (int points : bank.getPointValues().tailSet(first, true))
+        {
+            if (found == rows)
+            {
+                break;
+            }
+            if (bank.getQuestionCount(points) >= columns)
+            {
+                pointValues[found++] = points;
+            }
+        }
+
+        if (found < rows)
+        {
+            throw new IllegalArgumentException("Only " + found + " point values from " + first
+                + " have " + columns + " questions, " + rows + " are needed");
+        }
+
+        return new BoardSpec(columns, pointValues);
+    }
+
+
+    /**
+     * Creates the standard 5 by 5 board spec, using the five lowest point
+     * values that have questions
+     *
+     * @param bank
+     *            the question bank the board will be drawn from
+     * @return the board spec
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    public static BoardSpec standard(QuestionBank bank)
+        throws IOException
+    {
+        return fromData(bank, STANDARD_COLUMNS, STANDARD_ROWS, 0);
+    }
+
+
+    /**
+     * Returns a copy of this board spec where every column is filled from a
+     * single category
+     *
+     * @return the category board spec
+     */
+    public BoardSpec byCategory()
+    {
+        BoardSpec spec = new BoardSpec(columns, pointValues);
+        spec.byCategory = true;
+        return spec;
+    }
+
+
+    /**
+     * Checks that the question bank has enough questions for every row
+     *
+     * @param bank
+     *            the question bank the board will be drawn from
+     * @throws IOException
+     *             if the question bank cannot be read
+     * @throws IllegalArgumentException
+     *             if a row does not have enough questions
+     */
+    public void validate(QuestionBank bank)
+        throws IOException
+    {
+        ArrayList<Integer> missing = new ArrayList<Integer>();
+        for (int points : pointValues)
+        {
+            if (bank.getQuestionCount(points) < columns)
+            {
+                missing.add(points);
+            }
+        }
+
+        if (!missing.isEmpty())
+        {
+            throw new IllegalArgumentException("Not enough questions worth " + missing
+                + " points, available point values are " + bank.getPointValues());
+        }
+    }
+
+
+    /**
+     * Returns the number of columns on the board
+     *
+     * @return the number of columns
+     */
+    public int getColumns()
+    {
+        return columns;
+    }
+
+
+    /**
+     * Returns the number of rows on the board
+     *
+     * @return the number of rows
+     */
+    public int getRows()
+    {
+        return pointValues.length;
+    }
+
+
+    /**
+     * Returns the point value of each row
+     *
+     * @return the point values from the top row down
+     */
+    public int[] getPointValues()
+    {
+        return pointValues.clone();
+    }
+
+
+    /**
+     * Returns if every column of the board is filled from a single category
+     *
+     * @return true if the columns are categories, false if every card is an
+     *         independent random question
+     */
+    public boolean isByCategory()
+    {
+        return byCategory;
+    }
+
+
+    /**
+     * Returns the highest point value on the board
+     *
+     * @return the highest point value
+     */
+    public int getMaxPoints()
+    {
+        int max = pointValues[0];
+        for (int points : pointValues)
+        {
+            max = Math.max(max, points);
+        }
+        return max;
+    }
+
+
+    /**
+     * @return the size of the board and its point values as a string
+     */
+    public String toString()
+    {
+        return columns + "x" + pointValues.length + " " + Arrays.toString(pointValues)
+            + (byCategory ? " by category" : "");
+    }
+}
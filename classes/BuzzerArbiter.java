@@ -0,0 +1,206 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decides who buzzed first for an open card. Any number of threads may buzz at
+ * once. The winner is whoever's compare-and-set on the winner reference
+ * succeeds first, so buzzing never takes a lock and every buzz after the first
+ * is turned away by a single failed CAS. Closing the buzzer races through the
+ * same CAS, so a question is either skipped or won, never both.
+ *
+ * Every buzz is also recorded with System.nanoTime() and its place in arrival
+ * order, for looking at close calls afterwards. Recording claims a slot with
+ * an atomic counter and does not wait for other buzzes either.
+ */
+public class BuzzerArbiter
+{
+    private static final Player           CLOSED = new Player("");
+
+    private AtomicReference<Player>       winner;
+    private AtomicInteger                 count;
+    private AtomicReferenceArray<Arrival> arrivals;
+
+    /**
+     * Creates an open buzzer
+     *
+     * @param capacity
+     *            how many buzzes to record; later buzzes are still judged but
+     *            not recorded
+     */
+    public BuzzerArbiter(int capacity)
+    {
+        winner = new AtomicReference<Player>();
+        count = new AtomicInteger();
+        arrivals = new AtomicReferenceArray<Arrival>(capacity);
+    }
+
+
+    /**
+     * Buzzes for the card
+     *
+     * @param player
+     *            the player buzzing
+     * @return true if this was the first buzz and the buzzer was still open
+     */
+    public boolean buzz(Player player)
+    {
+        long nanos = System.nanoTime();
+        boolean won = winner.get() == null && winner.compareAndSet(null, player);
+
+        int order = count.getAndIncrement();
+        if (order < arrivals.length())
+        {
+            arrivals.lazySet(order, new Arrival(player, nanos, order, won));
+        }
+
+        return won;
+    }
+
+
+    /**
+     * Closes the buzzer so no one can win it anymore
+     *
+     * @return true if nobody had won it before it was closed
+     */
+    public boolean close()
+    {
+        return winner.compareAndSet(null, CLOSED);
+    }
+
+
+    /**
+     * Returns the player that won the buzz
+     *
+     * @return the winner, or null if nobody won
+     */
+    public Player getWinner()
+    {
+        Player player = winner.get();
+        return player == CLOSED ? null : player;
+    }
+
+
+    /**
+     * Returns the number of buzzes, including the ones that lost
+     *
+     * @return the number of buzzes
+     */
+    public int getBuzzCount()
+    {
+        return count.get();
+    }
+
+
+    /**
+     * Returns the recorded buzzes in the order they arrived. Buzzes that are
+     * still being recorded by other threads may be missing.
+     *
+     * @return the recorded buzzes, earliest first
+     */
+    public ArrayList<Arrival> getArrivals()
+    {
+        int recorded = Math.min(count.get(), arrivals.length());
+        ArrayList<Arrival> list = new ArrayList<Arrival>(recorded);
+        for (int i = 0; i < recorded; i++)
+        {
+            Arrival arrival = arrivals.get(i);
+            if (arrival != null)
+            {
+                list.add(arrival);
+            }
+        }
+
+        list.sort(Comparator.comparingLong(Arrival::getNanos));
+        return list;
+    }
+
+
+    /**
+     * One recorded buzz
+     */
+    public static class Arrival
+    {
+        private Player  player;
+        private long    nanos;
+        private int     order;
+        private boolean won;
+
+        /**
+         * Records a buzz
+         *
+         * @param player
+         *            the player that buzzed
+         * @param nanos
+         *            System.nanoTime() when the buzz came in
+         * @param order
+         *            the buzz's place in the order buzzes were counted
+         * @param won
+         *            true if this buzz won
+         */
+        Arrival(Player player, long nanos, int order, boolean won)
+        {
+            this.player = player;
+            this.nanos = nanos;
+            this.order = order;
+            this.won = won;
+        }
+
+
+        /**
+         * Returns the player that buzzed
+         *
+         * @return the player
+         */
+        public Player getPlayer()
+        {
+            return player;
+        }
+
+
+        /**
+         * Returns when the buzz came in
+         *
+         * @return the System.nanoTime() value
+         */
+        public long getNanos()
+        {
+            return nanos;
+        }
+
+
+        /**
+         * Returns the buzz's place in the order buzzes were counted
+         *
+         * @return the place, starting at 0
+         */
+        public int getOrder()
+        {
+            return order;
+        }
+
+
+        /**
+         * Returns whether this buzz won
+         *
+         * @return true for the winning buzz
+         */
+        public boolean isWinner()
+        {
+            return won;
+        }
+
+
+        /**
+         * @return the player, the time and whether the buzz won
+         */
+        public String toString()
+        {
+            return player.getUsername() + " @" + nanos + (won ? " (won)" : "");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package classes;
+
+import java.io.IOException;
+import java.util.NavigableSet;
+
+/**
+ * A question bank that keeps the questions it decodes in a bounded
+ * QuestionCache. Drawing a question that is cached reads no file and decodes
+ * nothing; the card only wraps the shared Question. Rooms and rematches keep
+ * drawing from the same popular questions, so most draws of a busy server are
+ * hits, while the cache keeps the memory bounded however many questions the
+ * bank has.
+ */
+public class CachedQuestionBank
+    implements QuestionBank
+{
+    private QuestionBank  bank;
+    private QuestionCache cache;
+
+    /**
+     * Creates a cached view of a question bank
+     *
+     * @param bank
+     *            the bank to read questions from
+     * @param cache
+     *            the cache to keep them in
+     */
+    public CachedQuestionBank(QuestionBank bank, QuestionCache cache)
+    {
+        this.bank = bank;
+        this.cache = cache;
+    }
+
+
+    /**
+     * Returns a bank with a cache of QuestionCache.DEFAULT_CAPACITY questions
+     * and TinyLFU eviction, or the bank itself if it already has a cache
+     *
+     * @param bank
+     *            the question bank
+     * @return the cached bank
+     */
+    public static CachedQuestionBank wrap(QuestionBank bank)
+    {
+        if (bank instanceof CachedQuestionBank)
+        {
+            return (CachedQuestionBank)bank;
+        }
+        return new CachedQuestionBank(bank,
+            new QuestionCache(QuestionCache.DEFAULT_CAPACITY, QuestionCache.Policy.TINY_LFU));
+    }
+
+
+    /**
+     * Returns the cache of decoded questions, to read its counters
+     *
+     * @return the cache
+     */
+    public QuestionCache getCache()
+    {
+        return cache;
+    }
+
+
+    /**
+     * Returns the point values that have at least one question
+     *
+     * @return the point values in ascending order
+     */
+    public NavigableSet<Integer> getPointValues()
+    {
+        return bank.getPointValues();
+    }
+
+
+    /**
+     * Returns the number of questions stored for the given point value
+     *
+     * @param points
+     *            the point value
+     * @return the number of questions worth that many points
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public int getQuestionCount(int points)
+        throws IOException
+    {
+        return bank.getQuestionCount(points);
+    }
+
+
+    /**
+     * Returns a new card for the question in a row, decoding the question
+     * only if it is not cached
+     *
+     * @param points
+     *            the point value of the card
+     * @param row
+     *            the row of the card, starting at 0
+     * @return the card in that row
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public Card getCard(int points, int row)
+        throws IOException
+    {
+        return new Card(getQuestion(points, row));
+    }
+
+
+    /**
+     * Returns the shared question in a row, decoding it only if it is not
+     * cached
+     *
+     * @param points
+     *            the point value of the question
+     * @param row
+     *            the row of the question, starting at 0
+     * @return the question in that row
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public Question getQuestion(int points, int row)
+        throws IOException
+    {
+        Question question = cache.get(points, row);
+        if (question == null)
+        {
+            question = cache.put(points, row, bank.getCard(points, row).toQuestion());
+        }
+        return question;
+    }
+
+
+    /**
+     * Returns the fingerprint of the bank the questions are read from
+     *
+     * @return the fingerprint of the question files
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public long getFingerprint()
+        throws IOException
+    {
+        return bank.getFingerprint();
+    }
+
+
+    /**
+     * Returns the category of every question worth the given number of points
+     *
+     * @param points
+     *            the point value
+     * @return the category of each row, indexed by row
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public String[] getCategories(int points)
+        throws IOException
+    {
+        return bank.getCategories(points);
+    }
+}
@@ -1,19 +1,36 @@
 package classes;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class represents a card. It has information about the question it holds
- * as well as the answer. It also has the points it is worth. It has methods to
- * mark it as correct, incorrect, etc.
+ * as well as the answer. It also has the points it is worth. A player claims
+ * the card with tryClaim, then either scores it with submitAnswer or
+ * recordAnswer, which marks it correct or wrong, or gives it up with pass.
+ *
+ * The play state of a card is a small state machine kept in one atomic
+ * integer: OPEN, then CLAIMED once a player picks it, then ANSWERING while an
+ * answer is being scored, then CORRECT or WRONG, or PASSED if the player
+ * gives the card up instead. Every step is a compare-and-set, so a card can
+ * only be claimed once and only be scored once, however many threads try.
+ *
+ * The question text itself is an immutable Question, which may be shared with
+ * other cards and other games.
  */
 public class Card
 {
-    private String  question;
-    private String  answer;
-    private int     points;
-    private String  category;
-    private Player  respondent;
-    private boolean correct;
-    private boolean isVisible;
+    public static final int               OPEN      = 0;
+    public static final int               CLAIMED   = 1;
+    public static final int               ANSWERING = 2;
+    public static final int               CORRECT   = 3;
+    public static final int               WRONG     = 4;
+    public static final int               PASSED    = 5;
+
+    private static volatile AnswerMatcher matcher   = new FuzzyAnswerMatcher();
+
+    private Question                      question;
+    private volatile Player               respondent;
+    private AtomicInteger                 state;
 
     /**
      * Constructs a new card with the given point value, question, and answer.
@@ -30,13 +47,45 @@ public class Card
      */
     public Card(String question, String answer, int points, String category)
     {
-        this.points = points;
+        this(new Question(question, answer, points, category));
+    }
+
+
+    /**
+     * Constructs a new open card for a shared question
+     * 
+     * @param question
+     *            the question
+     */
+    public Card(Question question)
+    {
         this.question = question;
-        this.answer = answer;
-        this.category = category;
 
-        correct = false;
-        isVisible = true;
+        state = new AtomicInteger(OPEN);
+    }
+
+
+    /**
+     * Sets how submitted answers are judged for all cards. The default is a
+     * FuzzyAnswerMatcher.
+     * 
+     * @param answerMatcher
+     *            the matcher to judge answers with
+     */
+    public static void setAnswerMatcher(AnswerMatcher answerMatcher)
+    {
+        matcher = answerMatcher;
+    }
+
+
+    /**
+     * Returns how submitted answers are judged
+     * 
+     * @return the answer matcher used by all cards
+     */
+    public static AnswerMatcher getAnswerMatcher()
+    {
+        return matcher;
     }
 
 
@@ -46,6 +95,17 @@ public class Card
      * @return the question for the card
      */
     public String getQuestion()
+    {
+        return question.getQuestion();
+    }
+
+
+    /**
+     * Returns the immutable question this card shows
+     * 
+     * @return the question
+     */
+    public Question toQuestion()
     {
         return question;
     }
@@ -58,7 +118,7 @@ public class Card
      */
     public String getAnswer()
     {
-        return answer;
+        return question.getAnswer();
     }
 
 
@@ -70,7 +130,7 @@ public class Card
 
     public int getPoints()
     {
-        return points;
+        return question.getPoints();
     }
 
 
@@ -81,7 +141,7 @@ public class Card
      */
     public String getCategory()
     {
-        return category;
+        return question.getCategory();
     }
 
 
@@ -96,6 +156,17 @@ public class Card
     }
 
 
+    /**
+     * Returns the play state of the card
+     * 
+     * @return OPEN, CLAIMED, ANSWERING, CORRECT, WRONG or PASSED
+     */
+    public int getState()
+    {
+        return state.get();
+    }
+
+
     /**
      * Returns if the card is visible or not
      * 
@@ -103,7 +174,7 @@ public class Card
      */
     public boolean getVisibility()
     {
-        return isVisible;
+        return state.get() == OPEN;
     }
 
 
@@ -115,35 +186,72 @@ public class Card
      */
     public boolean getCorrect()
     {
-        return correct;
+        return state.get() == CORRECT;
     }
 
 
     /**
-     * Disables the card so that it is no longer accessible
+     * Claims an open card for the player that picked it. Of any number of
+     * threads trying at once, exactly one succeeds.
+     * 
+     * @return true if the card was open and is now claimed
      */
-    public void disableQuestion()
+    public boolean tryClaim()
     {
-        isVisible = false;
+        return state.compareAndSet(OPEN, CLAIMED);
     }
 
 
     /**
-     * Marks the card as incorrect
+     * Puts a new card back into a state saved by a GameSnapshot. The score is
+     * not changed.
+     * 
+     * @param saved
+     *            OPEN, CLAIMED, CORRECT, WRONG or PASSED
+     * @param player
+     *            the player who answered, or null
      */
-    public void markIncorrect()
+    void restore(int saved, Player player)
     {
-        correct = false;
+        respondent = player;
+        state.set(saved == ANSWERING ? CLAIMED : saved);
+    }
+
 
+    /**
+     * Gives up a claimed card without answering it. The card stays played and
+     * nobody's score changes.
+     * 
+     * @throws IllegalStateException
+     *             if the card was not claimed
+     */
+    public void pass()
+    {
+        if (!state.compareAndSet(CLAIMED, PASSED))
+        {
+            throw new IllegalStateException("card was not open");
+        }
     }
 
 
     /**
-     * Marks the card as correct
+     * Puts a card that was claimed but never answered or passed, as a crash
+     * can leave one, back on the board
+     * 
+     * @return true if the card was claimed and is open again
      */
-    public void markCorrect()
+    boolean reopen()
     {
-        correct = true;
+        return state.compareAndSet(CLAIMED, OPEN);
+    }
+
+
+    /**
+     * Disables the card so that it is no longer accessible
+     */
+    public void disableQuestion()
+    {
+        tryClaim();
     }
 
 
@@ -158,22 +266,62 @@ public class Card
      * @return true if the submitted answer matches answer (the answer to the
      *         card), false if the submitted answer does not match answer(the
      *         answer to the card)
+     * @throws IllegalStateException
+     *             if the card was already answered
      */
     public boolean submitAnswer(String a, Player player)
     {
-        respondent = player;
+        boolean right = isCorrectAnswer(a);
+        recordAnswer(player, right);
+        return right;
+    }
 
-        if (a.equalsIgnoreCase(answer))
-        {
-            player.changePoints(points);
 
-            correct = true;
-            return true;
+    /**
+     * Scores the card for an answer that was already judged, such as one read
+     * back from a GameEventLog. The player gains or loses the card's points
+     * before the card shows CORRECT or WRONG, so whoever sees the result also
+     * sees the new score.
+     * 
+     * @param player
+     *            the player that answered
+     * @param right
+     *            true if the answer was correct
+     * @throws IllegalStateException
+     *             if the card was already answered
+     */
+    public void recordAnswer(Player player, boolean right)
+    {
+        // only one answer gets past ANSWERING, so the card is scored once
+        int current = state.get();
+        while (current == OPEN || current == CLAIMED)
+        {
+            if (state.compareAndSet(current, ANSWERING))
+            {
+                respondent = player;
+                player.changePoints(right ? getPoints() : -getPoints());
+                state.set(right ? CORRECT : WRONG);
+                return;
+            }
+            current = state.get();
         }
 
-        correct = false;
-        player.changePoints(-points);
-        return false;
+        throw new IllegalStateException("card was already answered");
+    }
+
+
+    /**
+     * Checks a submitted answer with the current answer matcher. The answer
+     * of the question is prepared once per matcher and kept by the question,
+     * so only the submitted answer has to be normalized.
+     * 
+     * @param a
+     *            the submitted answer
+     * @return true if the answer counts as correct
+     */
+    public boolean isCorrectAnswer(String a)
+    {
+        return question.isCorrectAnswer(a);
     }
 
 
@@ -182,7 +330,7 @@ public class Card
      */
     public String toString()
     {
-        return question + ": " + answer + " ($" + points + ")";
+        return question.toString();
     }
 
 }
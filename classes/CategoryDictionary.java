@@ -0,0 +1,142 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every category name the program has seen, each stored once and numbered
+ * from 0. Questions keep the int id of their category instead of a String, so
+ * the thousands of questions in POTPOURRI or SCIENCE share one name. Ids
+ * never change and names are never removed, so one shared dictionary serves
+ * every question bank, including reloaded ones. Only question banks add
+ * names: a question made from text, such as a card read back from a game log,
+ * only looks its category up, so a long-running server does not collect the
+ * category of every card it is sent.
+ *
+ * Looking up a name by id reads a volatile array without locking. Adding a
+ * name is synchronized and grows the array by copying it.
+ */
+public class CategoryDictionary
+{
+    private static final CategoryDictionary    SHARED = new CategoryDictionary();
+
+    private ConcurrentHashMap<String, Integer> ids;
+    private volatile String[]                  names;
+    private int                                size;
+
+    /**
+     * Creates an empty dictionary
+     */
+    public CategoryDictionary()
+    {
+        ids = new ConcurrentHashMap<String, Integer>();
+        names = new String[1024];
+    }
+
+
+    /**
+     * Returns the dictionary shared by all questions
+     *
+     * @return the shared dictionary
+     */
+    public static CategoryDictionary getShared()
+    {
+        return SHARED;
+    }
+
+
+    /**
+     * Returns the id of a category, adding it if it is new
+     *
+     * @param name
+     *            the category name
+     * @return its id
+     */
+    public int getId(String name)
+    {
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+
+    /**
+     * Returns the id of a category without adding it
+     *
+     * @param name
+     *            the category name
+     * @return its id, or -1 if the dictionary does not have it
+     */
+    public int find(String name)
+    {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+
+    /**
+     * Returns the name of a category
+     *
+     * @param id
+     *            the id of the category
+     * @return the one shared String of its name
+     * @throws IllegalArgumentException
+     *             if there is no such category
+     */
+    public String getName(int id)
+    {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null)
+        {
+            throw new IllegalArgumentException("No category " + id);
+        }
+        return current[id];
+    }
+
+
+    /**
+     * Returns the shared String of a category name, adding it if it is new
+     *
+     * @param name
+     *            the category name
+     * @return the shared String equal to the name
+     */
+    public String intern(String name)
+    {
+        return getName(getId(name));
+    }
+
+
+    /**
+     * Returns the number of categories
+     *
+     * @return the number of categories
+     */
+    public int size()
+    {
+        return ids.size();
+    }
+
+
+    /**
+     * Adds a category unless another thread just did
+     *
+     * @param name
+     *            the category name
+     * @return its id
+     */
+    private synchronized int add(String name)
+    {
+        Integer id = ids.get(name);
+        if (id != null)
+        {
+            return id;
+        }
+
+        String[] grown = size < names.length ? names : Arrays.copyOf(names, names.length * 2);
+        grown[size] = name;
+        // the volatile write publishes the name before its id is handed out
+        names = grown;
+        ids.put(name, size);
+        return size++;
+    }
+}
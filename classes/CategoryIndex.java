@@ -0,0 +1,236 @@
+package classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An inverted index from category name to the rows of a question bank that
+ * belong to it, kept separately for every point value. It is used to build
+ * boards where each column is a single category with one question for every
+ * row of the board. The index for a point value is built the first time that
+ * point value is used, and the list of categories that cover a whole ladder of
+ * point values is worked out once per ladder.
+ */
+public class CategoryIndex
+{
+    private QuestionBank                                       bank;
+    private ConcurrentHashMap<Integer, HashMap<String, int[]>> pointIndexes;
+    private ConcurrentHashMap<String, String[]>                ladderCategories;
+
+    /**
+     * Creates a category index over the given question bank
+     *
+     * @param bank
+     *            the question bank to index
+     */
+    public CategoryIndex(QuestionBank bank)
+    {
+        this.bank = bank;
+        pointIndexes = new ConcurrentHashMap<Integer, HashMap<String, int[]>>();
+        ladderCategories = new ConcurrentHashMap<String, String[]>();
+    }
+
+
+    /**
+     * Returns the rows of the question bank in a category for a point value
+     *
+     * @param points
+     *            the point value
+     * @param category
+     *            the category name
+     * @return the rows in that category, empty if there are none
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    public int[] getRows(int points, String category)
+        throws IOException
+    {
+        int[] rows = getPointIndex(points).get(category);
+        return rows == null ? new int[0] : rows;
+    }
+
+
+    /**
+     * Returns every category that has at least one question for each of the
+     * given point values
+     *
+     * @param pointValues
+     *            the point value ladder of a board
+     * @return the categories that can fill a whole column
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    public String[] getCategories(int[] pointValues)
+        throws IOException
+    {
+        String key = Arrays.toString(pointValues);
+        String[] categories = ladderCategories.get(key);
+        if (categories != null)
+        {
+            return categories;
+        }
+
+        // start from the point value with the fewest categories and keep the
+        // ones that every other point value has too
+        HashMap<String, int[]> smallest = null;
+        for (int points : pointValues)
+        {
+            HashMap<String, int[]> index = getPointIndex(points);
+            if (smallest == null || index.size() < smallest.size())
+            {
+                smallest = index;
+            }
+        }
+
+        ArrayList<String> found = new ArrayList<String>();
+        for (String category : smallest.keySet())
+        {
+            boolean complete = true;
+            for (int points : pointValues)
+            {
+                if (!getPointIndex(points).containsKey(category))
+                {
+                    complete = false;
+                    break;
+                }
+            }
+
+            if (complete)
+            {
+                found.add(category);
+            }
+        }
+
+        categories = found.toArray(new String[0]);
+        ladderCategories.put(key, categories);
+        return categories;
+    }
+
+
+    /**
+     * Picks distinct random categories that each cover the whole ladder of
+     * point values. If there are not enough such categories, all of them are
+     * returned.
+     *
+     * @param pointValues
+     *            the point value ladder of a board
+     * @param count
+     *            how many categories are wanted
+     * @return the chosen categories
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    public String[] pickCategories(int[] pointValues, int count)
+        throws IOException
+    {
+        String[] categories = getCategories(pointValues);
+        RowSampler sampler = new RowSampler(categories.length);
+
+        String[] picked = new String[Math.min(count, categories.length)];
+        for (int i = 0; i < picked.length; i++)
+        {
+            picked[i] = categories[sampler.next()];
+        }
+        return picked;
+    }
+
+
+    /**
+     * Picks a random row of a category for a point value
+     *
+     * @param points
+     *            the point value
+     * @param category
+     *            the category name
+     * @return a random row in that category
+     * @throws IOException
+     *             if the question bank cannot be read or the category has no
+     *             questions worth that many points
+     */
+    public int pickRow(int points, String category)
+        throws IOException
+    {
+        int[] rows = getRows(points, category);
+        if (rows.length == 0)
+        {
+            throw new IOException("No questions in " + category + " worth " + points + " points");
+        }
+        return rows[ThreadLocalRandom.current().nextInt(rows.length)];
+    }
+
+
+    /**
+     * Returns the category to rows map for a point value, building it from the
+     * question bank the first time
+     *
+     * @param points
+     *            the point value
+     * @return the rows of each category
+     * @throws IOException
+     *             if the question bank cannot be read
+     */
+    private HashMap<String, int[]> getPointIndex(int points)
+        throws IOException
+    {
+        HashMap<String, int[]> index = pointIndexes.get(points);
+        if (index != null)
+        {
+            return index;
+        }
+
+        synchronized (this)
+        {
+            index = pointIndexes.get(points);
+            if (index == null)
+            {
+                index = buildPointIndex(bank.getCategories(points));
+                pointIndexes.put(points, index);
+            }
+            return index;
+        }
+    }
+
+
+    /**
+     * Groups rows by category
+     *
+     * @param categories
+     *            the category of each row
+     * @return the rows of each category in ascending order
+     */
+    private static HashMap<String, int[]> buildPointIndex(String[] categories)
+    {
+        HashMap<String, int[]> counts = new HashMap<String, int[]>();
+        for (String category : categories)
+        {
+            int[] count = counts.get(category);
+            if (count == null)
+            {
+                counts.put(category, new int[] { 1 });
+            }
+            else
+            {
+                count[0]++;
+            }
+        }
+
+        HashMap<String, int[]> index = new HashMap<String, int[]>(counts.size() * 2);
+        for (String category : counts.keySet())
+        {
+            index.put(category, new int[counts.get(category)[0]]);
+            counts.get(category)[0] = 0;
+        }
+
+        for (int row = 0; row < categories.length; row++)
+        {
+            int[] fill = counts.get(categories[row]);
+            index.get(categories[row])[fill[0]++] = row;
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,248 @@
+package classes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays whole games against a GameServer started in the same process, to try
+ * the server out locally and to load test it. Every simulated player has its
+ * own connection and plays by the protocol: on its turn it picks a random open
+ * card, it buzzes for every question and it answers with a guess when it wins
+ * the buzz.
+ *
+ * Run it with: rooms [players per room]
+ */
+public class ClientSimulator
+{
+    private int           port;
+    private AtomicInteger gamesOver;
+    private AtomicInteger errors;
+    private AtomicLong    messages;
+
+    /**
+     * Creates a simulator for a server
+     *
+     * @param port
+     *            the port of the server
+     */
+    public ClientSimulator(int port)
+    {
+        this.port = port;
+        gamesOver = new AtomicInteger();
+        errors = new AtomicInteger();
+        messages = new AtomicLong();
+    }
+
+
+    /**
+     * Plays one game in each room with the given number of players, and waits
+     * until every player has seen the game end
+     *
+     * @param rooms
+     *            the number of rooms
+     * @param players
+     *            the number of players in each room
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public void play(int rooms, int players)
+        throws InterruptedException
+    {
+        ExecutorService clients = GameServer.newConnectionExecutor();
+        CountDownLatch done = new CountDownLatch(rooms * players);
+
+        for (int room = 0; room < rooms; room++)
+        {
+            for (int player = 0; player < players; player++)
+            {
+                String roomName = "room" + room;
+                String name = "player" + player;
+                clients.execute(() -> {
+                    try
+                    {
+                        playGame(roomName, name);
+                    }
+                    catch (IOException ex)
+                    {
+                        errors.incrementAndGet();
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                });
+            }
+        }
+
+        done.await();
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Returns the number of games that were played to the end. Every player
+     * counts the end of its game once.
+     *
+     * @return the number of players that saw their game end
+     */
+    public int getGamesOver()
+    {
+        return gamesOver.get();
+    }
+
+
+    /**
+     * Returns the number of error replies and failed connections
+     *
+     * @return the number of errors
+     */
+    public int getErrors()
+    {
+        return errors.get();
+    }
+
+
+    /**
+     * Returns the number of lines received from the server
+     *
+     * @return the number of messages
+     */
+    public long getMessages()
+    {
+        return messages.get();
+    }
+
+
+    /**
+     * Connects one player and plays until the game is over
+     *
+     * @param room
+     *            the room to join
+     * @param name
+     *            the name of the player
+     * @throws IOException
+     *             if the connection fails
+     */
+    private void playGame(String room, String name)
+        throws IOException
+    {
+        Socket socket = new Socket("localhost", port);
+        try
+        {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+            ArrayList<String> openCards = new ArrayList<String>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            out.println("JOIN " + room + " " + name);
+
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                messages.incrementAndGet();
+                String[] words = line.split(" ", 4);
+
+                switch (words[0])
+                {
+                    case "CARD":
+                        if (words[3].startsWith("OPEN"))
+                        {
+                            openCards.add(words[1] + " " + words[2]);
+                        }
+                        break;
+                    case "TURN":
+                        if (words[1].equals(name) && !openCards.isEmpty())
+                        {
+                            out.println("PICK " + openCards.get(random.nextInt(openCards.size())));
+                        }
+                        break;
+                    case "QUESTION":
+                        openCards.remove(words[1] + " " + words[2]);
+                        out.println("BUZZ");
+                        break;
+                    case "BUZZED":
+                        if (words[1].equals(name))
+                        {
+                            out.println("ANSWER " + (random.nextBoolean() ? "yes" : "no"));
+                        }
+                        break;
+                    case "ERROR":
+                        errors.incrementAndGet();
+                        break;
+                    case "OVER":
+                        gamesOver.incrementAndGet();
+                        out.println("QUIT");
+                        break;
+                    default:
+                        break;
+                }
+
+                if (words[0].equals("BYE"))
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+
+    /**
+     * Starts a server on a free port, plays the games and prints how long they
+     * took
+     *
+     * @param args
+     *            the number of rooms and the number of players in each room
+     * @throws IOException
+     *             if the server cannot be started
+     * @throws InterruptedException
+     *             if interrupted while playing
+     */
+    public static void main(String[] args)
+        throws IOException, InterruptedException
+    {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        QuestionLibrary library = JeopardyGame.getLibrary();
+        BoardBuilder builder = library.newBuilder(BoardSpec.standard(library.getBank()));
+
+        GameServer server = new GameServer(builder, library.getStore());
+        server.start(0);
+
+        long start = System.nanoTime();
+        ClientSimulator simulator = new ClientSimulator(server.getPort());
+        simulator.play(rooms, players);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d rooms, %d players each: %d of %d players saw their game end, "
+            + "%d errors, %d messages in %.2f s (%.0f messages/s)%n",
+            rooms, players, simulator.getGamesOver(), rooms * players, simulator.getErrors(),
+            simulator.getMessages(), seconds, simulator.getMessages() / seconds);
+        QuestionCache cache = server.getStore().getBank().getCache();
+        System.out.printf("%d rooms open, %d of %d questions cached: %d hits, %d misses, "
+            + "%d evictions%n", server.getRoomCount(), cache.size(), server.getStore().size(),
+            cache.getHitCount(), cache.getMissCount(), cache.getEvictionCount());
+
+        server.stop();
+    }
+}
@@ -0,0 +1,213 @@
+package classes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The board of one room, kept as plain ints and bits instead of Card objects.
+ * Every card is a question id from a QuestionStore, at index row * columns +
+ * column. Whether a card was played and whether it was answered correctly are
+ * two bits, so a standard board of 25 cards costs a few hundred bytes while
+ * the question text is shared by all rooms through the store.
+ *
+ * A board is not thread safe; the room that owns it guards it with its lock.
+ */
+public class CompactBoard
+{
+    private int[]  pointValues;
+    private int    columns;
+    private int[]  ids;
+    private BitSet played;
+    private BitSet correct;
+
+    /**
+     * Creates a board where no card was played yet
+     *
+     * @param pointValues
+     *            the point value of each row, shared and not changed
+     * @param columns
+     *            the number of columns
+     * @param ids
+     *            the question id of each card, row after row
+     */
+    public CompactBoard(int[] pointValues, int columns, int[] ids)
+    {
+        if (ids.length != pointValues.length * columns)
+        {
+            throw new IllegalArgumentException(
+                ids.length + " ids for " + pointValues.length + " rows of " + columns);
+        }
+
+        this.pointValues = pointValues;
+        this.columns = columns;
+        this.ids = ids;
+        played = new BitSet(ids.length);
+        correct = new BitSet(ids.length);
+    }
+
+
+    /**
+     * Returns the number of cards on the board
+     *
+     * @return rows times columns
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+
+    /**
+     * Returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int getColumns()
+    {
+        return columns;
+    }
+
+
+    /**
+     * Returns the point value of the row a card is in
+     *
+     * @param index
+     *            the index of the card
+     * @return its point value
+     */
+    public int getPoints(int index)
+    {
+        return pointValues[index / columns];
+    }
+
+
+    /**
+     * Returns the column a card is in
+     *
+     * @param index
+     *            the index of the card
+     * @return its column, starting at 0
+     */
+    public int getColumn(int index)
+    {
+        return index % columns;
+    }
+
+
+    /**
+     * Finds a card by its point value and column
+     *
+     * @param points
+     *            the point value of its row
+     * @param column
+     *            its column, starting at 0
+     * @return the index of the card
+     * @throws IllegalArgumentException
+     *             if there is no such card
+     */
+    public int getIndex(int points, int column)
+    {
+        int row = -1;
+        for (int i = 0; i < pointValues.length && row < 0; i++)
+        {
+            if (pointValues[i] == points)
+            {
+                row = i;
+            }
+        }
+        if (row < 0 || column < 0 || column >= columns)
+        {
+            throw new IllegalArgumentException("no card " + points + " " + column);
+        }
+        return row * columns + column;
+    }
+
+
+    /**
+     * Returns the question id of a card
+     *
+     * @param index
+     *            the index of the card
+     * @return the id of its question in the QuestionStore
+     */
+    public int getId(int index)
+    {
+        return ids[index];
+    }
+
+
+    /**
+     * Returns if a card was played
+     *
+     * @param index
+     *            the index of the card
+     * @return true if the card was picked
+     */
+    public boolean isPlayed(int index)
+    {
+        return played.get(index);
+    }
+
+
+    /**
+     * Marks a card as played if it was not
+     *
+     * @param index
+     *            the index of the card
+     * @return true if the card was open and is now played
+     */
+    public boolean claim(int index)
+    {
+        if (played.get(index))
+        {
+            return false;
+        }
+        played.set(index);
+        return true;
+    }
+
+
+    /**
+     * Records that a card was answered correctly
+     *
+     * @param index
+     *            the index of the card
+     */
+    public void setCorrect(int index)
+    {
+        correct.set(index);
+    }
+
+
+    /**
+     * Returns if a card was answered correctly
+     *
+     * @param index
+     *            the index of the card
+     * @return true if it was answered correctly
+     */
+    public boolean isCorrect(int index)
+    {
+        return correct.get(index);
+    }
+
+
+    /**
+     * Returns the number of cards that were not played yet
+     *
+     * @return the number of open cards
+     */
+    public int getRemaining()
+    {
+        return ids.length - played.cardinality();
+    }
+
+
+    /**
+     * @return the question ids of the board, row after row
+     */
+    public String toString()
+    {
+        return Arrays.toString(ids);
+    }
+}
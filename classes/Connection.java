@@ -0,0 +1,156 @@
+package classes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The sending side of a player's connection to the GameServer. Lines are put
+ * on a bounded queue and written to the socket by the connection's own writer
+ * task, so sending never blocks: a room can tell all its players what
+ * happened while holding its lock, and a player that stops reading only
+ * stalls its own writer. A connection whose socket fails, or that falls
+ * MAX_QUEUED lines behind, is dropped by closing its socket, which also ends
+ * the reading side of the connection.
+ */
+public class Connection
+{
+    public static final int             MAX_QUEUED = 4096;
+
+    // put on the queue by close, compared by identity
+    private static final String         END        = new String();
+
+    private Socket                      socket;
+    private PrintWriter                 out;
+    private LinkedBlockingQueue<String> queue;
+    private volatile boolean            open;
+
+    /**
+     * Creates the connection and starts its writer task
+     *
+     * @param socket
+     *            the socket of the connection
+     * @param writers
+     *            the executor to run the writer task on
+     * @throws IOException
+     *             if the socket cannot be written to
+     */
+    public Connection(Socket socket, Executor writers)
+        throws IOException
+    {
+        this.socket = socket;
+        out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+        queue = new LinkedBlockingQueue<String>(MAX_QUEUED);
+        open = true;
+        writers.execute(() -> write());
+    }
+
+
+    /**
+     * Queues a line to send. A connection that is too far behind is dropped.
+     *
+     * @param line
+     *            the line, without a line break
+     * @return false if the connection was closed or dropped
+     */
+    public boolean send(String line)
+    {
+        if (!open)
+        {
+            return false;
+        }
+        if (!queue.offer(line))
+        {
+            abort();
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Checks if lines can still be sent
+     *
+     * @return false once the connection is closed or dropped
+     */
+    public boolean isOpen()
+    {
+        return open;
+    }
+
+
+    /**
+     * Closes the connection once the lines already queued have been written
+     */
+    public void close()
+    {
+        if (open)
+        {
+            open = false;
+            if (!queue.offer(END))
+            {
+                abort();
+            }
+        }
+    }
+
+
+    /**
+     * Drops the connection right away, without writing what is still queued
+     */
+    public void abort()
+    {
+        open = false;
+        try
+        {
+            socket.close();
+        }
+        catch (IOException ex)
+        {
+            // already closed
+        }
+    }
+
+
+    /**
+     * Writes queued lines until the connection is closed or fails. The socket
+     * is flushed whenever the queue runs empty, so a burst of lines goes out
+     * together.
+     */
+    private void write()
+    {
+        try
+        {
+            while (true)
+            {
+                String line = queue.take();
+                if (line == END)
+                {
+                    out.flush();
+                    break;
+                }
+
+                out.println(line);
+                // checkError flushes, and tells if any write failed
+                if (queue.isEmpty() && out.checkError())
+                {
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // the server is stopping
+        }
+        finally
+        {
+            abort();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package classes;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Gives random access to the question files in directories such as
+ * assets/jeopardy-questions/main. Every point value file is memory mapped
+ * together with the byte offset of each of its lines, so a card is read
+ * without scanning the whole file. The offsets are saved in a sidecar index
+ * file next to the csv (for example 100.idx next to 100.csv) so they only have
+ * to be built once.
+ */
+public class CsvQuestionBank
+    implements QuestionBank
+{
+    private TreeMap<Integer, File>          csvFiles;
+    private TreeMap<Integer, MappedCsvFile> files;
+
+    /**
+     * Creates a question bank for the csv files in the given directories. The
+     * directories are listed right away to find out which point values have
+     * questions, but the files themselves are only mapped the first time a
+     * point value is used. If two directories have a file for the same point
+     * value the first one wins.
+     *
+     * @param directories
+     *            the directories containing the point value csv files
+     */
+    public CsvQuestionBank(String... directories)
+    {
+        csvFiles = new TreeMap<Integer, File>();
+        files = new TreeMap<Integer, MappedCsvFile>();
+
+        for (String directory : directories)
+        {
+            File[] list = new File(directory).listFiles();
+            if (list == null)
+            {
+                continue;
+            }
+
+            for (File file : list)
+            {
+                String name = file.getName();
+                if (name.matches("[0-9]+\\.csv") && file.length() > 0)
+                {
+                    int points = Integer.parseInt(name.substring(0, name.length() - 4));
+                    if (!csvFiles.containsKey(points))
+                    {
+                        csvFiles.put(points, file);
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the point values that have at least one question
+     *
+     * @return the point values in ascending order
+     */
+    public NavigableSet<Integer> getPointValues()
+    {
+        return Collections.unmodifiableNavigableSet(csvFiles.navigableKeySet());
+    }
+
+
+    /**
+     * Returns the number of questions stored for the given point value
+     *
+     * @param points
+     *            the point value
+     * @return the number of questions worth that many points
+     * @throws IOException
+     *             if the csv file cannot be read
+     */
+    public int getQuestionCount(int points)
+        throws IOException
+    {
+        if (!csvFiles.containsKey(points))
+        {
+            return 0;
+        }
+        return getFile(points).getRowCount();
+    }
+
+
+    /**
+     * Decodes the card on the given line of the csv file for a point value
+     *
+     * @param points
+     *            the point value of the card
+     * @param row
+     *            the line number of the card in the file, starting at 0
+     * @return the card on that line
+     * @throws IOException
+     *             if the csv file cannot be read
+     */
+    public Card getCard(int points, int row)
+        throws IOException
+    {
+        return getFile(points).getCard(row);
+    }
+
+
+    /**
+     * Returns the category of every question worth the given number of points
+     *
+     * @param points
+     *            the point value
+     * @return the category of each row, indexed by row
+     * @throws IOException
+     *             if the csv file cannot be read
+     */
+    public String[] getCategories(int points)
+        throws IOException
+    {
+        if (!csvFiles.containsKey(points))
+        {
+            return new String[0];
+        }
+        return getFile(points).getCategories();
+    }
+
+
+    /**
+     * Returns a fingerprint of the csv files: their point values, lengths and
+     * modification times, the same that tell a MappedCsvFile its sidecar
+     * index is out of date. They are taken when the bank maps each file, so
+     * the fingerprint describes the questions the bank reads even after a
+     * file has changed on disk. Every file is mapped first.
+     *
+     * @return the fingerprint of the csv files
+     * @throws IOException
+     *             if a csv file cannot be read
+     */
+    public long getFingerprint()
+        throws IOException
+    {
+        long fingerprint = csvFiles.size();
+        for (int points : csvFiles.keySet())
+        {
+            MappedCsvFile file = getFile(points);
+            fingerprint = fingerprint * 31 + points;
+            fingerprint = fingerprint * 31 + file.getLength();
+            fingerprint = fingerprint * 31 + file.getLastModified();
+        }
+        return fingerprint;
+    }
+
+
+    /**
+     * Returns the mapped csv file for a point value, mapping it the first time
+     * it is used
+     *
+     * @param points
+     *            the point value
+     * @return the mapped file holding questions worth that many points
+     * @throws IOException
+     *             if the csv file cannot be read
+     */
+    private synchronized MappedCsvFile getFile(int points)
+        throws IOException
+    {
+        MappedCsvFile file = files.get(points);
+        if (file != null)
+        {
+            return file;
+        }
+
+        File csv = csvFiles.get(points);
+        if (csv == null || !csv.isFile())
+        {
+            throw new FileNotFoundException(points + ".csv");
+        }
+
+        file = new MappedCsvFile(csv, new File(csv.getParentFile(), points + ".idx"));
+        files.put(points, file);
+        return file;
+    }
+}
@@ -0,0 +1,186 @@
+package classes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Reads records from csv text as described by RFC 4180, one record at a time,
+ * so a dump of any size is read in constant memory. Fields are separated by
+ * commas and records by CRLF, LF or CR. A field in double quotes can hold
+ * commas, line breaks and quotes, which are written as two quotes. Text after
+ * the closing quote of a field is kept rather than rejected, as some dumps
+ * are not quite well formed.
+ */
+public class CsvReader
+    implements Closeable
+{
+    private Reader        in;
+    private char[]        buffer;
+    private int           position;
+    private int           limit;
+    private StringBuilder field;
+    private long          records;
+
+    /**
+     * Creates a reader over csv text
+     *
+     * @param in
+     *            the text to read, which the csv reader buffers itself
+     */
+    public CsvReader(Reader in)
+    {
+        this.in = in;
+        buffer = new char[1 << 16];
+        field = new StringBuilder(256);
+    }
+
+
+    /**
+     * Reads the next record
+     *
+     * @param fields
+     *            the list to put the fields of the record in; it is cleared
+     *            first
+     * @return true if a record was read, false at the end of the text
+     * @throws IOException
+     *             if the text cannot be read or a quoted field is not closed
+     */
+    public boolean readRecord(List<String> fields)
+        throws IOException
+    {
+        fields.clear();
+        int c = read();
+        if (c < 0)
+        {
+            return false;
+        }
+
+        while (true)
+        {
+            field.setLength(0);
+            if (c == '"')
+            {
+                while (true)
+                {
+                    c = read();
+                    if (c < 0)
+                    {
+                        throw new IOException("Unclosed quote in record " + (records + 1));
+                    }
+                    if (c == '"')
+                    {
+                        c = read();
+                        if (c != '"')
+                        {
+                            break;
+                        }
+                    }
+                    field.append((char)c);
+                }
+            }
+            while (c >= 0 && c != ',' && c != '\n' && c != '\r')
+            {
+                field.append((char)c);
+                c = read();
+            }
+            fields.add(field.toString());
+
+            if (c == ',')
+            {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && peek() == '\n')
+            {
+                read();
+            }
+            records++;
+            return true;
+        }
+    }
+
+
+    /**
+     * Returns the number of records read so far
+     *
+     * @return the number of records
+     */
+    public long getRecordCount()
+    {
+        return records;
+    }
+
+
+    /**
+     * Closes the text being read
+     *
+     * @throws IOException
+     *             if it cannot be closed
+     */
+    public void close()
+        throws IOException
+    {
+        in.close();
+    }
+
+
+    /**
+     * Reads the next character, filling the buffer when it is empty
+     *
+     * @return the character, or -1 at the end of the text
+     * @throws IOException
+     *             if the text cannot be read
+     */
+    private int read()
+        throws IOException
+    {
+        if (position == limit && !fill())
+        {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+
+    /**
+     * Returns the next character without reading it
+     *
+     * @return the character, or -1 at the end of the text
+     * @throws IOException
+     *             if the text cannot be read
+     */
+    private int peek()
+        throws IOException
+    {
+        if (position == limit && !fill())
+        {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+
+    /**
+     * Refills the buffer from the text
+     *
+     * @return false at the end of the text
+     * @throws IOException
+     *             if the text cannot be read
+     */
+    private boolean fill()
+        throws IOException
+    {
+        int read;
+        do
+        {
+            read = in.read(buffer, 0, buffer.length);
+        }
+        while (read == 0);
+
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,36 @@
+package classes;
+
+/**
+ * Accepts an answer only if it is exactly the card's answer, ignoring case.
+ * This is how answers were judged before FuzzyAnswerMatcher.
+ */
+public class ExactAnswerMatcher
+    implements AnswerMatcher
+{
+    /**
+     * Keeps the answer as it is
+     *
+     * @param answer
+     *            the correct answer
+     * @return the answer as the only accepted form
+     */
+    public String[] prepare(String answer)
+    {
+        return new String[] { answer };
+    }
+
+
+    /**
+     * Compares the submitted answer with the answer, ignoring case
+     *
+     * @param prepared
+     *            the prepared correct answer
+     * @param submitted
+     *            the answer the player typed
+     * @return true if they are equal ignoring case
+     */
+    public boolean matches(String[] prepared, String submitted)
+    {
+        return submitted.equalsIgnoreCase(prepared[0]);
+    }
+}
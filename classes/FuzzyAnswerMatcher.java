@@ -0,0 +1,320 @@
+package classes;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+
+/**
+ * Accepts answers that are close enough to the card's answer. Both answers are
+ * normalized first: markup, accents, case, punctuation and leading articles
+ * are dropped, and "what is" or "who was" in front of the submitted answer is
+ * ignored. Words in parentheses in the card's answer are optional, so "(Wilt)
+ * Chamberlain" accepts both "Chamberlain" and "Wilt Chamberlain". What is left
+ * may differ by a few typing mistakes, measured with a banded Levenshtein
+ * distance, as long as any numbers in the answer are exactly the same.
+ */
+public class FuzzyAnswerMatcher
+    implements AnswerMatcher
+{
+    private static final String[] ARTICLES  = { "the ", "a ", "an " };
+    private static final String[] QUESTIONS = { "what is ", "what are ", "what was ",
+        "what were ", "who is ", "who are ", "who was ", "who were ", "where is ", "where are ",
+        "where was ", "whats ", "whos ", "wheres " };
+
+    private int                   lettersPerEdit;
+    private int                   maxEdits;
+
+    /**
+     * Creates a matcher that allows one typing mistake for every five
+     * letters, up to three
+     */
+    public FuzzyAnswerMatcher()
+    {
+        this(5, 3);
+    }
+
+
+    /**
+     * Creates a matcher with the given tolerance for typing mistakes
+     *
+     * @param lettersPerEdit
+     *            how many letters of the answer earn one allowed mistake
+     * @param maxEdits
+     *            the most mistakes allowed for any answer
+     */
+    public FuzzyAnswerMatcher(int lettersPerEdit, int maxEdits)
+    {
+        this.lettersPerEdit = lettersPerEdit;
+        this.maxEdits = maxEdits;
+    }
+
+
+    /**
+     * Normalizes the correct answer, once with the words in parentheses left
+     * out and once with them kept
+     *
+     * @param answer
+     *            the correct answer
+     * @return the accepted normalized forms
+     */
+    public String[] prepare(String answer)
+    {
+        String text = stripMarkup(answer);
+
+        ArrayList<String> forms = new ArrayList<String>();
+        addForm(forms, normalize(text.replaceAll("\\([^)]*\\)", " ")));
+        addForm(forms, normalize(text));
+
+        if (forms.isEmpty())
+        {
+            forms.add(answer.trim().toLowerCase());
+        }
+        return forms.toArray(new String[0]);
+    }
+
+
+    /**
+     * Checks a submitted answer against the prepared forms of the correct
+     * answer
+     *
+     * @param prepared
+     *            the result of prepare() for the correct answer
+     * @param submitted
+     *            the answer the player typed
+     * @return true if the submitted answer is close enough to one of the forms
+     */
+    public boolean matches(String[] prepared, String submitted)
+    {
+        String answer = stripPrefix(normalize(stripMarkup(submitted)), QUESTIONS);
+        answer = stripPrefix(answer, ARTICLES);
+        if (answer.isEmpty())
+        {
+            return false;
+        }
+
+        for (String form : prepared)
+        {
+            if (form.equals(answer))
+            {
+                return true;
+            }
+            if (!digits(form).equals(digits(answer)))
+            {
+                continue;
+            }
+
+            int allowed = Math.min(maxEdits, form.length() / lettersPerEdit);
+            if (allowed > 0 && distance(form, answer, allowed) <= allowed)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Lower cases the text and removes accents, punctuation, extra spaces and
+     * a leading article. Periods and apostrophes are dropped so "H.J." and
+     * "HJ" match, other punctuation separates words, and & becomes "and".
+     *
+     * @param text
+     *            the text to normalize
+     * @return the normalized text
+     */
+    static String normalize(String text)
+    {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean space = true;
+
+        for (int i = 0; i < decomposed.length(); i++)
+        {
+            char ch = decomposed.charAt(i);
+            if (Character.getType(ch) == Character.NON_SPACING_MARK || ch == '.' || ch == '\''
+                || ch == '\u2019')
+            {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(ch))
+            {
+                out.append(Character.toLowerCase(ch));
+                space = false;
+            }
+            else if (ch == '&')
+            {
+                out.append(space ? "and " : " and ");
+                space = true;
+            }
+            else if (!space)
+            {
+                out.append(' ');
+                space = true;
+            }
+        }
+
+        if (out.length() > 0 && out.charAt(out.length() - 1) == ' ')
+        {
+            out.setLength(out.length() - 1);
+        }
+
+        return stripPrefix(out.toString(), ARTICLES);
+    }
+
+
+    /**
+     * Computes the Levenshtein distance between two strings, but only inside a
+     * band of the given width around the diagonal. Any distance above the
+     * limit is reported as limit + 1.
+     *
+     * @param a
+     *            the first string
+     * @param b
+     *            the second string
+     * @param limit
+     *            the largest distance that matters
+     * @return the distance, or limit + 1 if it is larger than the limit
+     */
+    static int distance(String a, String b, int limit)
+    {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit)
+        {
+            return limit + 1;
+        }
+
+        int over = limit + 1;
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++)
+        {
+            previous[j] = j <= limit ? j : over;
+        }
+
+        for (int i = 1; i <= n; i++)
+        {
+            int from = Math.max(1, i - limit);
+            int to = Math.min(m, i + limit);
+
+            current[0] = i <= limit ? i : over;
+            if (from > 1)
+            {
+                current[from - 1] = over;
+            }
+
+            int best = current[0];
+            for (int j = from; j <= to; j++)
+            {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost,
+                    Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(value, over);
+                best = Math.min(best, current[j]);
+            }
+            if (to < m)
+            {
+                current[to + 1] = over;
+            }
+
+            if (best > limit)
+            {
+                return over;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[m];
+    }
+
+
+    /**
+     * Adds a normalized form to the list if it is new and not empty
+     *
+     * @param forms
+     *            the accepted forms so far
+     * @param form
+     *            the form to add
+     */
+    private static void addForm(ArrayList<String> forms, String form)
+    {
+        if (!form.isEmpty() && !forms.contains(form))
+        {
+            forms.add(form);
+        }
+    }
+
+
+    /**
+     * Removes html style tags and the most common entities found in the
+     * question files
+     *
+     * @param text
+     *            the text to clean up
+     * @return the text without markup
+     */
+    private static String stripMarkup(String text)
+    {
+        if (text.indexOf('<') < 0 && text.indexOf('&') < 0)
+        {
+            return text;
+        }
+
+        return text.replaceAll("<[^>]*>", " ")
+            .replace("&amp;", "&")
+            .replace("&quot;", "\"")
+            .replace("&nbsp;", " ");
+    }
+
+
+    /**
+     * Removes the first matching prefix from already normalized text
+     *
+     * @param text
+     *            the normalized text
+     * @param prefixes
+     *            the prefixes to look for
+     * @return the text without the prefix
+     */
+    private static String stripPrefix(String text, String[] prefixes)
+    {
+        for (String prefix : prefixes)
+        {
+            if (text.startsWith(prefix) && text.length() > prefix.length())
+            {
+                return text.substring(prefix.length());
+            }
+        }
+        return text;
+    }
+
+
+    /**
+     * Returns only the digits of the text
+     *
+     * @param text
+     *            the text
+     * @return the digits in order
+     */
+    private static String digits(String text)
+    {
+        StringBuilder out = null;
+        for (int i = 0; i < text.length(); i++)
+        {
+            char ch = text.charAt(i);
+            if (ch >= '0' && ch <= '9')
+            {
+                if (out == null)
+                {
+                    out = new StringBuilder();
+                }
+                out.append(ch);
+            }
+        }
+        return out == null ? "" : out.toString();
+    }
+}
@@ -0,0 +1,333 @@
+package classes;
+
+import java.util.ArrayList;
+
+/**
+ * The rules of a game, without any user interface. A turn goes: the current
+ * player picks an open card, then answers it or passes, and the turn moves
+ * to the next player. The engine checks every move, changes the
+ * JeopardyGame, its cards and its players, and tells its listeners what
+ * happened, so a window can show the game and a simulation can play it the
+ * same way.
+ *
+ * An engine belongs to the thread that plays it, such as the Swing event
+ * thread for a window, and is not safe to use from several threads at once.
+ */
+public class GameEngine
+{
+    private JeopardyGame        game;
+    private Card                open;
+    private int                 remaining;
+    private ArrayList<Listener> listeners;
+
+    /**
+     * Creates an engine for a game, which may be partly played already. A
+     * card that was picked but never answered or passed, as a crash in the
+     * middle of a turn leaves one, is put back on the board to be picked
+     * again.
+     *
+     * @param game
+     *            the game to play
+     */
+    public GameEngine(JeopardyGame game)
+    {
+        this.game = game;
+        listeners = new ArrayList<Listener>();
+
+        for (Card[] row : game.getQuestions().values())
+        {
+            for (Card card : row)
+            {
+                game.reopenCard(card);
+                if (card.getVisibility())
+                {
+                    remaining++;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the game being played
+     *
+     * @return the game
+     */
+    public JeopardyGame getGame()
+    {
+        return game;
+    }
+
+
+    /**
+     * Starts telling a listener about the game
+     *
+     * @param listener
+     *            the listener
+     */
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Stops telling a listener about the game
+     *
+     * @param listener
+     *            the listener
+     */
+    public void removeListener(Listener listener)
+    {
+        listeners.remove(listener);
+    }
+
+
+    /**
+     * Returns the player whose turn it is
+     *
+     * @return the current player
+     */
+    public Player getCurrentPlayer()
+    {
+        return game.getCurrentPlayer();
+    }
+
+
+    /**
+     * Returns the card that was picked and not answered yet
+     *
+     * @return the open card, or null if none is open
+     */
+    public Card getOpenCard()
+    {
+        return open;
+    }
+
+
+    /**
+     * Returns the number of cards that can still be picked
+     *
+     * @return the number of cards not played yet
+     */
+    public int getRemaining()
+    {
+        return remaining;
+    }
+
+
+    /**
+     * Returns if every card was played and answered
+     *
+     * @return true if the game is over
+     */
+    public boolean isOver()
+    {
+        return remaining == 0 && open == null;
+    }
+
+
+    /**
+     * Picks a card for the current player to answer
+     *
+     * @param card
+     *            a card of the game's board
+     * @return true if the card is now open, false if it was already played
+     * @throws IllegalStateException
+     *             if another card is open
+     */
+    public boolean pick(Card card)
+    {
+        if (open != null)
+        {
+            throw new IllegalStateException("a question is already open");
+        }
+        if (!game.openCard(card))
+        {
+            return false;
+        }
+
+        open = card;
+        remaining--;
+        for (Listener listener : listeners)
+        {
+            listener.cardOpened(card);
+        }
+        return true;
+    }
+
+
+    /**
+     * Picks a card by its place on the board
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card, starting at 0
+     * @return true if the card is now open, false if it was already played
+     * @throws IllegalArgumentException
+     *             if there is no such card
+     * @throws IllegalStateException
+     *             if another card is open
+     */
+    public boolean pick(int points, int column)
+    {
+        Card[] row = game.getQuestions(points);
+        if (row == null || column < 0 || column >= row.length)
+        {
+            throw new IllegalArgumentException("no card " + points + " " + column);
+        }
+        return pick(row[column]);
+    }
+
+
+    /**
+     * Answers the open card for the current player, who gains or loses its
+     * points, and moves the turn on
+     *
+     * @param answer
+     *            the answer given
+     * @return true if the answer is correct
+     * @throws IllegalStateException
+     *             if no card is open
+     */
+    public boolean answer(String answer)
+    {
+        Card card = getOpenOrFail();
+        boolean correct = game.submitAnswer(card, answer);
+        close(card, correct);
+        return correct;
+    }
+
+
+    /**
+     * Gives up the open card without answering it. The points do not change
+     * and the turn moves on.
+     *
+     * @throws IllegalStateException
+     *             if no card is open
+     */
+    public void pass()
+    {
+        Card card = getOpenOrFail();
+        game.passCard(card);
+        close(card, false);
+    }
+
+
+    /**
+     * Gives a player points or takes them away by hand
+     *
+     * @param player
+     *            a player of the game
+     * @param delta
+     *            the points to add, negative to take points away
+     */
+    public void adjustPoints(Player player, int delta)
+    {
+        game.adjustPoints(player, delta);
+    }
+
+
+    /**
+     * Starts a new game with the same players on a new board
+     *
+     * @return the engine of the new game
+     */
+    public GameEngine rematch()
+    {
+        return new GameEngine(game.rematch());
+    }
+
+
+    /**
+     * Returns the open card
+     *
+     * @return the open card
+     * @throws IllegalStateException
+     *             if no card is open
+     */
+    private Card getOpenOrFail()
+    {
+        if (open == null)
+        {
+            throw new IllegalStateException("no question is open");
+        }
+        return open;
+    }
+
+
+    /**
+     * Closes the open card, moves the turn on and tells the listeners
+     *
+     * @param card
+     *            the open card
+     * @param correct
+     *            true if it was answered correctly
+     */
+    private void close(Card card, boolean correct)
+    {
+        open = null;
+        game.getNextPlayer();
+
+        for (Listener listener : listeners)
+        {
+            listener.cardClosed(card, correct);
+            listener.turnChanged(game.getCurrentPlayer());
+            if (remaining == 0)
+            {
+                listener.gameOver();
+            }
+        }
+    }
+
+
+    /**
+     * Is told about the moves of a game. Every method does nothing unless it
+     * is overridden.
+     */
+    public interface Listener
+    {
+        /**
+         * A card was picked
+         *
+         * @param card
+         *            the card
+         */
+        default void cardOpened(Card card)
+        {
+        }
+
+
+        /**
+         * A card was answered or passed
+         *
+         * @param card
+         *            the card
+         * @param correct
+         *            true if it was answered correctly
+         */
+        default void cardClosed(Card card, boolean correct)
+        {
+        }
+
+
+        /**
+         * The turn moved to another player
+         *
+         * @param player
+         *            the player whose turn it is now
+         */
+        default void turnChanged(Player player)
+        {
+        }
+
+
+        /**
+         * The last card was closed
+         */
+        default void gameOver()
+        {
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package classes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only log of everything that changes a game, so a game can be
+ * rebuilt after a crash or looked over afterwards with a GameReplayer. Events
+ * are encoded into a memory buffer as they happen and written to the file in
+ * batches: a background thread writes and fsyncs whatever has piled up every
+ * few milliseconds, so recording an event never waits for the disk. A crash
+ * loses at most the last batch.
+ *
+ * The file starts with the int MAGIC and the int VERSION, followed by
+ * records. Each record is a type byte and its fields, where ints are varints,
+ * signed ints are zigzag varints and strings are a varint length followed by
+ * UTF-8 bytes:
+ *
+ * <pre>
+ * BOARD     columns, rows, by category (0 or 1), the points of every row,
+ *           then category, question and answer of every card, row by row
+ * PLAYER    username
+ * OPENED    points, column
+ * ANSWERED  points, column, player, correct (0 or 1), answer
+ * PASSED    points, column
+ * REOPENED  points, column
+ * ADJUSTED  player, signed points
+ * TURN      (nothing)
+ * </pre>
+ *
+ * Players are numbered in the order they were added. A BOARD record starts a
+ * new game; the records after it belong to that game.
+ */
+public class GameEventLog
+{
+    static final int                 MAGIC               = 0x4A4C4F47; // "JLOG"
+    static final int                 VERSION             = 1;
+
+    static final byte                BOARD               = 1;
+    static final byte                PLAYER              = 2;
+    static final byte                OPENED              = 3;
+    static final byte                ANSWERED            = 4;
+    static final byte                ADJUSTED            = 5;
+    static final byte                TURN                = 6;
+    static final byte                PASSED              = 7;
+    static final byte                REOPENED            = 8;
+
+    public static final long         DEFAULT_SYNC_MILLIS = 50;
+
+    private FileChannel              channel;
+    private ByteArrayOutputStream    pending;
+    private Object                   writeLock;
+    private ScheduledExecutorService syncer;
+    private long                     eventCount;
+    private long                     written;
+
+    /**
+     * Opens a log for appending, creating it if it does not exist, and syncs
+     * it every DEFAULT_SYNC_MILLIS
+     *
+     * @param file
+     *            the log file
+     * @throws IOException
+     *             if the file cannot be opened or is not an event log
+     */
+    public GameEventLog(Path file)
+        throws IOException
+    {
+        this(file, DEFAULT_SYNC_MILLIS);
+    }
+
+
+    /**
+     * Opens a log for appending, creating it if it does not exist
+     *
+     * @param file
+     *            the log file
+     * @param syncMillis
+     *            how often buffered events are written and synced
+     * @throws IOException
+     *             if the file cannot be opened or is not an event log
+     */
+    public GameEventLog(Path file, long syncMillis)
+        throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        pending = new ByteArrayOutputStream(8192);
+        writeLock = new Object();
+
+        if (channel.size() == 0)
+        {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+        }
+        else
+        {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < 8 || header.getInt() != MAGIC || header.getInt() != VERSION)
+            {
+                channel.close();
+                throw new IOException(file + " is not a game event log");
+            }
+        }
+        written = channel.size();
+        channel.position(written);
+
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(() -> {
+            try
+            {
+                sync();
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot write event log " + ex.getMessage() + " ***");
+            }
+        }, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Records the board of a new game
+     *
+     * @param spec
+     *            the layout of the board
+     * @param board
+     *            the cards of the board by point value
+     */
+    public synchronized void recordBoard(BoardSpec spec, TreeMap<Integer, Card[]> board)
+    {
+        start(BOARD);
+        writeVarInt(spec.getColumns());
+        writeVarInt(board.size());
+        pending.write(spec.isByCategory() ? 1 : 0);
+        for (int points : board.keySet())
+        {
+            writeVarInt(points);
+        }
+        for (Map.Entry<Integer, Card[]> row : board.entrySet())
+        {
+            for (Card card : row.getValue())
+            {
+                writeString(card.getCategory());
+                writeString(card.getQuestion());
+                writeString(card.getAnswer());
+            }
+        }
+    }
+
+
+    /**
+     * Records that a player joined the game
+     *
+     * @param username
+     *            the name of the player
+     */
+    public synchronized void recordPlayerAdded(String username)
+    {
+        start(PLAYER);
+        writeString(username);
+    }
+
+
+    /**
+     * Records that a card was opened
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card
+     */
+    public synchronized void recordCardOpened(int points, int column)
+    {
+        start(OPENED);
+        writeVarInt(points);
+        writeVarInt(column);
+    }
+
+
+    /**
+     * Records an answer and how it was judged
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card
+     * @param player
+     *            the number of the player that answered
+     * @param correct
+     *            true if the answer was judged correct
+     * @param answer
+     *            the answer as it was given
+     */
+    public synchronized void recordAnswer(int points, int column, int player, boolean correct,
+        String answer)
+    {
+        start(ANSWERED);
+        writeVarInt(points);
+        writeVarInt(column);
+        writeVarInt(player);
+        pending.write(correct ? 1 : 0);
+        writeString(answer);
+    }
+
+
+    /**
+     * Records that an opened card was given up without an answer
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card
+     */
+    public synchronized void recordCardPassed(int points, int column)
+    {
+        start(PASSED);
+        writeVarInt(points);
+        writeVarInt(column);
+    }
+
+
+    /**
+     * Records that a card left open by a crash was put back on the board
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card
+     */
+    public synchronized void recordCardReopened(int points, int column)
+    {
+        start(REOPENED);
+        writeVarInt(points);
+        writeVarInt(column);
+    }
+
+
+    /**
+     * Records points given or taken away by hand
+     *
+     * @param player
+     *            the number of the player
+     * @param delta
+     *            the points added, negative to take points away
+     */
+    public synchronized void recordPointsAdjusted(int player, int delta)
+    {
+        start(ADJUSTED);
+        writeVarInt(player);
+        writeVarInt((delta << 1) ^ (delta >> 31));
+    }
+
+
+    /**
+     * Records that the turn moved to the next player
+     */
+    public synchronized void recordTurnAdvanced()
+    {
+        start(TURN);
+    }
+
+
+    /**
+     * Returns the number of events recorded since the log was opened
+     *
+     * @return the number of events
+     */
+    public synchronized long getEventCount()
+    {
+        return eventCount;
+    }
+
+
+    /**
+     * Returns the length of the log including the events not written yet.
+     * A GameReplayer can start reading there to replay only what happens from
+     * now on.
+     *
+     * @return the offset the next event will be written at
+     */
+    public synchronized long getLength()
+    {
+        return written + pending.size();
+    }
+
+
+    /**
+     * Writes the buffered events to the file and waits until they are on the
+     * disk. Events recorded while this waits for the disk go into the next
+     * batch.
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void sync()
+        throws IOException
+    {
+        synchronized (writeLock)
+        {
+            byte[] batch;
+            synchronized (this)
+            {
+                if (pending.size() == 0)
+                {
+                    return;
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+                written += batch.length;
+            }
+
+            ByteBuffer out = ByteBuffer.wrap(batch);
+            while (out.hasRemaining())
+            {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+    }
+
+
+    /**
+     * Syncs the last events and closes the file
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void close()
+        throws IOException
+    {
+        syncer.shutdownNow();
+        sync();
+        channel.close();
+    }
+
+
+    /**
+     * Starts a record
+     *
+     * @param type
+     *            the type of the record
+     */
+    private void start(byte type)
+    {
+        pending.write(type);
+        eventCount++;
+    }
+
+
+    /**
+     * Writes a varint length followed by the UTF-8 bytes of a string
+     *
+     * @param str
+     *            the string to write
+     */
+    private void writeString(String str)
+    {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        pending.write(bytes, 0, bytes.length);
+    }
+
+
+    /**
+     * Writes an unsigned variable length int, seven bits per byte
+     *
+     * @param value
+     *            the value to write
+     */
+    private void writeVarInt(int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            pending.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        pending.write(value);
+    }
+}
@@ -0,0 +1,447 @@
+package classes;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds a game from a GameEventLog, to carry on after a crash or to look
+ * over what happened. The log is mapped and read straight through: every
+ * record is applied to the game as it is decoded, answers are scored as they
+ * were judged at the time rather than judged again, and the text of answers
+ * is skipped unless the events are printed.
+ *
+ * If the program stopped while a batch was being written, the log can end in
+ * a partial record. Replay stops before it, and truncate cuts it off so new
+ * events can be appended after the last whole record.
+ */
+public class GameReplayer
+{
+    private Path         file;
+    private boolean      print;
+    private long         eventCount;
+    private long         validLength;
+    private JeopardyGame game;
+
+    /**
+     * Creates a replayer for a log file
+     *
+     * @param file
+     *            the log file
+     */
+    public GameReplayer(Path file)
+    {
+        this.file = file;
+    }
+
+
+    /**
+     * Sets whether every event is printed as it is replayed
+     *
+     * @param print
+     *            true to print the events
+     */
+    public void setPrint(boolean print)
+    {
+        this.print = print;
+    }
+
+
+    /**
+     * Replays the whole log
+     *
+     * @return the game of the last BOARD record, as it was after the last
+     *         event, or null if the log has no board yet
+     * @throws IOException
+     *             if the file cannot be read, is not an event log or contains
+     *             an event that does not fit the game
+     */
+    public JeopardyGame replay()
+        throws IOException
+    {
+        return run(open(), null, new ArrayList<Player>());
+    }
+
+
+    /**
+     * Replays the end of the log onto a game restored from a GameSnapshot
+     *
+     * @param start
+     *            the game as it was when the log had the given length
+     * @param offset
+     *            the length of the log when the snapshot was taken
+     * @return the game after the last event, which is a new game if the log
+     *         has a BOARD record after the offset
+     * @throws IOException
+     *             if the file cannot be read, is not an event log, is shorter
+     *             than the offset or contains an event that does not fit the
+     *             game
+     */
+    public JeopardyGame replayFrom(JeopardyGame start, long offset)
+        throws IOException
+    {
+        ByteBuffer in = open();
+        if (offset < in.position() || offset > in.limit())
+        {
+            throw new IOException(file + " ends before " + offset);
+        }
+
+        in.position((int)offset);
+        return run(in, start, start.getJoinOrder());
+    }
+
+
+    /**
+     * Returns the number of events read by the last replay
+     *
+     * @return the number of whole events
+     */
+    public long getEventCount()
+    {
+        return eventCount;
+    }
+
+
+    /**
+     * Returns where the last whole event of the log ends
+     *
+     * @return the length of the log without a partial last record
+     */
+    public long getValidLength()
+    {
+        return validLength;
+    }
+
+
+    /**
+     * Cuts a partial last record found by replay off the log
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void truncate()
+        throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            if (channel.size() > validLength)
+            {
+                channel.truncate(validLength);
+            }
+        }
+    }
+
+
+    /**
+     * Maps the log and reads its header
+     *
+     * @return the log, positioned after the header
+     * @throws IOException
+     *             if the file cannot be read or is not an event log
+     */
+    private ByteBuffer open()
+        throws IOException
+    {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (in.remaining() < 8 || in.getInt() != GameEventLog.MAGIC
+            || in.getInt() != GameEventLog.VERSION)
+        {
+            throw new IOException(file + " is not a game event log");
+        }
+        return in;
+    }
+
+
+    /**
+     * Applies every whole record from the position of the buffer on
+     *
+     * @param in
+     *            the log
+     * @param start
+     *            the game the records apply to, or null before the first
+     *            BOARD record
+     * @param players
+     *            the players of that game by number
+     * @return the game after the last record
+     * @throws IOException
+     *             if a record does not fit the game
+     */
+    private JeopardyGame run(ByteBuffer in, JeopardyGame start, ArrayList<Player> players)
+        throws IOException
+    {
+        game = start;
+        eventCount = 0;
+        validLength = in.position();
+
+        while (in.hasRemaining())
+        {
+            try
+            {
+                apply(in, players);
+            }
+            catch (BufferUnderflowException ex)
+            {
+                // a partial record at the end, written when the program stopped
+                break;
+            }
+            catch (IllegalArgumentException | IllegalStateException
+                | IndexOutOfBoundsException | NullPointerException ex)
+            {
+                throw new IOException(file + " has a bad event at " + validLength + ": " + ex);
+            }
+            eventCount++;
+            validLength = in.position();
+        }
+
+        return game;
+    }
+
+
+    /**
+     * Decodes one record and applies it to the game
+     *
+     * @param in
+     *            the log, at the start of the record
+     * @param players
+     *            the players of the current game by number
+     */
+    private void apply(ByteBuffer in, ArrayList<Player> players)
+    {
+        byte type = in.get();
+        switch (type)
+        {
+            case GameEventLog.BOARD:
+                game = readBoard(in);
+                players.clear();
+                break;
+            case GameEventLog.PLAYER:
+            {
+                Player player = new Player(readString(in));
+                players.add(player);
+                game.addPlayer(player);
+                log("PLAYER " + player.getUsername());
+                break;
+            }
+            case GameEventLog.OPENED:
+            {
+                int points = QuestionPack.readVarInt(in);
+                int column = QuestionPack.readVarInt(in);
+                if (!getCard(points, column).tryClaim())
+                {
+                    throw new IllegalStateException("card " + points + " " + column + " was open");
+                }
+                log("OPENED " + points + " " + column);
+                break;
+            }
+            case GameEventLog.ANSWERED:
+            {
+                int points = QuestionPack.readVarInt(in);
+                int column = QuestionPack.readVarInt(in);
+                Player player = players.get(QuestionPack.readVarInt(in));
+                boolean correct = in.get() != 0;
+                if (print)
+                {
+                    log("ANSWERED " + points + " " + column + " " + player.getUsername() + " "
+                        + (correct ? "CORRECT " : "WRONG ") + readString(in));
+                }
+                else
+                {
+                    skipString(in);
+                }
+                getCard(points, column).recordAnswer(player, correct);
+                break;
+            }
+            case GameEventLog.PASSED:
+            {
+                int points = QuestionPack.readVarInt(in);
+                int column = QuestionPack.readVarInt(in);
+                getCard(points, column).pass();
+                log("PASSED " + points + " " + column);
+                break;
+            }
+            case GameEventLog.REOPENED:
+            {
+                int points = QuestionPack.readVarInt(in);
+                int column = QuestionPack.readVarInt(in);
+                if (!getCard(points, column).reopen())
+                {
+                    throw new IllegalStateException("card " + points + " " + column
+                        + " was not left open");
+                }
+                log("REOPENED " + points + " " + column);
+                break;
+            }
+            case GameEventLog.ADJUSTED:
+            {
+                Player player = players.get(QuestionPack.readVarInt(in));
+                int zigzag = QuestionPack.readVarInt(in);
+                int delta = (zigzag >>> 1) ^ -(zigzag & 1);
+                player.changePoints(delta);
+                log("ADJUSTED " + player.getUsername() + " " + delta);
+                break;
+            }
+            case GameEventLog.TURN:
+                game.getNextPlayer();
+                log("TURN " + game.getCurrentPlayer().getUsername());
+                break;
+            default:
+                throw new IllegalStateException("unknown event type " + type);
+        }
+    }
+
+
+    /**
+     * Decodes a BOARD record into a new game
+     *
+     * @param in
+     *            the log, after the type byte
+     * @return the game with that board and no players
+     */
+    private JeopardyGame readBoard(ByteBuffer in)
+    {
+        int columns = QuestionPack.readVarInt(in);
+        int rows = QuestionPack.readVarInt(in);
+        boolean byCategory = in.get() != 0;
+
+        int[] pointValues = new int[rows];
+        for (int i = 0; i < rows; i++)
+        {
+            pointValues[i] = QuestionPack.readVarInt(in);
+        }
+
+        TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+        for (int points : pointValues)
+        {
+            Card[] row = new Card[columns];
+            for (int column = 0; column < columns; column++)
+            {
+                String category = readString(in);
+                String question = readString(in);
+                row[column] = new Card(question, readString(in), points, category);
+            }
+            board.put(points, row);
+        }
+
+        BoardSpec spec = new BoardSpec(columns, pointValues);
+        log("BOARD " + columns + " x " + rows);
+        return new JeopardyGame(byCategory ? spec.byCategory() : spec, board);
+    }
+
+
+    /**
+     * Finds a card of the current game
+     *
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card
+     * @return the card
+     */
+    private Card getCard(int points, int column)
+    {
+        return game.getQuestions(points)[column];
+    }
+
+
+    /**
+     * Prints an event if events are printed
+     *
+     * @param event
+     *            the event as text
+     */
+    private void log(String event)
+    {
+        if (print)
+        {
+            System.out.println(event);
+        }
+    }
+
+
+    /**
+     * Reads a varint length followed by that many UTF-8 bytes
+     *
+     * @param in
+     *            the buffer to read from
+     * @return the decoded string
+     */
+    private static String readString(ByteBuffer in)
+    {
+        byte[] bytes = new byte[QuestionPack.readVarInt(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Skips over a varint length and that many bytes
+     *
+     * @param in
+     *            the buffer to read from
+     */
+    private static void skipString(ByteBuffer in)
+    {
+        int length = QuestionPack.readVarInt(in);
+        if (length > in.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        in.position(in.position() + length);
+    }
+
+
+    /**
+     * Replays a log and prints the final scores and how fast it was read:
+     * file [--print]
+     *
+     * @param args
+     *            the log file, and --print to print every event
+     */
+    public static void main(String[] args)
+    {
+        if (args.length == 0 || !Files.exists(Paths.get(args[0])))
+        {
+            System.out.println("***Cannot open " + (args.length == 0 ? "" : args[0]) + " ***");
+            System.exit(1);
+        }
+
+        GameReplayer replayer = new GameReplayer(Paths.get(args[0]));
+        replayer.setPrint(args.length > 1 && args[1].equals("--print"));
+
+        try
+        {
+            long start = System.nanoTime();
+            JeopardyGame game = replayer.replay();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            if (game != null)
+            {
+                ArrayList<Player> ranked = game.getPlayers();
+                for (int i = 0; i < ranked.size(); i++)
+                {
+                    System.out.println((i + 1) + ". " + ranked.get(i));
+                }
+            }
+            System.out.printf("%d events in %.3f s (%.0f events/s)%n", replayer.getEventCount(),
+                seconds, replayer.getEventCount() / seconds);
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot open " + ex.getMessage() + " ***");
+            System.exit(1);
+        }
+    }
+}
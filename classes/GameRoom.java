@@ -0,0 +1,502 @@
+package classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One game hosted by the GameServer. The room keeps its board as a
+ * CompactBoard of question ids and reads the questions from a QuestionStore
+ * shared by every room, so a room only holds its board, its players and their
+ * connections. It applies the moves the players send and tells every player
+ * what happened. All moves go through the room's lock, so the board and the
+ * turn are only ever changed by one connection at a time. Messages are only
+ * queued on the players' Connections while the lock is held; each connection
+ * writes them to its socket on its own, so a player that stops reading never
+ * holds up the room.
+ *
+ * A turn goes like this: the player whose turn it is picks a card, every
+ * player sees the question and may buzz, and the first player to buzz answers.
+ * Buzzes are judged by a BuzzerArbiter without taking the room's lock, so
+ * only the winning buzz waits for the room.
+ * The card is then closed and the turn moves to the next connected player. The
+ * player whose turn it is may also skip a question nobody buzzed for.
+ */
+public class GameRoom
+{
+    private String                  name;
+    private QuestionStore           store;
+    private CompactBoard            board;
+    private ArrayList<Player>       players;
+    private Map<Player, Connection> connected;
+    private int                     turn;
+    private int                     open;
+    private volatile BuzzerArbiter  buzzer;
+    private boolean                 closed;
+    private long                    lastActive;
+
+    /**
+     * Creates a room for a board
+     *
+     * @param name
+     *            the name players use to join the room
+     * @param board
+     *            the board played in the room
+     * @param store
+     *            the store the question ids of the board belong to
+     */
+    public GameRoom(String name, CompactBoard board, QuestionStore store)
+    {
+        this.name = name;
+        this.board = board;
+        this.store = store;
+        players = new ArrayList<Player>();
+        connected = new HashMap<Player, Connection>();
+        open = -1;
+        lastActive = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Returns the name of the room
+     *
+     * @return the room name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Returns the board played in the room
+     *
+     * @return the board
+     */
+    public CompactBoard getBoard()
+    {
+        return board;
+    }
+
+
+    /**
+     * Returns a player of the room by name
+     *
+     * @param username
+     *            the name of the player
+     * @return the player, or null if nobody by that name joined
+     */
+    public synchronized Player getPlayer(String username)
+    {
+        for (Player player : players)
+        {
+            if (player.getUsername().equals(username))
+            {
+                return player;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Returns the number of connected players
+     *
+     * @return the number of connected players
+     */
+    public synchronized int getConnectedCount()
+    {
+        return connected.size();
+    }
+
+
+    /**
+     * Returns when a player last joined, left or made a move
+     *
+     * @return the time in milliseconds
+     */
+    public synchronized long getLastActive()
+    {
+        return lastActive;
+    }
+
+
+    /**
+     * Closes the room if nobody is connected and it was not used since the
+     * given time. A closed room takes no more players.
+     *
+     * @param cutoff
+     *            the time in milliseconds the room must have been idle since
+     * @return true if the room is closed
+     */
+    public synchronized boolean closeIfIdle(long cutoff)
+    {
+        if (connected.isEmpty() && lastActive < cutoff)
+        {
+            closed = true;
+        }
+        return closed;
+    }
+
+
+    /**
+     * Adds a player to the room, or connects a player that left again with
+     * its score. The new player is sent the board and whose turn it is.
+     *
+     * @param username
+     *            the name of the player, without spaces
+     * @param out
+     *            where to send the player's messages
+     * @return the player, or null if the room is closed
+     * @throws IllegalStateException
+     *             if the name is taken
+     * @throws IOException
+     *             if a question of the board cannot be read
+     */
+    public synchronized Player join(String username, Connection out)
+        throws IOException
+    {
+        if (closed)
+        {
+            return null;
+        }
+
+        Player player = getPlayer(username);
+        if (player != null && connected.containsKey(player))
+        {
+            throw new IllegalStateException("name " + username + " is taken");
+        }
+
+        if (player == null)
+        {
+            player = new Player(username);
+            players.add(player);
+        }
+
+        broadcast("JOINED " + username);
+        connected.put(player, out);
+        touch();
+
+        out.send("WELCOME " + name + " " + username);
+        sendBoard(out);
+        if (!connected.containsKey(players.get(turn)))
+        {
+            // nobody connected had the turn
+            advanceTurn();
+        }
+        else
+        {
+            out.send("TURN " + players.get(turn).getUsername());
+        }
+        if (open >= 0)
+        {
+            out.send("QUESTION " + board.getPoints(open) + " " + board.getColumn(open) + " "
+                + store.get(board.getId(open)).getQuestion());
+        }
+        if (board.getRemaining() == 0 && open < 0)
+        {
+            sendScores(out);
+            out.send("OVER");
+        }
+
+        return player;
+    }
+
+
+    /**
+     * Disconnects a player. The player keeps its score and its place in the
+     * turn order, but is skipped until it joins again.
+     *
+     * @param player
+     *            the player that left
+     */
+    public synchronized void leave(Player player)
+    {
+        if (connected.remove(player) == null)
+        {
+            return;
+        }
+        touch();
+        broadcast("LEFT " + player.getUsername());
+
+        if (open >= 0 && buzzer.getWinner() == player)
+        {
+            // let someone else buzz for the open question
+            buzzer = new BuzzerArbiter(connected.size() + 1);
+        }
+        if (players.get(turn) == player && !connected.isEmpty())
+        {
+            advanceTurn();
+        }
+    }
+
+
+    /**
+     * Opens a card for everyone to buzz for
+     *
+     * @param player
+     *            the player picking the card
+     * @param points
+     *            the row of the card
+     * @param column
+     *            the column of the card, starting at 0
+     * @throws IllegalStateException
+     *             if it is not the player's turn or a question is open
+     * @throws IllegalArgumentException
+     *             if there is no such card or it was already played
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    public synchronized void pick(Player player, int points, int column)
+        throws IOException
+    {
+        checkTurn(player);
+        if (open >= 0)
+        {
+            throw new IllegalStateException("a question is already open");
+        }
+
+        int index = board.getIndex(points, column);
+        Question question = store.get(board.getId(index));
+        if (!board.claim(index))
+        {
+            throw new IllegalArgumentException("card " + points + " " + column + " was played");
+        }
+
+        open = index;
+        buzzer = new BuzzerArbiter(connected.size());
+        touch();
+
+        broadcast("QUESTION " + points + " " + column + " " + question.getQuestion());
+    }
+
+
+    /**
+     * Buzzes for the open question. Only the first buzz counts; a buzz that
+     * arrives after the question was answered is simply too late. Losing
+     * buzzes return without locking the room.
+     *
+     * @param player
+     *            the player buzzing
+     * @return true if the player won the buzz
+     */
+    public boolean buzz(Player player)
+    {
+        BuzzerArbiter arbiter = buzzer;
+        if (arbiter == null || !arbiter.buzz(player))
+        {
+            return false;
+        }
+
+        synchronized (this)
+        {
+            if (buzzer != arbiter)
+            {
+                // the question was closed or reopened in the meantime
+                return false;
+            }
+            touch();
+            broadcast("BUZZED " + player.getUsername());
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the buzzer of the open question, to look at who buzzed when
+     *
+     * @return the buzzer, or null if no question is open
+     */
+    public BuzzerArbiter getBuzzer()
+    {
+        return buzzer;
+    }
+
+
+    /**
+     * Answers the open question. Only the player that won the buzz may
+     * answer.
+     *
+     * @param player
+     *            the player answering
+     * @param answer
+     *            the answer
+     * @throws IllegalStateException
+     *             if the player did not win the buzz
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    public synchronized void answer(Player player, String answer)
+        throws IOException
+    {
+        if (open < 0 || buzzer.getWinner() != player)
+        {
+            throw new IllegalStateException("buzz first");
+        }
+
+        Question question = store.get(board.getId(open));
+        boolean correct = question.isCorrectAnswer(answer);
+        player.changePoints(correct ? question.getPoints() : -question.getPoints());
+        if (correct)
+        {
+            board.setCorrect(open);
+        }
+        touch();
+        broadcast("RESULT " + board.getPoints(open) + " " + board.getColumn(open) + " "
+            + player.getUsername() + " " + (correct ? "CORRECT " : "WRONG ")
+            + player.getPoints() + " " + question.getAnswer());
+
+        closeQuestion();
+    }
+
+
+    /**
+     * Closes the open question without an answer, if nobody has buzzed
+     *
+     * @param player
+     *            the player whose turn it is
+     * @throws IllegalStateException
+     *             if it is not the player's turn, no question is open or
+     *             someone buzzed
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    public synchronized void skip(Player player)
+        throws IOException
+    {
+        checkTurn(player);
+        if (open < 0 || !buzzer.close())
+        {
+            throw new IllegalStateException("nothing to skip");
+        }
+
+        touch();
+        broadcast("CLOSED " + board.getPoints(open) + " " + board.getColumn(open) + " "
+            + store.get(board.getId(open)).getAnswer());
+
+        closeQuestion();
+    }
+
+
+    /**
+     * Sends every card of the board: its row, column, whether it can still be
+     * picked and its category
+     *
+     * @param out
+     *            where to send the board
+     * @throws IOException
+     *             if a question cannot be read
+     */
+    public synchronized void sendBoard(Connection out)
+        throws IOException
+    {
+        for (int index = 0; index < board.size(); index++)
+        {
+            out.send("CARD " + board.getPoints(index) + " " + board.getColumn(index) + " "
+                + (board.isPlayed(index) ? "PLAYED " : "OPEN ")
+                + store.get(board.getId(index)).getCategory());
+        }
+    }
+
+
+    /**
+     * Sends the scores of all players, best first
+     *
+     * @param out
+     *            where to send the scores
+     */
+    public synchronized void sendScores(Connection out)
+    {
+        ArrayList<Player> ranked = new ArrayList<Player>(players);
+        ranked.sort((first, second) -> second.compareTo(first));
+        for (int i = 0; i < ranked.size(); i++)
+        {
+            out.send("SCORE " + (i + 1) + " " + ranked.get(i).getUsername() + " "
+                + ranked.get(i).getPoints());
+        }
+    }
+
+
+    /**
+     * Closes the open card and moves the turn on, or ends the game if it was
+     * the last card
+     */
+    private void closeQuestion()
+    {
+        open = -1;
+        buzzer = null;
+
+        if (board.getRemaining() == 0)
+        {
+            for (Connection out : connected.values())
+            {
+                sendScores(out);
+                out.send("OVER");
+            }
+            return;
+        }
+
+        advanceTurn();
+    }
+
+
+    /**
+     * Gives the turn to the next connected player and tells everyone
+     */
+    private void advanceTurn()
+    {
+        for (int i = 0; i < players.size(); i++)
+        {
+            turn = (turn + 1) % players.size();
+            if (connected.containsKey(players.get(turn)))
+            {
+                break;
+            }
+        }
+        broadcast("TURN " + players.get(turn).getUsername());
+    }
+
+
+    /**
+     * Makes sure it is the player's turn
+     *
+     * @param player
+     *            the player making a move
+     * @throws IllegalStateException
+     *             if it is not the player's turn
+     */
+    private void checkTurn(Player player)
+    {
+        if (players.get(turn) != player)
+        {
+            throw new IllegalStateException("not your turn");
+        }
+    }
+
+
+    /**
+     * Queues a message for every connected player. A player whose connection
+     * was dropped gets nothing and is removed when its connection thread
+     * leaves the room.
+     *
+     * @param message
+     *            the message
+     */
+    private void broadcast(String message)
+    {
+        for (Connection out : connected.values())
+        {
+            out.send(message);
+        }
+    }
+
+
+    /**
+     * Remembers that the room was just used
+     */
+    private void touch()
+    {
+        lastActive = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,560 @@
+package classes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A headless server that hosts games over TCP. Every connection is served by
+ * its own thread, which blocks on the socket; on a JVM with virtual threads
+ * those are virtual threads, so thousands of connections only cost their
+ * stacks, and otherwise a cached pool of platform threads is used. Players
+ * meet in named GameRooms, kept in a sharded RoomRegistry. Every room gets a
+ * CompactBoard of question ids from a shared BoardBuilder, and the questions
+ * themselves are read once into a QuestionStore shared by all rooms. A room
+ * stays open when its players leave, so they can join again with their
+ * scores, until it has been idle for IDLE_MILLIS. Everything sent to a
+ * player goes through its Connection, which writes to the socket on a thread
+ * of its own.
+ *
+ * The protocol is one command per line, answered with one or more lines:
+ *
+ * <pre>
+ * JOIN room name      WELCOME room name, CARD lines, TURN name
+ * BOARD               CARD points column OPEN|PLAYED category, one per card
+ * PICK points column  QUESTION points column question, to the whole room
+ * BUZZ                BUZZED name to the whole room, or LATE
+ * ANSWER text         RESULT points column name CORRECT|WRONG score answer
+ * SKIP                CLOSED points column answer
+ * SCORES              SCORE rank name points, one per player
+ * QUIT                BYE
+ * </pre>
+ *
+ * The room also sends JOINED, LEFT and TURN when players come and go or the
+ * turn moves, and SCORE lines followed by OVER when the last card is played.
+ * Mistakes are answered with ERROR and a message. A connection that sends a
+ * line longer than MAX_LINE characters, or nothing at all for
+ * READ_TIMEOUT_MILLIS, is closed, so a client cannot fill the server's
+ * memory and half-open connections do not stay around.
+ *
+ * Started with --watch, the server reloads the questions when their files
+ * change. The builder and store are swapped together, so new rooms are dealt
+ * from the new questions while open rooms keep the store their ids point into.
+ */
+public class GameServer
+{
+    public static final int          DEFAULT_PORT        = 7070;
+    public static final long         IDLE_MILLIS         = 5 * 60 * 1000;
+    public static final int          MAX_LINE            = 4096;
+    public static final int          READ_TIMEOUT_MILLIS = 15 * 60 * 1000;
+
+    private volatile Source          source;
+    private RoomRegistry             rooms;
+    private ExecutorService          connections;
+    private ScheduledExecutorService evictor;
+    private ServerSocket             serverSocket;
+
+    /**
+     * Creates a server whose rooms take their boards from a board builder
+     *
+     * @param builder
+     *            the builder of the boards of all rooms
+     * @param store
+     *            the store over the question bank the builder draws from
+     */
+    public GameServer(BoardBuilder builder, QuestionStore store)
+    {
+        source = new Source(builder, store);
+        rooms = new RoomRegistry(64);
+    }
+
+
+    /**
+     * Deals the boards of new rooms from a reloaded question library. Rooms
+     * that are open keep the board and store they were made with.
+     *
+     * @param library
+     *            the new questions
+     * @throws IOException
+     *             if the questions cannot be read
+     * @throws IllegalArgumentException
+     *             if the board layout no longer fits the questions
+     */
+    public void reload(QuestionLibrary library)
+        throws IOException
+    {
+        source = new Source(library.newBuilder(source.builder.getSpec()), library.getStore());
+    }
+
+
+    /**
+     * Starts listening and accepting connections in the background
+     *
+     * @param port
+     *            the port to listen on, or 0 for any free port
+     * @throws IOException
+     *             if the port cannot be opened
+     */
+    public void start(int port)
+        throws IOException
+    {
+        serverSocket = new ServerSocket(port);
+        connections = newConnectionExecutor();
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(() -> rooms.evictIdle(IDLE_MILLIS),
+            IDLE_MILLIS / 10, IDLE_MILLIS / 10, TimeUnit.MILLISECONDS);
+
+        // connection threads are daemons, this thread keeps the server alive
+        Thread acceptor = new Thread(() -> accept(), "game-accept");
+        acceptor.start();
+    }
+
+
+    /**
+     * Returns the port the server listens on
+     *
+     * @return the port
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+
+    /**
+     * Returns the number of open rooms
+     *
+     * @return the number of rooms
+     */
+    public int getRoomCount()
+    {
+        return rooms.size();
+    }
+
+
+    /**
+     * Returns the store the questions of all rooms are read from
+     *
+     * @return the question store
+     */
+    public QuestionStore getStore()
+    {
+        return source.store;
+    }
+
+
+    /**
+     * Closes and removes the rooms nobody has used for the given time. The
+     * server does this by itself for rooms idle for IDLE_MILLIS.
+     *
+     * @param idleMillis
+     *            how long a room has to be unused
+     * @return the number of rooms removed
+     */
+    public int evictIdleRooms(long idleMillis)
+    {
+        return rooms.evictIdle(idleMillis);
+    }
+
+
+    /**
+     * Stops accepting connections and closes the connection threads
+     */
+    public void stop()
+    {
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException ex)
+        {
+            // already closed
+        }
+        connections.shutdownNow();
+        evictor.shutdownNow();
+    }
+
+
+    /**
+     * Creates the executor that runs one thread per connection: a virtual
+     * thread per task where the JVM has them, and a cached thread pool where it
+     * does not. The virtual thread executor is looked up by reflection so the
+     * server still compiles and runs on Java 17.
+     *
+     * @return the executor for connections
+     */
+    static ExecutorService newConnectionExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "game-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+
+    /**
+     * Accepts connections until the server socket is closed
+     */
+    private void accept()
+    {
+        try
+        {
+            while (true)
+            {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            }
+        }
+        catch (IOException ex)
+        {
+            // the server was stopped
+        }
+    }
+
+
+    /**
+     * Reads commands from one connection until it quits or disconnects
+     *
+     * @param socket
+     *            the connection
+     */
+    private void serve(Socket socket)
+    {
+        GameRoom room = null;
+        Player player = null;
+        Connection out = null;
+        boolean quit = false;
+
+        try
+        {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new Connection(socket, connections);
+
+            String line;
+            while ((line = readLine(in)) != null)
+            {
+                String[] words = line.trim().split(" ", 2);
+                String command = words[0].toUpperCase();
+                String rest = words.length > 1 ? words[1].trim() : "";
+
+                if (command.equals("QUIT"))
+                {
+                    out.send("BYE");
+                    quit = true;
+                    break;
+                }
+
+                try
+                {
+                    if (command.equals("JOIN"))
+                    {
+                        if (player != null)
+                        {
+                            throw new IllegalStateException("already in room " + room.getName());
+                        }
+
+                        String[] args = parseArgs(rest, 2);
+                        room = joinRoom(args[0], args[1], out);
+                        player = room.getPlayer(args[1]);
+                        continue;
+                    }
+
+                    if (player == null)
+                    {
+                        throw new IllegalStateException("join a room first");
+                    }
+
+                    if (command.equals("BOARD"))
+                    {
+                        room.sendBoard(out);
+                    }
+                    else if (command.equals("PICK"))
+                    {
+                        String[] args = parseArgs(rest, 2);
+                        room.pick(player, Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+                    }
+                    else if (command.equals("BUZZ"))
+                    {
+                        if (!room.buzz(player))
+                        {
+                            out.send("LATE");
+                        }
+                    }
+                    else if (command.equals("ANSWER"))
+                    {
+                        room.answer(player, rest);
+                    }
+                    else if (command.equals("SKIP"))
+                    {
+                        room.skip(player);
+                    }
+                    else if (command.equals("SCORES"))
+                    {
+                        room.sendScores(out);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException("unknown command " + command);
+                    }
+                }
+                catch (IllegalArgumentException | IllegalStateException ex)
+                {
+                    out.send("ERROR " + ex.getMessage());
+                }
+                catch (IOException ex)
+                {
+                    out.send("ERROR cannot read question " + ex.getMessage());
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            // the client went away
+        }
+        finally
+        {
+            if (player != null)
+            {
+                // the room stays until the evictor finds it idle
+                room.leave(player);
+            }
+
+            if (out == null)
+            {
+                try
+                {
+                    socket.close();
+                }
+                catch (IOException ex)
+                {
+                    // already closed
+                }
+            }
+            else if (quit)
+            {
+                // the socket is closed once BYE has been written
+                out.close();
+            }
+            else
+            {
+                out.abort();
+            }
+        }
+    }
+
+
+    /**
+     * Reads one line of a connection. Unlike BufferedReader.readLine, this
+     * stops at MAX_LINE characters, so a client cannot make the server buffer
+     * a line of any length.
+     *
+     * @param in
+     *            the connection
+     * @return the line without its line break, or null at the end of the
+     *         stream
+     * @throws IOException
+     *             if the connection fails or times out, or the line is too
+     *             long
+     */
+    private static String readLine(BufferedReader in)
+        throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0)
+        {
+            if (c == '\n')
+            {
+                return line.toString();
+            }
+            if (c != '\r')
+            {
+                if (line.length() == MAX_LINE)
+                {
+                    throw new IOException("line longer than " + MAX_LINE + " characters");
+                }
+                line.append((char)c);
+            }
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+
+    /**
+     * Joins a room, opening it if it does not exist yet. A room that was
+     * closed because it was idle is replaced by a new one.
+     *
+     * @param name
+     *            the name of the room
+     * @param username
+     *            the name of the player
+     * @param out
+     *            where to send the player's messages
+     * @return the room that was joined
+     * @throws IllegalStateException
+     *             if the name is taken in the room
+     * @throws IOException
+     *             if a question of the board cannot be read
+     */
+    private GameRoom joinRoom(String name, String username, Connection out)
+        throws IOException
+    {
+        while (true)
+        {
+            // the builder and store of one library, even during a reload
+            Source current = source;
+            GameRoom room;
+            try
+            {
+                room = rooms.getOrCreate(name, n -> new GameRoom(n,
+                    buildCompact(current), current.store));
+            }
+            catch (UncheckedIOException ex)
+            {
+                throw ex.getCause();
+            }
+            if (room.join(username, out) != null)
+            {
+                return room;
+            }
+            rooms.remove(name, room);
+        }
+    }
+
+
+    /**
+     * Builds the board of a new room, for the room factory, which cannot throw
+     * checked exceptions
+     *
+     * @param source
+     *            the builder and store to deal from
+     * @return the board
+     * @throws UncheckedIOException
+     *             if a question of the board cannot be read
+     */
+    private static CompactBoard buildCompact(Source source)
+    {
+        try
+        {
+            return source.builder.buildCompact(source.store);
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+
+    /**
+     * Splits the arguments of a command. Arguments are separated by spaces, so
+     * room and player names cannot contain spaces.
+     *
+     * @param rest
+     *            the text after the command
+     * @param count
+     *            the number of arguments expected
+     * @return the arguments
+     * @throws IllegalArgumentException
+     *             if there are more or fewer arguments
+     */
+    private static String[] parseArgs(String rest, int count)
+    {
+        String[] args = rest.split("\\s+");
+        if (args.length != count || args[0].isEmpty())
+        {
+            throw new IllegalArgumentException("expected " + count + " arguments");
+        }
+        return args;
+    }
+
+
+    /**
+     * Runs a server on the given port, with the same board options as the
+     * game, and --watch to reload the questions when they change:
+     * port [columns rows [first [step]]] [--categories] [--watch]
+     *
+     * @param args
+     *            the port followed by the board options
+     * @throws IOException
+     *             if the port cannot be opened
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        ArrayList<String> list = new ArrayList<String>(Arrays.asList(args));
+        boolean watch = list.remove("--watch");
+        int port = list.isEmpty() ? DEFAULT_PORT : Integer.parseInt(list.remove(0));
+        BoardSpec spec = JeopardyGame.parseSpec(list.toArray(new String[0]));
+
+        QuestionLibrary library = JeopardyGame.getLibrary();
+        GameServer server = new GameServer(library.newBuilder(spec), library.getStore());
+        if (watch)
+        {
+            JeopardyGame.watchBank().addListener(loaded -> {
+                try
+                {
+                    server.reload(loaded);
+                }
+                catch (IOException | IllegalArgumentException ex)
+                {
+                    System.out.println("***Cannot reload " + ex.getMessage() + " ***");
+                }
+            });
+        }
+        server.start(port);
+        System.out.println("Jeopardy server listening on port " + server.getPort());
+    }
+
+
+    /**
+     * A board builder and the store its questions are read from, which are
+     * replaced together when the questions are reloaded
+     */
+    private static class Source
+    {
+        private final BoardBuilder  builder;
+        private final QuestionStore store;
+
+        /**
+         * Pairs a builder with its store
+         *
+         * @param builder
+         *            the board builder
+         * @param store
+         *            the store of the builder's questions
+         */
+        Source(BoardBuilder builder, QuestionStore store)
+        {
+            this.builder = builder;
+            this.store = store;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package classes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many whole games through the GameEngine with no window, to test the
+ * rules and the scoring at scale. A few boards are dealt from the bank once
+ * and every game gets fresh cards for the questions of one of them, so the
+ * games measure the engine rather than the bank.
+ *
+ * Each simulated player has a skill: on their turn they pick a random open
+ * card, then answer it correctly with that chance, answer it wrongly, or now
+ * and then pass. Better players sit later at the table, so the wins by seat
+ * show that the scoring favours them.
+ */
+public class GameSimulator
+{
+    private static final int                    BOARDS    = 64;
+    private static final double                 PASS_RATE = 0.1;
+
+    private BoardSpec                           spec;
+    private ArrayList<TreeMap<Integer, Card[]>> boards;
+    private double[]                            skills;
+
+    /**
+     * Creates a simulator that deals its boards from a builder
+     *
+     * @param builder
+     *            the builder of the boards
+     * @param players
+     *            the number of players in every game
+     * @throws IOException
+     *             if a question of a board cannot be read
+     */
+    public GameSimulator(BoardBuilder builder, int players)
+        throws IOException
+    {
+        spec = builder.getSpec();
+        boards = new ArrayList<TreeMap<Integer, Card[]>>();
+        for (int i = 0; i < BOARDS; i++)
+        {
+            boards.add(builder.build());
+        }
+
+        skills = new double[players];
+        for (int seat = 0; seat < players; seat++)
+        {
+            skills[seat] = Math.min(0.9, 0.4 + 0.1 * seat);
+        }
+    }
+
+
+    /**
+     * Plays games one after another on the calling thread
+     *
+     * @param games
+     *            the number of games to play
+     * @param random
+     *            the source of the players' choices
+     * @return the results of the games
+     */
+    public Results play(int games, SplittableRandom random)
+    {
+        Results results = new Results(skills.length);
+        for (int i = 0; i < games; i++)
+        {
+            playGame(random, results);
+        }
+        return results;
+    }
+
+
+    /**
+     * Plays one game to the end and adds it to the results
+     *
+     * @param random
+     *            the source of the players' choices
+     * @param results
+     *            the results to add to
+     */
+    private void playGame(SplittableRandom random, Results results)
+    {
+        TreeMap<Integer, Card[]> template = boards.get(random.nextInt(boards.size()));
+        TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+        Card[] order = new Card[spec.getRows() * spec.getColumns()];
+        int next = 0;
+        for (Card[] row : template.values())
+        {
+            Card[] cards = new Card[row.length];
+            for (int column = 0; column < row.length; column++)
+            {
+                cards[column] = new Card(row[column].toQuestion());
+                order[next++] = cards[column];
+            }
+            board.put(cards[0].getPoints(), cards);
+        }
+
+        // the order the cards are picked in
+        for (int i = order.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt(i + 1);
+            Card card = order[i];
+            order[i] = order[j];
+            order[j] = card;
+        }
+
+        JeopardyGame game = new JeopardyGame(spec, board);
+        Player[] seats = new Player[skills.length];
+        for (int seat = 0; seat < seats.length; seat++)
+        {
+            seats[seat] = new Player("player" + seat);
+            game.addPlayer(seats[seat]);
+        }
+
+        GameEngine engine = new GameEngine(game);
+        int seat = 0;
+        for (Card card : order)
+        {
+            engine.pick(card);
+            double roll = random.nextDouble();
+            if (roll < PASS_RATE)
+            {
+                engine.pass();
+            }
+            else if (roll < PASS_RATE + (1 - PASS_RATE) * skills[seat])
+            {
+                engine.answer(card.getAnswer());
+            }
+            else
+            {
+                engine.answer("");
+            }
+            seat = (seat + 1) % seats.length;
+        }
+
+        if (!engine.isOver())
+        {
+            throw new IllegalStateException("the game did not end");
+        }
+        results.add(seats);
+    }
+
+
+    /**
+     * The totals of a number of games
+     */
+    public static class Results
+    {
+        private long   games;
+        private long[] wins;
+        private long[] points;
+
+        /**
+         * Creates empty results
+         *
+         * @param players
+         *            the number of players in every game
+         */
+        Results(int players)
+        {
+            wins = new long[players];
+            points = new long[players];
+        }
+
+
+        /**
+         * Adds the final scores of a game. A tie goes to the earlier seat.
+         *
+         * @param seats
+         *            the players by seat
+         */
+        void add(Player[] seats)
+        {
+            int winner = 0;
+            for (int seat = 0; seat < seats.length; seat++)
+            {
+                points[seat] += seats[seat].getPoints();
+                if (seats[seat].getPoints() > seats[winner].getPoints())
+                {
+                    winner = seat;
+                }
+            }
+            wins[winner]++;
+            games++;
+        }
+
+
+        /**
+         * Adds other results to these
+         *
+         * @param other
+         *            results of games with as many players
+         */
+        void add(Results other)
+        {
+            for (int seat = 0; seat < wins.length; seat++)
+            {
+                wins[seat] += other.wins[seat];
+                points[seat] += other.points[seat];
+            }
+            games += other.games;
+        }
+
+
+        /**
+         * Returns the number of games played
+         *
+         * @return the number of games
+         */
+        public long getGames()
+        {
+            return games;
+        }
+
+
+        /**
+         * Returns how many games a seat won
+         *
+         * @param seat
+         *            the seat, starting at 0
+         * @return the number of wins
+         */
+        public long getWins(int seat)
+        {
+            return wins[seat];
+        }
+
+
+        /**
+         * Returns the average final score of a seat
+         *
+         * @param seat
+         *            the seat, starting at 0
+         * @return the average points
+         */
+        public double getAveragePoints(int seat)
+        {
+            return games == 0 ? 0 : (double)points[seat] / games;
+        }
+    }
+
+
+    /**
+     * Plays games on a number of threads and prints the results and how fast
+     * they were played: [games [threads [players]]]
+     *
+     * @param args
+     *            the number of games, the number of threads and the number
+     *            of players in every game
+     * @throws IOException
+     *             if the questions cannot be read
+     * @throws ExecutionException
+     *             if a game fails
+     * @throws InterruptedException
+     *             if the wait for the games is interrupted
+     */
+    public static void main(String[] args)
+        throws IOException, ExecutionException, InterruptedException
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        int players = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        QuestionLibrary library = JeopardyGame.getLibrary();
+        BoardBuilder builder = library.newBuilder(BoardSpec.standard(library.getBank()));
+        GameSimulator simulator = new GameSimulator(builder, players);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Results>> parts = new ArrayList<Future<Results>>();
+        SplittableRandom seed = new SplittableRandom();
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++)
+        {
+            int share = games / threads + (i < games % threads ? 1 : 0);
+            SplittableRandom random = seed.split();
+            parts.add(pool.submit(() -> simulator.play(share, random)));
+        }
+
+        Results results = new Results(players);
+        for (Future<Results> part : parts)
+        {
+            results.add(part.get());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        for (int seat = 0; seat < players; seat++)
+        {
+            System.out.printf("seat %d (skill %.1f): %d wins, %.0f points on average%n", seat,
+                simulator.skills[seat], results.getWins(seat), results.getAveragePoints(seat));
+        }
+        System.out.printf("%d games on %d threads in %.2f s (%.0f games/min)%n",
+            results.getGames(), threads, seconds, results.getGames() / seconds * 60);
+    }
+}
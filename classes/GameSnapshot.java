@@ -0,0 +1,403 @@
+package classes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The state of a game at one moment, small enough to save every few seconds:
+ * the board as QuestionStore ids, the state of every card, the players with
+ * their scores and the turn order. Restoring a game from a snapshot only
+ * reads the questions of its board from the bank, and if the game also has a
+ * GameEventLog, only the events recorded after the snapshot are replayed.
+ *
+ * A snapshot file is written to a temporary file first and then renamed over
+ * the old one, so a crash leaves either the old or the new snapshot, never
+ * half of one. The format is versioned:
+ *
+ * <pre>
+ * int MAGIC, int VERSION
+ * long   the length of the event log when the snapshot was taken, or -1
+ * long   the fingerprint of the question bank, to notice a changed bank
+ * int    the number of players, then each player's name (UTF) and points
+ * int    columns, int rows, boolean by category, the points of every row
+ * cards  row by row: int question id and int hash code of the question
+ *        text, or -1 followed by the category, question and answer (UTF) of
+ *        a card that is not from the bank; byte state, int player who
+ *        answered or -1
+ * int    the number of players in the turn queue, then each player's number
+ * </pre>
+ *
+ * If the bank's fingerprint is not the one in the snapshot, such as after
+ * the question files were touched or compiled again, every question read by
+ * id is checked against its hash code, and a question that changed fails the
+ * restore instead of silently dealing another card.
+ */
+public class GameSnapshot
+{
+    static final int                     MAGIC   = 0x4A534E50; // "JSNP"
+    static final int                     VERSION = 2;
+
+    private static final ExecutorService WRITER  = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private byte[]                       data;
+    private long                         logOffset;
+
+    /**
+     * Wraps an encoded snapshot
+     *
+     * @param data
+     *            the encoded snapshot
+     * @param logOffset
+     *            the length of the event log at the time, or -1
+     */
+    private GameSnapshot(byte[] data, long logOffset)
+    {
+        this.data = data;
+        this.logOffset = logOffset;
+    }
+
+
+    /**
+     * Takes a snapshot of a game. This has to run on the thread that plays
+     * the game, so nothing changes while the snapshot is taken; it only
+     * encodes the state into memory.
+     *
+     * @param game
+     *            the game
+     * @param store
+     *            the store over the bank the game's questions came from
+     * @return the snapshot
+     */
+    public static GameSnapshot capture(JeopardyGame game, QuestionStore store)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        GameEventLog log = game.getEventLog();
+        long logOffset = log == null ? -1 : log.getLength();
+
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logOffset);
+            out.writeLong(getFingerprint(store));
+
+            ArrayList<Player> players = game.getJoinOrder();
+            out.writeInt(players.size());
+            for (Player player : players)
+            {
+                out.writeUTF(player.getUsername());
+                out.writeInt(player.getPoints());
+            }
+
+            BoardSpec spec = game.getBoardSpec();
+            TreeMap<Integer, Card[]> board = game.getQuestions();
+            out.writeInt(spec.getColumns());
+            out.writeInt(board.size());
+            out.writeBoolean(spec.isByCategory());
+            for (int points : board.keySet())
+            {
+                out.writeInt(points);
+            }
+            for (Map.Entry<Integer, Card[]> row : board.entrySet())
+            {
+                for (Card card : row.getValue())
+                {
+                    int id = findId(store, card);
+                    if (id >= 0)
+                    {
+                        out.writeInt(id);
+                        out.writeInt(card.getQuestion().hashCode());
+                    }
+                    else
+                    {
+                        out.writeInt(-1);
+                        out.writeUTF(card.getCategory());
+                        out.writeUTF(card.getQuestion());
+                        out.writeUTF(card.getAnswer());
+                    }
+                    out.writeByte(card.getState());
+                    out.writeInt(players.indexOf(card.getRespondent()));
+                }
+            }
+
+            ArrayList<Player> queue = game.getTurnOrder();
+            out.writeInt(queue.size());
+            for (Player player : queue)
+            {
+                out.writeInt(players.indexOf(player));
+            }
+        }
+        catch (IOException ex)
+        {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(ex);
+        }
+
+        return new GameSnapshot(bytes.toByteArray(), logOffset);
+    }
+
+
+    /**
+     * Finds a card's question in the store. A card dealt before the question
+     * bank was reloaded may come from another bank than the store, so the
+     * question at its row is checked to be the same.
+     *
+     * @param store
+     *            the store
+     * @param card
+     *            the card
+     * @return the id of the card's question, or -1 if it is not in the store
+     */
+    private static int findId(QuestionStore store, Card card)
+    {
+        int row = card.toQuestion().getRow();
+        if (row < 0)
+        {
+            return -1;
+        }
+
+        try
+        {
+            int id = store.getId(card.getPoints(), row);
+            return store.get(id).hasSameText(card.toQuestion()) ? id : -1;
+        }
+        catch (IllegalArgumentException | IOException ex)
+        {
+            // written out in full instead
+            return -1;
+        }
+    }
+
+
+    /**
+     * Returns the fingerprint of the bank under a store
+     *
+     * @param store
+     *            the store
+     * @return the fingerprint, or -1 if the bank cannot tell, in which case
+     *         every question is checked on restore
+     */
+    private static long getFingerprint(QuestionStore store)
+    {
+        try
+        {
+            return store.getBank().getFingerprint();
+        }
+        catch (IOException ex)
+        {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Reads a snapshot file
+     *
+     * @param file
+     *            the snapshot file
+     * @return the snapshot
+     * @throws IOException
+     *             if the file cannot be read or is not a snapshot
+     */
+    public static GameSnapshot read(Path file)
+        throws IOException
+    {
+        byte[] data = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(data);
+        if (data.length < 16 || header.getInt() != MAGIC)
+        {
+            throw new IOException(file + " is not a game snapshot");
+        }
+        if (header.getInt() != VERSION)
+        {
+            throw new IOException(file + " has an unsupported version");
+        }
+
+        return new GameSnapshot(data, header.getLong());
+    }
+
+
+    /**
+     * Returns the length the event log had when the snapshot was taken.
+     * Replaying the log from there brings the game up to date.
+     *
+     * @return the log offset, or -1 if the game had no event log
+     */
+    public long getLogOffset()
+    {
+        return logOffset;
+    }
+
+
+    /**
+     * Returns the size of the encoded snapshot
+     *
+     * @return the number of bytes
+     */
+    public int size()
+    {
+        return data.length;
+    }
+
+
+    /**
+     * Writes the snapshot to a temporary file next to the given one, syncs it
+     * and renames it over the given file
+     *
+     * @param file
+     *            the snapshot file
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void write(Path file)
+        throws IOException
+    {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer out = ByteBuffer.wrap(data);
+            while (out.hasRemaining())
+            {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    /**
+     * Writes the snapshot on a background thread. The events the snapshot
+     * includes are synced to the event log first, so the log never ends
+     * before the point the snapshot says it was taken at.
+     *
+     * @param file
+     *            the snapshot file
+     * @param log
+     *            the event log of the game, or null
+     */
+    public void writeLater(Path file, GameEventLog log)
+    {
+        WRITER.execute(() -> {
+            try
+            {
+                if (log != null)
+                {
+                    log.sync();
+                }
+                write(file);
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot write " + file + " ***");
+            }
+        });
+    }
+
+
+    /**
+     * Rebuilds the game. Questions from the bank are read through the store;
+     * nothing else is read.
+     *
+     * @param store
+     *            the store over the bank the game's questions came from
+     * @return the game as it was when the snapshot was taken
+     * @throws IOException
+     *             if the questions cannot be read, or a question of the
+     *             board is not in the bank anymore
+     */
+    public JeopardyGame restore(QuestionStore store)
+        throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.readInt();
+        in.readInt();
+        in.readLong();
+        long fingerprint = in.readLong();
+        boolean check = fingerprint == -1 || fingerprint != getFingerprint(store);
+
+        ArrayList<Player> players = new ArrayList<Player>();
+        int playerCount = in.readInt();
+        for (int i = 0; i < playerCount; i++)
+        {
+            String username = in.readUTF();
+            players.add(new Player(username, in.readInt()));
+        }
+
+        int columns = in.readInt();
+        int[] pointValues = new int[in.readInt()];
+        boolean byCategory = in.readBoolean();
+        for (int i = 0; i < pointValues.length; i++)
+        {
+            pointValues[i] = in.readInt();
+        }
+
+        TreeMap<Integer, Card[]> board = new TreeMap<Integer, Card[]>();
+        for (int points : pointValues)
+        {
+            Card[] row = new Card[columns];
+            for (int column = 0; column < columns; column++)
+            {
+                int id = in.readInt();
+                if (id >= 0)
+                {
+                    int hash = in.readInt();
+                    if (id >= store.size()
+                        || check && store.get(id).getQuestion().hashCode() != hash)
+                    {
+                        throw new IOException("the question bank changed since the snapshot");
+                    }
+                    row[column] = new Card(store.get(id));
+                }
+                else
+                {
+                    String category = in.readUTF();
+                    String question = in.readUTF();
+                    row[column] = new Card(question, in.readUTF(), points, category);
+                }
+                int state = in.readByte();
+                int respondent = in.readInt();
+                row[column].restore(state, respondent < 0 ? null : players.get(respondent));
+            }
+            board.put(points, row);
+        }
+
+        BoardSpec spec = new BoardSpec(columns, pointValues);
+        JeopardyGame game = new JeopardyGame(byCategory ? spec.byCategory() : spec, board);
+        for (Player player : players)
+        {
+            game.addPlayer(player);
+        }
+
+        ArrayList<Player> queue = new ArrayList<Player>();
+        int queueSize = in.readInt();
+        for (int i = 0; i < queueSize; i++)
+        {
+            queue.add(players.get(in.readInt()));
+        }
+        game.setTurnOrder(queue);
+
+        return game;
+    }
+}
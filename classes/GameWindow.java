@@ -1,6 +1,5 @@
 package classes;
 
-import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
@@ -13,36 +12,54 @@ import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
-import java.util.ArrayList;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.HashMap;
 import java.util.TreeMap;
-import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JFrame;
-import javax.swing.JList;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JSplitPane;
-import javax.swing.JTextArea;
-import javax.swing.JTextField;
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.border.Border;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumnModel;
 
 /**
- * This class creates the game window for the Jeopardy game
+ * This class creates the game window for the Jeopardy game. The window only
+ * shows the game: every click is passed to a GameEngine, and the board and
+ * leaderboard are updated when the engine says a card was closed or the turn
+ * moved.
  */
 public class GameWindow
     extends JFrame
     implements ActionListener
 {
-    private JeopardyGame             game;
+    private static final Font      CATEGORY_FONT   = new Font("Arial", Font.BOLD, 14);
+    private static final Border    BUTTON_BORDER   = new RoundedBorder(10);
+    private static final int       SNAPSHOT_MILLIS = 5000;
 
-    private Container                c;
+    private JeopardyGame           game;
 
-    private ArrayList<Player>        players;
+    private GameEngine             engine;
 
-    private DefaultListModel<String> leaderboardModel;
+    private HashMap<Card, JButton> buttons;
+
+    private Container              c;
+
+    private LeaderboardTableModel  leaderboardModel;
+
+    private JFrame                 leaderboardFrame;
+
+    private QuestionDialog         questionDialog;
+
+    private ActionListener         cardListener;
+
+    private Timer                  snapshotTimer;
 
     /**
      * Constructs a new game window
@@ -52,23 +69,48 @@ public class GameWindow
      */
     public GameWindow(JeopardyGame game)
     {
-        this.game = game;
-        this.leaderboardModel = new DefaultListModel<String>();
-        updatePlayersAndLeaderboard();
+        this(new GameEngine(game));
+    }
+
+
+    /**
+     * Constructs a new game window over an engine
+     * 
+     * @param engine
+     *            the engine of the game to be played
+     */
+    public GameWindow(GameEngine engine)
+    {
+        this.engine = engine;
+        this.game = engine.getGame();
+        this.buttons = new HashMap<Card, JButton>();
+        this.leaderboardModel = new LeaderboardTableModel(game);
+        this.cardListener = makeCardListener();
+        engine.addListener(makeEngineListener());
 
         // General Layout
         setTitle("Jeopardy");
 
         c = getContentPane();
 
-        // Initialize grid layout
-        int rows = (JeopardyGame.MAX_POINTS / 100) + 1;
-        int cols = 5;
+        // Initialize grid layout, with a header row when every column is a
+        // category
+        String[] categories = game.getCategories();
+        int rows = game.getBoardSpec().getRows() + (categories == null ? 1 : 2);
+        int cols = game.getBoardSpec().getColumns();
         GridLayout grid = new GridLayout(rows, cols);
         grid.setHgap(5);
         grid.setVgap(5);
         c.setLayout(grid);
 
+        if (categories != null)
+        {
+            for (String category : categories)
+            {
+                makeCategoryLabel(category);
+            }
+        }
+
         // Create cards for each question
         TreeMap<Integer, Card[]> allCards = game.getQuestions();
 
@@ -81,6 +123,36 @@ public class GameWindow
         }
 
         makeLeaderbordButton();
+        makeNewGameButton();
+
+        if (game.getSnapshotFile() != null)
+        {
+            // the timer runs on the event thread, so the game holds still
+            // while it is captured
+            snapshotTimer = new Timer(SNAPSHOT_MILLIS, new ActionListener() {
+                public void actionPerformed(ActionEvent e)
+                {
+                    game.saveSnapshot();
+                }
+            });
+            snapshotTimer.start();
+        }
+    }
+
+
+    /**
+     * Creates the header label of a category column.
+     * 
+     * @param category
+     *            the category of the column, or null if the column is mixed
+     */
+    public void makeCategoryLabel(String category)
+    {
+        JLabel label = new JLabel(
+            "<html><center>" + (category == null ? "" : category) + "</center></html>",
+            SwingConstants.CENTER);
+        label.setFont(CATEGORY_FONT);
+        c.add(label);
     }
 
 
@@ -95,124 +167,8 @@ public class GameWindow
         // Initialization of object "b" of JButton class.
         JButton b = new JButton(Integer.toString(card.getPoints())); // point
                                                                      // value
-        b.setBorder(new RoundedBorder(10));
-        // Separate popup for each button that shows the question and answer
-        // input
-        b.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e)
-            {
-                // Get the source of the event
-                JButton button = (JButton)e.getSource();
-
-                // Get the card associated with the button
-                Card card = (Card)button.getClientProperty("card");
-                if (!card.getVisibility())
-                {
-                    JOptionPane.showMessageDialog(
-                        getContentPane(),
-                        "This question has already been answered.");
-                    return;
-                }
-
-                // Disable the button
-                card.disableQuestion();
-
-                // Create a new window with the question text and answer field
-                JFrame questionFrame = new JFrame("Question");
-
-                // Add a listener to the window to move to the next player when
-                // the window is closed
-                questionFrame.addWindowListener(new WindowAdapter() {
-                    @Override
-                    public void windowClosing(WindowEvent e)
-                    {
-                        button.setBackground(Color.RED);
-                        button.setOpaque(true);
-                        button.setBorderPainted(false);
-                        button.setForeground(Color.WHITE);
-
-                        game.getNextPlayer(); // Move to the next player
-                        updatePlayersAndLeaderboard();
-                    }
-                });
-
-                JPanel questionPanel = new JPanel(new BorderLayout());
-
-                JTextArea questionText = new JTextArea(card.getQuestion());
-                questionText.setWrapStyleWord(true);
-                questionText.setLineWrap(true);
-                questionText.setEditable(false);
-                questionText.setFont(new Font("Arial", Font.PLAIN, 20));
-                questionPanel.add(questionText, BorderLayout.NORTH);
-
-                // Create the answer field and submit button
-                JTextField answerField = new JTextField();
-                answerField.setFont(new Font("Arial", Font.PLAIN, 16));
-                questionPanel.add(answerField, BorderLayout.CENTER);
-
-                JButton submitButton = new JButton("Submit");
-                submitButton.setSize(600, 50);
-
-                submitButton.addActionListener(new ActionListener() {
-                    public void actionPerformed(ActionEvent e)
-                    {
-                        // Get the player's answer
-                        String answer = answerField.getText();
-
-                        if (answer.equals(""))
-                        {
-                            JOptionPane.showMessageDialog(questionFrame, "Please enter an answer.");
-                            return;
-                        }
-
-                        boolean correct = card.submitAnswer(answer, game.getCurrentPlayer());
-
-                        // Check if the answer is correct
-                        if (correct)
-                        {
-                            // Display a message indicating that the answer is
-                            // correct
-                            JOptionPane.showMessageDialog(questionFrame, "Correct!");
-
-                            // Set the color of the button to green
-                            button.setBackground(Color.GREEN);
-                            button.setOpaque(true);
-                            button.setBorderPainted(false);
-                            button.setForeground(Color.WHITE);
-                        }
-                        else
-                        {
-                            // Display a message indicating that the answer is
-                            // incorrect
-                            JOptionPane.showMessageDialog(
-                                questionFrame,
-                                "Incorrect. The correct answer is: " + card.getAnswer());
-
-                            // Set the color of the button to red
-                            button.setBackground(Color.RED);
-                            button.setOpaque(true);
-                            button.setBorderPainted(false);
-                            button.setForeground(Color.WHITE);
-                        }
-
-                        game.getNextPlayer(); // Move to the next player
-
-                        updatePlayersAndLeaderboard();
-
-                        // Close the question window
-                        questionFrame.dispose();
-                    }
-                });
-
-                questionPanel.add(submitButton, BorderLayout.SOUTH);
-                questionFrame.add(questionPanel);
-
-                questionFrame.pack();
-                questionFrame.setLocationRelativeTo(null);
-                questionFrame.setSize(600, 200);
-                questionFrame.setVisible(true);
-            }
-        });
+        b.setBorder(BUTTON_BORDER);
+        b.addActionListener(cardListener);
 
         // Adding the button to the card layout
         JPanel buttonPanel = new JPanel(new GridBagLayout());
@@ -225,107 +181,114 @@ public class GameWindow
 
         // Store the card in the button so we can access it later
         b.putClientProperty("card", card);
+        buttons.put(card, b);
+
+        // a game picked up from its event log can have played cards
+        if (!card.getVisibility())
+        {
+            colorButton(b, card.getCorrect() ? Color.GREEN : Color.RED);
+        }
     }
 
 
     /**
-     * Creates a button for the leaderboard to open up in a new window.
+     * Colors the button of a played card
+     * 
+     * @param button
+     *            the card's button
+     * @param color
+     *            green for a correct answer, red otherwise
      */
-    public void makeLeaderbordButton()
+    static void colorButton(JButton button, Color color)
     {
-        updatePlayersAndLeaderboard();
+        button.setBackground(color);
+        button.setOpaque(true);
+        button.setBorderPainted(false);
+        button.setForeground(Color.WHITE);
+    }
 
-        JButton leaderboard = new JButton("Leaderboard");
 
-        leaderboard.addActionListener(new ActionListener() {
+    /**
+     * Creates the listener shared by all card buttons. It opens the question
+     * dialog for the card stored in the clicked button. The dialog is made on
+     * the first click and reused for every card after that.
+     * 
+     * @return the card button listener
+     */
+    private ActionListener makeCardListener()
+    {
+        return new ActionListener() {
             public void actionPerformed(ActionEvent e)
             {
-                updatePlayersAndLeaderboard();
-
-                JFrame qFrame = new JFrame("Leaderboard");
-
-                qFrame.setPreferredSize(new Dimension(600, 300));
-                qFrame.setLocationRelativeTo(null);
+                // Get the source of the event
+                JButton button = (JButton)e.getSource();
 
-                JPanel qPanel = new JPanel(new BorderLayout());
+                // Get the card associated with the button
+                Card card = (Card)button.getClientProperty("card");
 
-                JPanel buttonPanel = new JPanel(new GridBagLayout());
-                GridBagConstraints gbc = new GridBagConstraints();
-                gbc.fill = GridBagConstraints.HORIZONTAL;
-                gbc.weightx = 1.0;
-                gbc.anchor = GridBagConstraints.NORTH;
+                // Claim the card, which also disables it
+                if (!engine.pick(card))
+                {
+                    JOptionPane.showMessageDialog(
+                        getContentPane(),
+                        "This question has already been answered.");
+                    return;
+                }
 
-                for (int i = 0; i < players.size(); i++)
+                if (questionDialog == null)
                 {
-                    if (game.getCurrentPlayer().equals(players.get(i)))
-                    {
-                        leaderboardModel
-                            .addElement((i + 1) + ". " + players.get(i) + " (current turn)");
-                    }
-                    else
-                    {
-                        leaderboardModel.addElement((i + 1) + ". " + players.get(i));
-                    }
-
-                    JButton plus = new JButton("+");
-                    JButton minus = new JButton("-");
-
-                    final int index = i; // Declare i as a final variable
-
-                    plus.addActionListener(new ActionListener() {
-                        public void actionPerformed(ActionEvent e)
-                        {
-                            players.get(index).changePoints(100);
-
-                            updatePlayersAndLeaderboard();
-                        }
-                    });
-                    minus.addActionListener(new ActionListener() {
-                        public void actionPerformed(ActionEvent e)
-                        {
-                            players.get(index).changePoints(-100);
-
-                            updatePlayersAndLeaderboard();
-                        }
-                    });
-
-                    updatePlayersAndLeaderboard();
-
-                    JPanel buttonSubPanel = new JPanel(new BorderLayout());
-
-                    buttonSubPanel.add(minus, BorderLayout.WEST);
-                    buttonSubPanel.add(plus, BorderLayout.EAST);
-
-                    gbc.gridy = i; // Set the gridy to i
-                    gbc.anchor = GridBagConstraints.NORTH; // Set the anchor to
-                    // NORTH
-                    buttonPanel.add(buttonSubPanel, gbc); // Add the sub-panel
-                    // to the main button
-                    // panel
+                    questionDialog = new QuestionDialog(GameWindow.this, engine);
                 }
+                questionDialog.open(card);
+            }
+        };
+    }
+
+
+    /**
+     * Creates the listener that shows the engine's moves: a closed card's
+     * button is colored by the result, and since scores update the
+     * leaderboard by themselves, it is only refreshed when the turn moves.
+     * 
+     * @return the engine listener
+     */
+    private GameEngine.Listener makeEngineListener()
+    {
+        return new GameEngine.Listener() {
+            public void cardClosed(Card card, boolean correct)
+            {
+                colorButton(buttons.get(card), correct ? Color.GREEN : Color.RED);
+            }
 
-                updatePlayersAndLeaderboard();
 
-                JScrollPane scrollPane = new JScrollPane(buttonPanel);
-                JList<String> leaderboardList = new JList<>(leaderboardModel);
-                JScrollPane scrollPane2 = new JScrollPane(leaderboardList);
+            public void turnChanged(Player player)
+            {
+                leaderboardModel.refresh();
+            }
+        };
+    }
 
-                qPanel.add(scrollPane2, BorderLayout.WEST);
-                qPanel.add(scrollPane, BorderLayout.CENTER);
 
-                JSplitPane splitPane =
-                    new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, scrollPane2, scrollPane);
-                splitPane.setResizeWeight(0.75);
-                qPanel.add(splitPane, BorderLayout.CENTER);
+    /**
+     * Creates a button that opens the leaderboard window. The window is made
+     * once and kept, and it updates itself as scores change.
+     */
+    public void makeLeaderbordButton()
+    {
+        JButton leaderboard = new JButton("Leaderboard");
 
-                qFrame.add(qPanel);
-                qFrame.pack();
-                qFrame.setVisible(true);
+        leaderboard.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e)
+            {
+                if (leaderboardFrame == null)
+                {
+                    leaderboardFrame = makeLeaderboardFrame();
+                }
+                leaderboardFrame.setVisible(true);
+                leaderboardFrame.toFront();
             }
         });
 
-        updatePlayersAndLeaderboard();
-
         // Adding the leaderboard button to the game window
         JPanel buttonPanel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -334,58 +297,165 @@ public class GameWindow
         gbc.gridwidth = GridBagConstraints.REMAINDER; // Set gridwidth to
         // REMAINDER
         gbc.anchor = GridBagConstraints.NORTH; // Set the anchor to NORTH
-        gbc.gridy = players.size(); // Set the gridy to the last row
         buttonPanel.add(leaderboard, gbc);
         c.add(buttonPanel);
     }
 
 
     /**
-     * Updates the players and the leaderboard. Updates the leaderboard using
-     * the helper method updateLeaderboard().
+     * Creates the leaderboard window: a table of the players by rank, with a
+     * - and a + button in every row to take away or give 100 points.
+     * 
+     * @return the leaderboard window
      */
-    private void updatePlayersAndLeaderboard()
+    private JFrame makeLeaderboardFrame()
     {
-        players = new ArrayList<>(game.getPlayers());
+        JFrame frame = new JFrame("Leaderboard");
+        frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+        frame.setPreferredSize(new Dimension(600, 300));
+
+        JTable table = new JTable(leaderboardModel);
+        table.setRowSelectionAllowed(false);
+        table.getTableHeader().setReorderingAllowed(false);
+
+        // the +/- cells are painted as buttons and clicks on them are handled
+        // by the table
+        JButton cellButton = new JButton();
+        TableCellRenderer buttonRenderer = new TableCellRenderer() {
+            public Component getTableCellRendererComponent(
+                JTable table,
+                Object value,
+                boolean isSelected,
+                boolean hasFocus,
+                int row,
+                int column)
+            {
+                cellButton.setText(String.valueOf(value));
+                return cellButton;
+            }
+        };
+
+        TableColumnModel columns = table.getColumnModel();
+        columns.getColumn(LeaderboardTableModel.RANK_COLUMN).setMaxWidth(50);
+        columns.getColumn(LeaderboardTableModel.POINTS_COLUMN).setMaxWidth(100);
+        for (int column : new int[] { LeaderboardTableModel.MINUS_COLUMN,
+            LeaderboardTableModel.PLUS_COLUMN })
+        {
+            columns.getColumn(column).setCellRenderer(buttonRenderer);
+            columns.getColumn(column).setMaxWidth(50);
+        }
+
+        table.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e)
+            {
+                int row = table.rowAtPoint(e.getPoint());
+                int column = table.columnAtPoint(e.getPoint());
+                Player player = row < 0 ? null : leaderboardModel.getPlayer(row);
+                if (player == null)
+                {
+                    return;
+                }
+
+                if (column == LeaderboardTableModel.PLUS_COLUMN)
+                {
+                    engine.adjustPoints(player, 100);
+                }
+                else if (column == LeaderboardTableModel.MINUS_COLUMN)
+                {
+                    engine.adjustPoints(player, -100);
+                }
+            }
+        });
 
-        updateLeaderboard();
+        frame.add(new JScrollPane(table));
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        return frame;
     }
 
 
     /**
-     * Updates the leaderboard. Clears the leaderboard and adds the players in
-     * the correct order using new data.
+     * Creates a button that starts a rematch with the same players on a new
+     * board. The board is normally prefetched, so the new window opens right
+     * away.
      */
-    private void updateLeaderboard()
+    public void makeNewGameButton()
     {
-        leaderboardModel.clear();
-        for (int i = 0; i < players.size(); i++)
-        {
-            if (game.getCurrentPlayer().equals(players.get(i)))
-            {
-                leaderboardModel.addElement((i + 1) + ". " + players.get(i) + " (current turn)");
-            }
-            else
+        JButton newGame = new JButton("New Game");
+
+        newGame.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e)
             {
-                leaderboardModel.addElement((i + 1) + ". " + players.get(i));
+                int choice = JOptionPane.showConfirmDialog(
+                    getContentPane(),
+                    "Start a new game with the same players?",
+                    "New Game",
+                    JOptionPane.YES_NO_OPTION);
+                if (choice != JOptionPane.YES_OPTION)
+                {
+                    return;
+                }
+
+                GameWindow gameWindow = new GameWindow(engine.rematch());
+                gameWindow.setSize(getSize());
+                gameWindow.setLocation(getLocation());
+                gameWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                gameWindow.setVisible(true);
+
+                dispose();
             }
+        });
+
+        // Adding the new game button next to the leaderboard button
+        JPanel buttonPanel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.weightx = 1.0;
+        gbc.anchor = GridBagConstraints.NORTH;
+        buttonPanel.add(newGame, gbc);
+        c.add(buttonPanel);
+    }
+
+
+    /**
+     * Closes the game window together with its leaderboard and question
+     * windows
+     */
+    public void dispose()
+    {
+        if (snapshotTimer != null)
+        {
+            snapshotTimer.stop();
+            game.saveSnapshot();
+        }
+        if (leaderboardFrame != null)
+        {
+            leaderboardFrame.dispose();
+        }
+        if (questionDialog != null)
+        {
+            questionDialog.dispose();
         }
+        leaderboardModel.dispose();
+
+        super.dispose();
     }
 
 
     /**
-     * Updates the players and the leaderboard.
+     * Updates the leaderboard.
      * 
      * @param e
      *            the action event
      */
     public void actionPerformed(ActionEvent e)
     {
-        updatePlayersAndLeaderboard();
+        leaderboardModel.refresh();
     }
 
     /**
-     * A class that creates a rounded border for the buttons.
+     * A class that creates a rounded border for the buttons. It keeps no
+     * state besides the radius, so one instance is shared by all buttons.
      */
     private static class RoundedBorder
         implements Border
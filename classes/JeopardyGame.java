@@ -1,14 +1,19 @@
 package classes;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
-import java.util.Scanner;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.JFrame;
 
 /**
@@ -17,24 +22,263 @@ import javax.swing.JFrame;
  */
 public class JeopardyGame
 {
-    public static final int          MAX_POINTS = 500;
-    private ArrayList<Player>        players;
-    private Queue<Player>            playerQueue;
-    private TreeMap<Integer, Card[]> questions;
+    private static final String                         PACK_PATH       =
+        QuestionPackCompiler.DEFAULT_PACK;
+    private static final String[]                       CSV_DIRECTORIES =
+        { "assets/jeopardy-questions/main", "assets/jeopardy-questions/other" };
+
+    private static volatile QuestionLibrary             library;
+    private static BankReloader                         reloader;
+    private static SearchIndex                          searchIndex;
+    private static QuestionBank                         searchIndexBank;
+    private QuestionStore                               store;
+    private BoardSpec                                   spec;
+    private BoardPrefetcher                             prefetcher;
+    private ArrayList<Player>                           players;
+    private Leaderboard                                 leaderboard;
+    private Queue<Player>                               playerQueue;
+    private CompletableFuture<TreeMap<Integer, Card[]>> questions;
+    private GameEventLog                                eventLog;
+    private Path                                        snapshotFile;
+    private int                                         changes;
+    private int                                         savedChanges;
 
     /**
-     * Constructor for JeopardyGame class
+     * Constructor for JeopardyGame class. Uses the standard 5 by 5 board.
      */
     public JeopardyGame()
     {
+        this(getStandardSpec());
+    }
+
+
+    /**
+     * Constructs a game with the given board layout that draws from the
+     * sampler of the question library, so no question appears twice on the
+     * board or again in the next games until the bank runs out.
+     * 
+     * @param spec
+     *            the number of columns and the point values of the rows
+     * @throws IllegalArgumentException
+     *             if a row of the layout does not have enough questions
+     */
+    public JeopardyGame(BoardSpec spec)
+    {
+        this(spec, getLibrary(), null);
+    }
+
+
+    /**
+     * Constructs a game with the given board layout that draws its questions
+     * from the given sampler. Passing the same sampler to every game of a
+     * session keeps questions from repeating between games. The board is
+     * generated in the background, so the constructor returns right away.
+     * 
+     * @param spec
+     *            the number of columns and the point values of the rows
+     * @param sampler
+     *            the sampler to draw the questions from, over the bank of the
+     *            current question library
+     * @throws IllegalArgumentException
+     *             if the sampler draws from another bank, or a row of the
+     *             layout does not have enough questions
+     */
+    public JeopardyGame(BoardSpec spec, QuestionSampler sampler)
+    {
+        this(spec, getLibrary(), sampler);
+    }
+
+
+    /**
+     * Constructs a game whose board, sampler and store all come from one
+     * version of the question data, even if the bank is reloaded meanwhile
+     * 
+     * @param spec
+     *            the number of columns and the point values of the rows
+     * @param library
+     *            the question library to deal the board from
+     * @param sampler
+     *            the sampler to draw the questions from, or null for the
+     *            library's own
+     */
+    private JeopardyGame(BoardSpec spec, QuestionLibrary library, QuestionSampler sampler)
+    {
+        this.spec = spec;
+        store = library.getStore();
+        players = new ArrayList<Player>();
+        leaderboard = new Leaderboard();
+        playerQueue = new LinkedList<Player>();
+        try
+        {
+            questions = library.newBuilder(spec, sampler == null ? library.getSampler()
+                : sampler).buildAsync();
+        }
+        catch (IOException ex)
+        {
+            // reported by getQuestions like a question that cannot be read
+            questions = CompletableFuture.failedFuture(new UncheckedIOException(ex));
+        }
+    }
+
+
+    /**
+     * Constructs a game that takes its board from a prefetcher. If the
+     * prefetcher has a board ready the game starts without reading any
+     * questions. Rematches of this game use the same prefetcher.
+     * 
+     * @param prefetcher
+     *            the prefetcher to take the board from
+     */
+    public JeopardyGame(BoardPrefetcher prefetcher)
+    {
+        this.spec = prefetcher.getSpec();
+        this.prefetcher = prefetcher;
+        store = getStore();
         players = new ArrayList<Player>();
+        leaderboard = new Leaderboard();
         playerQueue = new LinkedList<Player>();
-        questions = new TreeMap<Integer, Card[]>();
+        questions = prefetcher.next();
+    }
+
 
-        for (int i = 100; i <= MAX_POINTS; i += 100)
+    /**
+     * Constructs a game on a board that is already dealt, such as one read
+     * back from a GameEventLog
+     * 
+     * @param spec
+     *            the number of columns and the point values of the rows
+     * @param board
+     *            the cards by point value
+     */
+    public JeopardyGame(BoardSpec spec, TreeMap<Integer, Card[]> board)
+    {
+        this.spec = spec;
+        store = getStore();
+        players = new ArrayList<Player>();
+        leaderboard = new Leaderboard();
+        playerQueue = new LinkedList<Player>();
+        questions = CompletableFuture.completedFuture(board);
+    }
+
+
+    /**
+     * Creates a new game with the same board layout and the same players, in
+     * the same turn order, each starting again from 0 points. The board comes
+     * from the prefetcher when this game has one, and the new game is
+     * recorded in the same event log.
+     * 
+     * @return the new game
+     */
+    public JeopardyGame rematch()
+    {
+        JeopardyGame game = prefetcher != null ? new JeopardyGame(prefetcher)
+            : new JeopardyGame(spec);
+        if (eventLog != null)
+        {
+            game.setEventLog(eventLog);
+        }
+        game.setSnapshotFile(snapshotFile);
+
+        for (Player player : players)
         {
-            questions.put(i, getFiveRandomCards(i));
+            game.addPlayer(new Player(player.getUsername()));
         }
+
+        return game;
+    }
+
+
+    /**
+     * Gets the layout of the board
+     * 
+     * @return the board spec of this game
+     */
+    public BoardSpec getBoardSpec()
+    {
+        return spec;
+    }
+
+
+    /**
+     * Records this game in an event log from now on, starting with its board
+     * and the players added so far. Waits for the board if it is not ready.
+     * 
+     * @param log
+     *            the log to record the game in
+     */
+    public void setEventLog(GameEventLog log)
+    {
+        log.recordBoard(spec, getQuestions());
+        for (Player player : players)
+        {
+            log.recordPlayerAdded(player.getUsername());
+        }
+        eventLog = log;
+    }
+
+
+    /**
+     * Returns the event log this game is recorded in
+     * 
+     * @return the event log, or null if the game is not recorded
+     */
+    GameEventLog getEventLog()
+    {
+        return eventLog;
+    }
+
+
+    /**
+     * Sets the file saveSnapshot writes this game's snapshots to
+     * 
+     * @param file
+     *            the snapshot file, or null to not take snapshots
+     */
+    public void setSnapshotFile(Path file)
+    {
+        snapshotFile = file;
+    }
+
+
+    /**
+     * Returns the file snapshots of this game are written to
+     * 
+     * @return the snapshot file, or null if no snapshots are taken
+     */
+    public Path getSnapshotFile()
+    {
+        return snapshotFile;
+    }
+
+
+    /**
+     * Takes a snapshot of the game if it changed since the last one, and
+     * writes it to the snapshot file in the background. Call it from the
+     * thread that plays the game.
+     */
+    public void saveSnapshot()
+    {
+        if (snapshotFile == null || changes == savedChanges)
+        {
+            return;
+        }
+
+        savedChanges = changes;
+        GameSnapshot.capture(this, store).writeLater(snapshotFile, eventLog);
+    }
+
+
+    /**
+     * Records this game in an event log from now on, for a game that was
+     * replayed from that same log. Nothing that happened before is recorded
+     * again.
+     * 
+     * @param log
+     *            the log the game was replayed from
+     */
+    public void continueEventLog(GameEventLog log)
+    {
+        eventLog = log;
     }
 
 
@@ -48,29 +292,152 @@ public class JeopardyGame
     {
         players.add(player);
         playerQueue.add(player);
+        leaderboard.add(player);
+        changes++;
+
+        if (eventLog != null)
+        {
+            eventLog.recordPlayerAdded(player.getUsername());
+        }
     }
 
 
     /**
-     * Returns an ArrayList of players from the TreeSet for convenient access
+     * Opens a card of the board for the current player
      * 
-     * @return an ArrayList of players in descending order
+     * @param card
+     *            a card of this game's board
+     * @return true if the card was open and is now claimed, false if it was
+     *         already played
      */
-    public ArrayList<Player> getPlayers()
+    public boolean openCard(Card card)
     {
-        TreeSet<Player> p = new TreeSet<Player>();
-        p.addAll(players);
+        if (!card.tryClaim())
+        {
+            return false;
+        }
+        changes++;
+
+        if (eventLog != null)
+        {
+            eventLog.recordCardOpened(card.getPoints(), getColumn(card));
+        }
+        return true;
+    }
+
+
+    /**
+     * Submits the current player's answer to an opened card. The player gains
+     * or loses the card's points.
+     * 
+     * @param card
+     *            a card of this game's board
+     * @param answer
+     *            the answer given
+     * @return true if the answer is correct
+     * @throws IllegalStateException
+     *             if the card was already answered
+     */
+    public boolean submitAnswer(Card card, String answer)
+    {
+        Player player = getCurrentPlayer();
+        boolean correct = card.submitAnswer(answer, player);
+        changes++;
+
+        if (eventLog != null)
+        {
+            eventLog.recordAnswer(card.getPoints(), getColumn(card), players.indexOf(player),
+                correct, answer);
+        }
+        return correct;
+    }
+
+
+    /**
+     * Gives up an opened card without answering it. Nobody's points change.
+     * 
+     * @param card
+     *            a card of this game's board
+     * @throws IllegalStateException
+     *             if the card was not opened or was already answered
+     */
+    public void passCard(Card card)
+    {
+        card.pass();
+        changes++;
+
+        if (eventLog != null)
+        {
+            eventLog.recordCardPassed(card.getPoints(), getColumn(card));
+        }
+    }
+
+
+    /**
+     * Puts a card that was opened but never answered or passed, as a crash in
+     * the middle of a turn leaves one, back on the board
+     * 
+     * @param card
+     *            a card of this game's board
+     * @return true if the card was left open and can be picked again
+     */
+    public boolean reopenCard(Card card)
+    {
+        if (!card.reopen())
+        {
+            return false;
+        }
+        changes++;
+
+        if (eventLog != null)
+        {
+            eventLog.recordCardReopened(card.getPoints(), getColumn(card));
+        }
+        return true;
+    }
 
-        ArrayList<Player> players = new ArrayList<Player>();
 
-        // iterate in descending order of points
-        Iterator<Player> iter = p.descendingIterator();
-        while (iter.hasNext())
+    /**
+     * Gives a player points or takes them away by hand, outside of answering
+     * a card
+     * 
+     * @param player
+     *            a player of this game
+     * @param delta
+     *            the points to add, negative to take points away
+     */
+    public void adjustPoints(Player player, int delta)
+    {
+        player.changePoints(delta);
+        changes++;
+
+        if (eventLog != null)
         {
-            players.add(iter.next());
+            eventLog.recordPointsAdjusted(players.indexOf(player), delta);
         }
+    }
 
-        return players;
+
+    /**
+     * Returns the players ranked by the leaderboard
+     * 
+     * @return an ArrayList of players in descending order
+     */
+    public ArrayList<Player> getPlayers()
+    {
+        return leaderboard.getPlayers();
+    }
+
+
+    /**
+     * Returns the leaderboard that ranks the players of this game. It is kept
+     * up to date as the players' points change.
+     * 
+     * @return the leaderboard
+     */
+    public Leaderboard getLeaderboard()
+    {
+        return leaderboard;
     }
 
 
@@ -83,11 +450,51 @@ public class JeopardyGame
     {
         Player player = playerQueue.poll();
         playerQueue.add(player);
+        changes++;
 
+        if (eventLog != null)
+        {
+            eventLog.recordTurnAdvanced();
+        }
         return player;
     }
 
 
+    /**
+     * Returns the players in the order they were added
+     * 
+     * @return a copy of the list of players
+     */
+    ArrayList<Player> getJoinOrder()
+    {
+        return new ArrayList<Player>(players);
+    }
+
+
+    /**
+     * Returns the players in turn order, starting with the current player
+     * 
+     * @return a copy of the turn queue
+     */
+    ArrayList<Player> getTurnOrder()
+    {
+        return new ArrayList<Player>(playerQueue);
+    }
+
+
+    /**
+     * Puts the players of the game in a saved turn order
+     * 
+     * @param order
+     *            the players, starting with the current player
+     */
+    void setTurnOrder(List<Player> order)
+    {
+        playerQueue.clear();
+        playerQueue.addAll(order);
+    }
+
+
     /**
      * Gets the current player
      * 
@@ -100,16 +507,77 @@ public class JeopardyGame
 
 
     /**
-     * Gets the questions for the game
+     * Gets the questions for the game, waiting for the board to finish
+     * generating if it is not ready yet. The game cannot go on without its
+     * board, so if a question cannot be read the program stops.
      * 
      * @return a TreeMap of questions
      */
     public TreeMap<Integer, Card[]> getQuestions()
+    {
+        try
+        {
+            return questions.join();
+        }
+        catch (CompletionException ex)
+        {
+            if (!(ex.getCause() instanceof UncheckedIOException))
+            {
+                throw ex;
+            }
+            System.out.println("***Cannot open " + ex.getCause().getCause().getMessage() + " ***");
+            System.exit(1);
+            return null;
+        }
+    }
+
+
+    /**
+     * Gets the questions for the game without waiting for them
+     * 
+     * @return a future that completes with the TreeMap of questions
+     */
+    public CompletableFuture<TreeMap<Integer, Card[]>> getQuestionsAsync()
     {
         return questions;
     }
 
 
+    /**
+     * Gets the category of each column when the board is built by category,
+     * waiting for the board if needed. A column that could not be filled from
+     * a single category has a null category.
+     * 
+     * @return the category of each column, or null if every card is an
+     *         independent random question
+     */
+    public String[] getCategories()
+    {
+        if (!spec.isByCategory())
+        {
+            return null;
+        }
+
+        String[] columns = new String[spec.getColumns()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            for (Card[] row : getQuestions().values())
+            {
+                if (columns[i] == null)
+                {
+                    columns[i] = row[i].getCategory();
+                }
+                else if (!columns[i].equals(row[i].getCategory()))
+                {
+                    columns[i] = null;
+                    break;
+                }
+            }
+        }
+        return columns;
+    }
+
+
     /**
      * Gets the questions for the game given the point value
      * 
@@ -119,105 +587,338 @@ public class JeopardyGame
      */
     public Card[] getQuestions(int points)
     {
-        return questions.get(points);
+        return getQuestions().get(points);
+    }
+
+
+    /**
+     * Finds the column of a card on the board
+     * 
+     * @param card
+     *            a card of this game's board
+     * @return its column
+     * @throws IllegalArgumentException
+     *             if the card is not on the board
+     */
+    private int getColumn(Card card)
+    {
+        Card[] row = getQuestions(card.getPoints());
+        for (int column = 0; row != null && column < row.length; column++)
+        {
+            if (row[column] == card)
+            {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(card + " is not on the board");
+    }
+
+
+    /**
+     * Returns the question data shared by all games: the question bank and
+     * the indexes over it. The compiled question pack is used if it exists,
+     * otherwise the csv files are read directly. Once watchBank has been
+     * called this is replaced whenever the files change; reading it never
+     * waits for a reload.
+     * 
+     * @return the question library
+     */
+    public static QuestionLibrary getLibrary()
+    {
+        QuestionLibrary current = library;
+        return current != null ? current : openLibrary();
     }
 
 
     /**
-     * Gets five random cards given the point value
+     * Opens the question library the first time it is needed
      * 
-     * @param point
-     *            the point value for which you want the questions
-     * @return returns an array of five random cards
+     * @return the question library
      */
-    private Card[] getFiveRandomCards(int point)
+    private static synchronized QuestionLibrary openLibrary()
     {
-        int num = MAX_POINTS / 100;
-        Card[] card = new Card[num];
-        for (int i = 0; i < num; i++)
+        if (library == null)
         {
-            card[i] = getSingularCard(point);
+            try
+            {
+                library = QuestionLibrary.open(PACK_PATH, CSV_DIRECTORIES);
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot open " + PACK_PATH + " ***");
+                System.exit(1);
+            }
         }
-        return card;
+
+        return library;
     }
 
 
     /**
-     * Gets a singular card given a point value
+     * Starts reloading the shared question library whenever the question
+     * files change. Calling it again returns the same reloader.
      * 
-     * @param point
-     *            value for the question
-     * @return the Card with the question
+     * @return the reloader, to listen for new libraries
      */
-    private Card getSingularCard(int point)
+    public static synchronized BankReloader watchBank()
     {
-        String filename = point + ".csv";
-        String pathname = "assets/jeopardy-questions/main/" + filename;
+        if (reloader == null)
+        {
+            try
+            {
+                reloader = new BankReloader(getLibrary(), PACK_PATH, CSV_DIRECTORIES);
+                reloader.addListener(loaded -> library = loaded);
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot watch " + ex.getMessage() + " ***");
+                System.exit(1);
+            }
+        }
+
+        return reloader;
+    }
+
+
+    /**
+     * Returns the question bank shared by all games
+     * 
+     * @return the question bank
+     */
+    public static QuestionBank getBank()
+    {
+        return getLibrary().getBank();
+    }
+
+
+    /**
+     * Returns the category index over the shared question bank
+     * 
+     * @return the category index
+     */
+    public static CategoryIndex getCategoryIndex()
+    {
+        return getLibrary().getCategoryIndex();
+    }
+
+
+    /**
+     * Returns the question store over the shared question bank, which gives
+     * every question of the bank an id
+     * 
+     * @return the question store
+     */
+    public static QuestionStore getStore()
+    {
+        return getLibrary().getStore();
+    }
+
+
+    /**
+     * Returns the full-text search index over the shared question bank. It is
+     * compiled the first time it is needed and mapped after that, and
+     * compiled again for a reloaded bank.
+     * 
+     * @return the search index
+     */
+    public static synchronized SearchIndex getSearchIndex()
+    {
+        QuestionBank current = getBank();
+        if (searchIndexBank != current)
+        {
+            try
+            {
+                File file = new File(SearchIndex.DEFAULT_INDEX);
+                if (searchIndex != null)
+                {
+                    // the bank was reloaded and may have the same number of
+                    // questions as the index
+                    new SearchIndexCompiler(current).compile(file);
+                }
+                searchIndex = SearchIndex.open(file, current);
+                searchIndexBank = current;
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot open " + SearchIndex.DEFAULT_INDEX + " ***");
+                System.exit(1);
+            }
+        }
+
+        return searchIndex;
+    }
 
-        File file = new File(pathname);
-        Scanner input = null;
 
+    /**
+     * Returns the standard 5 by 5 board spec for the shared question bank
+     * 
+     * @return the standard board spec
+     */
+    private static BoardSpec getStandardSpec()
+    {
         try
         {
-            input = new Scanner(file);
+            return BoardSpec.standard(getBank());
         }
-        catch (FileNotFoundException ex)
+        catch (IOException ex)
         {
-            System.out.println("***Cannot open " + pathname + " ***");
+            System.out.println("***Cannot open " + ex.getMessage() + " ***");
             System.exit(1);
         }
 
-        int numLines = 0;
-        while (input.hasNext())
+        return null;
+    }
+
+
+    /**
+     * Reads the board layout from the command line arguments. With no
+     * arguments the standard board is used. "columns rows" picks the lowest
+     * point values that have questions, "columns rows first" starts at the
+     * given point value, and "columns rows first step" uses an exact ladder
+     * such as 400 800 ... 2000. Adding --categories anywhere fills every
+     * column from a single category.
+     * 
+     * @param args
+     *            the command line arguments
+     * @return the board spec to play with
+     */
+    static BoardSpec parseSpec(String[] args)
+    {
+        List<String> list = new ArrayList<String>(Arrays.asList(args));
+        if (list.remove("--categories"))
         {
-            numLines++;
-            input.nextLine();
+            return parseSpec(list.toArray(new String[0])).byCategory();
         }
 
-        int randomQuestionLine = (int)(Math.random() * numLines);
-        int count = 0;
+        if (args.length < 2)
+        {
+            return getStandardSpec();
+        }
 
         try
         {
-            input = new Scanner(file);
-            while (input.hasNext())
+            int columns = Integer.parseInt(args[0]);
+            int rows = Integer.parseInt(args[1]);
+            int first = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+            if (args.length > 3)
             {
-                if (count == randomQuestionLine)
-                {
-                    String str = input.nextLine();
-                    String[] arr = str.substring(1, str.length() - 1).split("\",\"");
+                BoardSpec spec = BoardSpec.ladder(columns, rows, first, Integer.parseInt(args[3]));
+                spec.validate(getBank());
+                return spec;
+            }
+            return BoardSpec.fromData(getBank(), columns, rows, first);
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot open " + ex.getMessage() + " ***");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            System.out.println("***" + ex.getMessage() + " ***");
+        }
 
-                    String category = arr[0];
-                    String pointValue = arr[1].replace("$", "");
-                    String question = arr[2];
-                    String answer = arr[3];
+        System.exit(1);
+        return null;
+    }
 
-                    input.close();
 
-                    return new Card(question, answer, Integer.parseInt(pointValue), category);
-                }
+    public static void main(String args[])
+    {
+        // --log file records every event of the game and --snapshot file
+        // saves its state every few seconds; if the files already hold a
+        // game, it is picked up again
+        List<String> list = new ArrayList<String>(Arrays.asList(args));
+        Path logFile = takeOption(list, "--log");
+        Path snapshotFile = takeOption(list, "--snapshot");
+        String topic = takeValue(list, "--topic");
+        boolean watch = list.remove("--watch");
+        GameEventLog log = null;
+        JeopardyGame game = null;
+        boolean inLog = false;
+        try
+        {
+            GameSnapshot snapshot = snapshotFile != null && Files.exists(snapshotFile)
+                ? GameSnapshot.read(snapshotFile) : null;
+            if (logFile != null && Files.exists(logFile)
+                && (snapshot == null || snapshot.getLogOffset() >= 0))
+            {
+                // only the events after the snapshot are replayed
+                GameReplayer replayer = new GameReplayer(logFile);
+                game = snapshot == null ? replayer.replay()
+                    : replayer.replayFrom(snapshot.restore(getStore()), snapshot.getLogOffset());
+                replayer.truncate();
+                inLog = game != null;
+            }
+            else if (snapshot != null)
+            {
+                game = snapshot.restore(getStore());
+            }
 
-                count++;
-                input.nextLine();
+            if (logFile != null)
+            {
+                log = openEventLog(logFile);
             }
         }
-        catch (FileNotFoundException ex)
+        catch (IOException ex)
         {
-            input.close();
-
-            System.out.println("***Cannot open " + pathname + " ***");
+            System.out.println("***Cannot open " + ex.getMessage() + " ***");
             System.exit(1);
         }
 
-        input.close();
+        if (game == null)
+        {
+            // boards for this game and its rematches are built on a low
+            // priority thread, sharing one sampler so questions do not repeat
+            // between games
+            BoardSpec spec = parseSpec(list.toArray(new String[0]));
+            BoardPrefetcher prefetcher =
+                new BoardPrefetcher(newBuilder(getLibrary(), spec, topic), 1);
 
-        return null;
-    }
+            if (watch)
+            {
+                // rematches are dealt from the new questions once they load
+                watchBank().addListener(loaded -> {
+                    try
+                    {
+                        prefetcher.setBuilder(newBuilder(loaded, spec, topic));
+                    }
+                    catch (IllegalArgumentException ex)
+                    {
+                        System.out.println("***" + ex.getMessage() + " ***");
+                    }
+                });
+            }
 
+            game = new JeopardyGame(prefetcher);
+        }
+        else if (watch)
+        {
+            watchBank();
+        }
+        if (log != null)
+        {
+            if (inLog)
+            {
+                game.continueEventLog(log);
+            }
+            else
+            {
+                game.setEventLog(log);
+            }
+        }
+        game.setSnapshotFile(snapshotFile);
 
-    public static void main(String args[])
-    {
-        JeopardyGame game = new JeopardyGame();
+        if (!game.getPlayers().isEmpty())
+        {
+            // a recovered game goes straight back to the board
+            GameWindow gameWindow = new GameWindow(game);
+            gameWindow.setSize(600, 600);
+            gameWindow.setLocationRelativeTo(null);
+            gameWindow.setVisible(true);
+            gameWindow.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            return;
+        }
 
         LoginWindow login = new LoginWindow(game);
 
@@ -231,4 +932,107 @@ public class JeopardyGame
         // Function to set default operation of JFrame.
         login.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     }
+
+
+    /**
+     * Makes the builder of a game's boards
+     * 
+     * @param library
+     *            the questions to draw from
+     * @param spec
+     *            the layout of the boards
+     * @param topic
+     *            the query every board is dealt from, or null to draw from
+     *            all questions
+     * @return the builder
+     * @throws IllegalArgumentException
+     *             if a row of the layout does not have enough questions
+     */
+    private static BoardBuilder newBuilder(QuestionLibrary library, BoardSpec spec, String topic)
+    {
+        BoardBuilder builder = null;
+        try
+        {
+            builder = library.newBuilder(spec);
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot open " + ex.getMessage() + " ***");
+            System.exit(1);
+        }
+
+        if (topic != null)
+        {
+            // --topic "query" deals every board from the matching questions
+            builder.setTopic(getSearchIndex(), topic);
+        }
+        return builder;
+    }
+
+
+    /**
+     * Removes an option and its value from the command line arguments
+     * 
+     * @param args
+     *            the arguments
+     * @param name
+     *            the option, such as --log
+     * @return the value of the option as a path, or null if it is not given
+     */
+    private static Path takeOption(List<String> args, String name)
+    {
+        String value = takeValue(args, name);
+        return value == null ? null : Paths.get(value);
+    }
+
+
+    /**
+     * Removes an option and its value from the command line arguments
+     * 
+     * @param args
+     *            the arguments
+     * @param name
+     *            the option, such as --topic
+     * @return the value of the option, or null if it is not given
+     */
+    private static String takeValue(List<String> args, String name)
+    {
+        int i = args.indexOf(name);
+        if (i < 0 || i + 1 >= args.size())
+        {
+            return null;
+        }
+
+        String value = args.remove(i + 1);
+        args.remove(i);
+        return value;
+    }
+
+
+    /**
+     * Opens an event log for appending and makes sure its last events are
+     * synced when the program exits
+     * 
+     * @param file
+     *            the log file
+     * @return the log
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    private static GameEventLog openEventLog(Path file)
+        throws IOException
+    {
+        GameEventLog log = new GameEventLog(file);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try
+            {
+                log.close();
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot write " + file + " ***");
+            }
+        }));
+        return log;
+    }
 }
@@ -0,0 +1,623 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps players ranked by points, highest first, with ties broken by username
+ * like Player.compareTo. The ranking is an order statistic treap: a binary
+ * search tree that stays balanced through random node priorities and stores
+ * the size of every subtree. Changing a player's score, finding the player at
+ * a rank and finding a player's rank all cost O(log n), and the top k players
+ * cost O(k + log n), so a game no longer sorts every player after every
+ * answer.
+ *
+ * A player's position is stored with the points it had when it was last
+ * placed, so points can change while the player is ranked. Player calls
+ * update() whenever its points change. Listeners are told which ranks a
+ * change touched after every change, outside the leaderboard's lock, on the
+ * thread that made it, and getEntry reads a rank's player and the points it
+ * is ranked by together.
+ */
+public class Leaderboard
+{
+    private HashMap<Player, Node>          nodes;
+    private Node                           root;
+    private long                           nextOrder;
+    private CopyOnWriteArrayList<Listener> listeners;
+
+    /**
+     * Creates an empty leaderboard
+     */
+    public Leaderboard()
+    {
+        nodes = new HashMap<Player, Node>();
+        listeners = new CopyOnWriteArrayList<Listener>();
+    }
+
+
+    /**
+     * Adds a listener that is told whenever a player is added, removed or
+     * changes rank or points
+     *
+     * @param listener
+     *            the listener to add
+     */
+    public void addChangeListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Removes a change listener
+     *
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeChangeListener(Listener listener)
+    {
+        listeners.remove(listener);
+    }
+
+
+    /**
+     * Adds a player to the leaderboard. The player keeps the leaderboard up to
+     * date from then on when its points change.
+     *
+     * @param player
+     *            the player to add
+     */
+    public void add(Player player)
+    {
+        int first;
+        int last;
+        synchronized (this)
+        {
+            if (nodes.containsKey(player))
+            {
+                return;
+            }
+
+            Node node = new Node(player, nextOrder++);
+            nodes.put(player, node);
+            root = insert(root, node);
+            player.setLeaderboard(this);
+
+            // everyone from the new player down moves one rank
+            first = getRank(player);
+            last = size(root);
+        }
+        fireChanged(first, last);
+    }
+
+
+    /**
+     * Removes a player from the leaderboard
+     *
+     * @param player
+     *            the player to remove
+     */
+    public void remove(Player player)
+    {
+        int first;
+        int last;
+        synchronized (this)
+        {
+            if (!nodes.containsKey(player))
+            {
+                return;
+            }
+
+            first = getRank(player);
+            last = size(root);
+            root = delete(root, nodes.remove(player));
+            player.setLeaderboard(null);
+        }
+        fireChanged(first, last);
+    }
+
+
+    /**
+     * Moves a player to the position for its current points
+     *
+     * @param player
+     *            the player whose points changed
+     */
+    public void update(Player player)
+    {
+        int first;
+        int last;
+        synchronized (this)
+        {
+            Node node = nodes.get(player);
+            if (node == null || node.points == player.getPoints())
+            {
+                return;
+            }
+
+            // only the ranks between the old and new place change
+            int from = getRank(player);
+            root = delete(root, node);
+            node.points = player.getPoints();
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+            root = insert(root, node);
+            int to = getRank(player);
+
+            first = Math.min(from, to);
+            last = Math.max(from, to);
+        }
+        fireChanged(first, last);
+    }
+
+
+    /**
+     * Returns the number of players on the leaderboard
+     *
+     * @return the number of players
+     */
+    public synchronized int size()
+    {
+        return size(root);
+    }
+
+
+    /**
+     * Returns the players with the most points
+     *
+     * @param k
+     *            how many players to return
+     * @return up to k players in descending order of points
+     */
+    public synchronized ArrayList<Player> getTop(int k)
+    {
+        ArrayList<Player> top = new ArrayList<Player>(Math.max(0, Math.min(k, size(root))));
+        collect(root, top, k);
+        return top;
+    }
+
+
+    /**
+     * Returns every player in descending order of points
+     *
+     * @return all players, best first
+     */
+    public synchronized ArrayList<Player> getPlayers()
+    {
+        return getTop(size(root));
+    }
+
+
+    /**
+     * Returns the player at a rank
+     *
+     * @param rank
+     *            the rank, where 1 is the player with the most points
+     * @return the player at that rank
+     */
+    public synchronized Player get(int rank)
+    {
+        if (rank < 1 || rank > size(root))
+        {
+            throw new IndexOutOfBoundsException("No rank " + rank);
+        }
+
+        return find(rank).player;
+    }
+
+
+    /**
+     * Returns the player at a rank together with the points it is ranked by,
+     * read under one lock
+     *
+     * @param rank
+     *            the rank, where 1 is the player with the most points
+     * @return the entry at that rank, or null if there is no such rank
+     */
+    public synchronized Entry getEntry(int rank)
+    {
+        if (rank < 1 || rank > size(root))
+        {
+            return null;
+        }
+
+        Node node = find(rank);
+        return new Entry(node.player, node.points);
+    }
+
+
+    /**
+     * Returns the rank of a player
+     *
+     * @param player
+     *            the player
+     * @return the rank, where 1 is the player with the most points, or -1 if
+     *         the player is not on the leaderboard
+     */
+    public synchronized int getRank(Player player)
+    {
+        Node target = nodes.get(player);
+        if (target == null)
+        {
+            return -1;
+        }
+
+        int ahead = 0;
+        Node node = root;
+        while (node != target)
+        {
+            if (compare(target, node) < 0)
+            {
+                node = node.left;
+            }
+            else
+            {
+                ahead += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        return ahead + size(node.left) + 1;
+    }
+
+
+    /**
+     * Finds the node at a rank
+     *
+     * @param rank
+     *            the rank, from 1 to the number of players
+     * @return the node at that rank
+     */
+    private Node find(int rank)
+    {
+        int index = rank - 1;
+        Node node = root;
+        while (true)
+        {
+            int left = size(node.left);
+            if (index < left)
+            {
+                node = node.left;
+            }
+            else if (index == left)
+            {
+                return node;
+            }
+            else
+            {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+
+    /**
+     * Tells the listeners about a change
+     *
+     * @param first
+     *            the first rank that changed
+     * @param last
+     *            the last rank that changed
+     */
+    private void fireChanged(int first, int last)
+    {
+        for (Listener listener : listeners)
+        {
+            listener.ranksChanged(first, last);
+        }
+    }
+
+
+    /**
+     * Orders two nodes: more points first, then by username, then by the
+     * order they were added so players with the same name and score are kept
+     *
+     * @param a
+     *            the first node
+     * @param b
+     *            the second node
+     * @return a negative number if a ranks before b, positive if after
+     */
+    private static int compare(Node a, Node b)
+    {
+        if (a.points != b.points)
+        {
+            return a.points > b.points ? -1 : 1;
+        }
+
+        int names = a.player.getUsername().compareTo(b.player.getUsername());
+        if (names != 0)
+        {
+            return names;
+        }
+
+        return Long.compare(a.order, b.order);
+    }
+
+
+    /**
+     * Inserts a node into a subtree
+     *
+     * @param tree
+     *            the root of the subtree
+     * @param node
+     *            the node to insert
+     * @return the new root of the subtree
+     */
+    private static Node insert(Node tree, Node node)
+    {
+        if (tree == null)
+        {
+            return node;
+        }
+
+        if (node.priority > tree.priority)
+        {
+            split(tree, node);
+            node.resize();
+            return node;
+        }
+
+        if (compare(node, tree) < 0)
+        {
+            tree.left = insert(tree.left, node);
+        }
+        else
+        {
+            tree.right = insert(tree.right, node);
+        }
+        tree.resize();
+        return tree;
+    }
+
+
+    /**
+     * Splits a subtree around a node, putting everything that ranks before the
+     * node in its left child and the rest in its right child
+     *
+     * @param tree
+     *            the subtree to split
+     * @param node
+     *            the node to split around
+     */
+    private static void split(Node tree, Node node)
+    {
+        if (tree == null)
+        {
+            node.left = null;
+            node.right = null;
+            return;
+        }
+
+        if (compare(tree, node) < 0)
+        {
+            split(tree.right, node);
+            tree.right = node.left;
+            tree.resize();
+            node.left = tree;
+        }
+        else
+        {
+            split(tree.left, node);
+            tree.left = node.right;
+            tree.resize();
+            node.right = tree;
+        }
+    }
+
+
+    /**
+     * Removes a node from a subtree
+     *
+     * @param tree
+     *            the root of the subtree
+     * @param node
+     *            the node to remove
+     * @return the new root of the subtree
+     */
+    private static Node delete(Node tree, Node node)
+    {
+        if (tree == node)
+        {
+            return merge(tree.left, tree.right);
+        }
+
+        if (compare(node, tree) < 0)
+        {
+            tree.left = delete(tree.left, node);
+        }
+        else
+        {
+            tree.right = delete(tree.right, node);
+        }
+        tree.resize();
+        return tree;
+    }
+
+
+    /**
+     * Joins two subtrees where every node of the first ranks before every
+     * node of the second
+     *
+     * @param left
+     *            the subtree that ranks first
+     * @param right
+     *            the subtree that ranks last
+     * @return the root of the joined tree
+     */
+    private static Node merge(Node left, Node right)
+    {
+        if (left == null)
+        {
+            return right;
+        }
+        if (right == null)
+        {
+            return left;
+        }
+
+        if (left.priority > right.priority)
+        {
+            left.right = merge(left.right, right);
+            left.resize();
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        right.resize();
+        return right;
+    }
+
+
+    /**
+     * Adds the players of a subtree in rank order until the list has k
+     * players
+     *
+     * @param tree
+     *            the subtree
+     * @param out
+     *            the list to add to
+     * @param k
+     *            the most players the list should hold
+     */
+    private static void collect(Node tree, ArrayList<Player> out, int k)
+    {
+        if (tree == null || out.size() >= k)
+        {
+            return;
+        }
+
+        collect(tree.left, out, k);
+        if (out.size() < k)
+        {
+            out.add(tree.player);
+            collect(tree.right, out, k);
+        }
+    }
+
+
+    /**
+     * Returns the size of a subtree
+     *
+     * @param tree
+     *            the subtree, or null
+     * @return the number of nodes in it
+     */
+    private static int size(Node tree)
+    {
+        return tree == null ? 0 : tree.size;
+    }
+
+
+    /**
+     * Is told when ranks of the leaderboard change
+     */
+    public interface Listener
+    {
+        /**
+         * A player was added, removed or changed rank or points. Only the
+         * ranks from first to last show a different player or different
+         * points than before. After an add they run to the new last rank,
+         * after a remove to the old one.
+         *
+         * @param first
+         *            the first rank that changed, where 1 is the player
+         *            with the most points
+         * @param last
+         *            the last rank that changed
+         */
+        void ranksChanged(int first, int last);
+    }
+
+
+    /**
+     * A player and the points it was ranked by
+     */
+    public static class Entry
+    {
+        private final Player player;
+        private final int    points;
+
+        /**
+         * Creates an entry
+         *
+         * @param player
+         *            the player
+         * @param points
+         *            the points the player is ranked by
+         */
+        Entry(Player player, int points)
+        {
+            this.player = player;
+            this.points = points;
+        }
+
+
+        /**
+         * Returns the player
+         *
+         * @return the player
+         */
+        public Player getPlayer()
+        {
+            return player;
+        }
+
+
+        /**
+         * Returns the points the player was ranked by
+         *
+         * @return the points
+         */
+        public int getPoints()
+        {
+            return points;
+        }
+    }
+
+
+    /**
+     * A player's place in the treap
+     */
+    private static class Node
+    {
+        private Player player;
+        private int    points;
+        private long   order;
+        private int    priority;
+        private int    size;
+        private Node   left;
+        private Node   right;
+
+        /**
+         * Creates a node for a player at its current points
+         *
+         * @param player
+         *            the player
+         * @param order
+         *            when the player was added
+         */
+        Node(Player player, long order)
+        {
+            this.player = player;
+            this.points = player.getPoints();
+            this.order = order;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.size = 1;
+        }
+
+
+        /**
+         * Recomputes the size from the children
+         */
+        void resize()
+        {
+            size = 1 + Leaderboard.size(left) + Leaderboard.size(right);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package classes;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * A table model that shows a game's leaderboard. Nothing is copied: a row is
+ * looked up by rank in the Leaderboard when the table paints it, and each
+ * lookup reads the player and the points it is ranked by under the
+ * leaderboard's lock, so a painted row never pairs a player with another
+ * rank's points. Only the visible rows are painted, so a refresh costs the
+ * same however many players there are.
+ *
+ * The leaderboard reports which ranks each change touched. Changes before the
+ * next repaint are merged into one range and fired as a single rows updated
+ * event on the Swing event thread, with rows inserted or deleted when the
+ * number of players changed.
+ */
+public class LeaderboardTableModel
+    extends AbstractTableModel
+{
+    public static final int       RANK_COLUMN   = 0;
+    public static final int       PLAYER_COLUMN = 1;
+    public static final int       POINTS_COLUMN = 2;
+    public static final int       MINUS_COLUMN  = 3;
+    public static final int       PLUS_COLUMN   = 4;
+
+    private static final long     serialVersionUID = 1L;
+    private static final String[] COLUMNS          = { "#", "Player", "Points", "", "" };
+
+    private JeopardyGame          game;
+    private Leaderboard           leaderboard;
+    private Leaderboard.Listener  listener;
+    private AtomicBoolean         pending;
+    private int                   rowCount;
+    private int                   firstChanged;
+    private int                   lastChanged;
+
+    /**
+     * Creates a model for the leaderboard of a game and starts listening for
+     * score changes
+     *
+     * @param game
+     *            the game whose players are shown
+     */
+    public LeaderboardTableModel(JeopardyGame game)
+    {
+        this.game = game;
+        this.leaderboard = game.getLeaderboard();
+        this.pending = new AtomicBoolean();
+        this.listener = (first, last) -> ranksChanged(first, last);
+        this.rowCount = leaderboard.size();
+        this.firstChanged = Integer.MAX_VALUE;
+        leaderboard.addChangeListener(listener);
+    }
+
+
+    /**
+     * Schedules an update of every row, such as when the turn moved
+     */
+    public void refresh()
+    {
+        ranksChanged(1, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Adds ranks to the range to update and schedules one table update on
+     * the Swing event thread. Calls made before that update runs only widen
+     * the range.
+     *
+     * @param first
+     *            the first rank that changed
+     * @param last
+     *            the last rank that changed
+     */
+    private void ranksChanged(int first, int last)
+    {
+        synchronized (this)
+        {
+            firstChanged = Math.min(firstChanged, first);
+            lastChanged = Math.max(lastChanged, last);
+        }
+
+        if (pending.compareAndSet(false, true))
+        {
+            SwingUtilities.invokeLater(() -> update());
+        }
+    }
+
+
+    /**
+     * Fires the table events for the ranks that changed since the last update
+     */
+    private void update()
+    {
+        pending.set(false);
+        int first;
+        int last;
+        synchronized (this)
+        {
+            first = firstChanged;
+            last = lastChanged;
+            firstChanged = Integer.MAX_VALUE;
+            lastChanged = 0;
+        }
+
+        int count = leaderboard.size();
+        int old = rowCount;
+        rowCount = count;
+        if (count > old)
+        {
+            fireTableRowsInserted(old, count - 1);
+        }
+        else if (count < old)
+        {
+            fireTableRowsDeleted(count, old - 1);
+        }
+
+        // rows that were inserted or deleted need no update
+        last = Math.min(last, Math.min(old, count));
+        if (first <= last)
+        {
+            fireTableRowsUpdated(first - 1, last - 1);
+        }
+    }
+
+
+    /**
+     * Stops listening to the leaderboard
+     */
+    public void dispose()
+    {
+        leaderboard.removeChangeListener(listener);
+    }
+
+
+    /**
+     * Returns the player shown in a row
+     *
+     * @param row
+     *            the row
+     * @return the player at that rank now, or null if there are fewer
+     *         players than rows
+     */
+    public Player getPlayer(int row)
+    {
+        Leaderboard.Entry entry = leaderboard.getEntry(row + 1);
+        return entry == null ? null : entry.getPlayer();
+    }
+
+
+    /**
+     * Returns the number of players
+     *
+     * @return the number of rows
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+
+    /**
+     * Returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount()
+    {
+        return COLUMNS.length;
+    }
+
+
+    /**
+     * Returns the header of a column
+     *
+     * @param column
+     *            the column
+     * @return the header text
+     */
+    public String getColumnName(int column)
+    {
+        return COLUMNS[column];
+    }
+
+
+    /**
+     * Returns the value shown in a cell
+     *
+     * @param row
+     *            the row
+     * @param column
+     *            the column
+     * @return the rank, the player's name, the points or the +/- label, or
+     *         null for a row whose player was just removed
+     */
+    public Object getValueAt(int row, int column)
+    {
+        Leaderboard.Entry entry = leaderboard.getEntry(row + 1);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        Player player = entry.getPlayer();
+        switch (column)
+        {
+            case RANK_COLUMN:
+                return row + 1;
+            case PLAYER_COLUMN:
+                return player == game.getCurrentPlayer() ? player.getUsername() + " (current turn)"
+                    : player.getUsername();
+            case POINTS_COLUMN:
+                return entry.getPoints();
+            case MINUS_COLUMN:
+                return "-";
+            default:
+                return "+";
+        }
+    }
+}
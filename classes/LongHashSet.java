@@ -0,0 +1,149 @@
+package classes;
+
+/**
+ * A set of long values kept in one open addressing table, with no boxing and
+ * no objects per value. It is meant for large numbers of hashes, such as the
+ * fingerprints of every question seen during an import. The table doubles
+ * when it is half full. Zero is stored in its own flag, since it marks an
+ * empty slot in the table.
+ */
+public class LongHashSet
+{
+    private long[]  table;
+    private int     size;
+    private boolean hasZero;
+
+    /**
+     * Creates an empty set
+     *
+     * @param expected
+     *            how many values the set is expected to hold
+     */
+    public LongHashSet(int expected)
+    {
+        int capacity = 16;
+        while (capacity < expected * 2)
+        {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+    }
+
+
+    /**
+     * Adds a value to the set
+     *
+     * @param value
+     *            the value
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(long value)
+    {
+        if (value == 0)
+        {
+            if (hasZero)
+            {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = mix(value) & mask;; slot = (slot + 1) & mask)
+        {
+            if (table[slot] == value)
+            {
+                return false;
+            }
+            if (table[slot] == 0)
+            {
+                table[slot] = value;
+                if (++size * 2 > table.length)
+                {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Checks if a value is in the set
+     *
+     * @param value
+     *            the value
+     * @return true if the value was added before
+     */
+    public boolean contains(long value)
+    {
+        if (value == 0)
+        {
+            return hasZero;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = mix(value) & mask;; slot = (slot + 1) & mask)
+        {
+            if (table[slot] == value)
+            {
+                return true;
+            }
+            if (table[slot] == 0)
+            {
+                return false;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the number of values in the set
+     *
+     * @return the number of values
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Doubles the table and puts every value back in
+     */
+    private void grow()
+    {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long value : old)
+        {
+            if (value != 0)
+            {
+                int slot = mix(value) & mask;
+                while (table[slot] != 0)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+
+    /**
+     * Spreads the bits of a value so neighbouring values land in different
+     * parts of the table
+     *
+     * @param value
+     *            the value
+     * @return the mixed bits, to be masked down to a slot
+     */
+    private static int mix(long value)
+    {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,400 @@
+package classes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A question csv file mapped into memory. Record and field boundaries are
+ * found directly in the mapped bytes, and a row is only decoded into a Card
+ * when it is asked for, so rows that are never drawn cost nothing beyond their
+ * entry in the line offset index. Rows look like
+ * "CATEGORY","$100","question","answer".
+ */
+public class MappedCsvFile
+{
+    private static final int INDEX_MAGIC = 0x4A514958; // "JQIX"
+    private static final int FIELDS      = 4;
+
+    private MappedByteBuffer buffer;
+    private long[]           offsets;
+    private long             length;
+    private long             lastModified;
+
+    /**
+     * Maps the csv file and loads its line offsets from the sidecar index. If
+     * the index is missing or out of date it is rebuilt from the mapped bytes
+     * and saved again. The length and modification time of the file are taken
+     * as it is mapped, so they describe the mapped bytes even if the file
+     * changes later.
+     *
+     * @param csv
+     *            the csv file to map
+     * @param index
+     *            the sidecar index file for the csv, or null to find the line
+     *            offsets without keeping an index
+     * @throws IOException
+     *             if the csv file cannot be mapped
+     */
+    public MappedCsvFile(File csv, File index)
+        throws IOException
+    {
+        lastModified = csv.lastModified();
+        FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ);
+        try
+        {
+            length = channel.size();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        offsets = index == null ? null : readIndex(index);
+        if (offsets == null)
+        {
+            offsets = findLineOffsets();
+            if (index != null)
+            {
+                writeIndex(index, offsets);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the length of the file when it was mapped
+     *
+     * @return the length in bytes
+     */
+    public long getLength()
+    {
+        return length;
+    }
+
+
+    /**
+     * Returns the modification time of the file when it was mapped
+     *
+     * @return the time in milliseconds
+     */
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+
+    /**
+     * Returns the number of rows in the file
+     *
+     * @return the number of rows
+     */
+    public int getRowCount()
+    {
+        return offsets.length - 1;
+    }
+
+
+    /**
+     * Decodes the given row into a card. Only the bytes of this row are read.
+     *
+     * @param row
+     *            the row to decode, starting at 0
+     * @return the card stored in the row
+     */
+    public Card getCard(int row)
+    {
+        if (row < 0 || row >= getRowCount())
+        {
+            throw new IndexOutOfBoundsException("No row " + row);
+        }
+
+        int start = (int)offsets[row];
+        int end = (int)offsets[row + 1];
+        while (end > start && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r'))
+        {
+            end--;
+        }
+
+        byte[] line = new byte[end - start];
+        buffer.get(start, line, 0, line.length);
+
+        int[] bounds = findFields(line);
+
+        int category = CategoryDictionary.getShared().getId(decode(line, bounds[0], bounds[1]));
+        int points = parsePoints(line, bounds[2], bounds[3]);
+        byte[] question = Arrays.copyOfRange(line, bounds[4], bounds[5]);
+        byte[] answer = Arrays.copyOfRange(line, bounds[6], bounds[7]);
+
+        return new Card(new Question(question, answer, points, category, row));
+    }
+
+
+    /**
+     * Returns the category of every row. Only the category field of each row
+     * is decoded, and rows with the same category share the one String of the
+     * shared CategoryDictionary.
+     *
+     * @return the category of each row, indexed by row
+     * @throws IllegalArgumentException
+     *             if a row has no "," after its category
+     */
+    public String[] getCategories()
+    {
+        String[] categories = new String[getRowCount()];
+        CategoryDictionary dictionary = CategoryDictionary.getShared();
+        byte[] field = new byte[256];
+
+        for (int row = 0; row < categories.length; row++)
+        {
+            int start = (int)offsets[row] + 1;
+            int end = (int)offsets[row + 1];
+            int length = -1;
+
+            for (int i = start; i + 2 < end; i++)
+            {
+                if (buffer.get(i) == '"' && buffer.get(i + 1) == ',' && buffer.get(i + 2) == '"')
+                {
+                    length = i - start;
+                    break;
+                }
+            }
+            if (length < 0)
+            {
+                byte[] line = new byte[end - start + 1];
+                buffer.get(start - 1, line, 0, line.length);
+                throw new IllegalArgumentException("Malformed question row: "
+                    + new String(line, StandardCharsets.UTF_8).trim());
+            }
+
+            if (length > field.length)
+            {
+                field = new byte[length];
+            }
+            buffer.get(start, field, 0, length);
+
+            categories[row] = dictionary.intern(decode(field, 0, length));
+        }
+
+        return categories;
+    }
+
+
+    /**
+     * Finds the start and end of each of the four quoted fields of a row. The
+     * fields are separated by "," and the row is wrapped in quotes.
+     *
+     * @param line
+     *            the bytes of the row without the line break
+     * @return start and end offsets of each field, two entries per field
+     */
+    static int[] findFields(byte[] line)
+    {
+        int[] bounds = new int[FIELDS * 2];
+        int field = 0;
+        bounds[0] = 1;
+
+        for (int i = 1; i + 2 < line.length && field < FIELDS - 1; i++)
+        {
+            if (line[i] == '"' && line[i + 1] == ',' && line[i + 2] == '"')
+            {
+                bounds[field * 2 + 1] = i;
+                field++;
+                bounds[field * 2] = i + 3;
+                i += 2;
+            }
+        }
+
+        if (field != FIELDS - 1)
+        {
+            throw new IllegalArgumentException("Malformed question row: "
+                + new String(line, StandardCharsets.UTF_8));
+        }
+
+        bounds[field * 2 + 1] = Math.max(bounds[field * 2], line.length - 1);
+        return bounds;
+    }
+
+
+    /**
+     * Parses a point value field such as $1,200 without building a string
+     *
+     * @param line
+     *            the bytes of the row
+     * @param start
+     *            first byte of the field
+     * @param end
+     *            end of the field, exclusive
+     * @return the point value
+     */
+    static int parsePoints(byte[] line, int start, int end)
+    {
+        int value = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++)
+        {
+            byte b = line[i];
+            if (b >= '0' && b <= '9')
+            {
+                value = value * 10 + (b - '0');
+                digits = true;
+            }
+            else if (b != '$' && b != ',')
+            {
+                throw new NumberFormatException(decode(line, start, end));
+            }
+        }
+
+        if (!digits)
+        {
+            throw new NumberFormatException(decode(line, start, end));
+        }
+        return value;
+    }
+
+
+    /**
+     * Decodes a slice of the row as UTF-8
+     *
+     * @param line
+     *            the bytes of the row
+     * @param start
+     *            first byte of the slice
+     * @param end
+     *            end of the slice, exclusive
+     * @return the decoded text
+     */
+    static String decode(byte[] line, int start, int end)
+    {
+        return new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Scans the mapped bytes once and records where every line starts
+     *
+     * @return the start offset of every line followed by the file length
+     */
+    private long[] findLineOffsets()
+    {
+        int limit = buffer.limit();
+        long[] found = new long[1024];
+        int count = 0;
+        boolean lineStart = true;
+
+        for (int i = 0; i < limit; i++)
+        {
+            if (lineStart)
+            {
+                if (count + 1 >= found.length)
+                {
+                    found = Arrays.copyOf(found, found.length * 2);
+                }
+                found[count++] = i;
+                lineStart = false;
+            }
+            if (buffer.get(i) == '\n')
+            {
+                lineStart = true;
+            }
+        }
+
+        found[count] = limit;
+        return Arrays.copyOf(found, count + 1);
+    }
+
+
+    /**
+     * Reads a sidecar index if it exists and still matches the mapped file
+     *
+     * @param index
+     *            the sidecar index file
+     * @return the stored offsets, or null if the index is missing or stale
+     */
+    private long[] readIndex(File index)
+    {
+        if (!index.isFile())
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(index)));
+            try
+            {
+                if (in.readInt() != INDEX_MAGIC || in.readLong() != length
+                    || in.readLong() != lastModified)
+                {
+                    return null;
+                }
+
+                long[] offsets = new long[in.readInt()];
+                for (int i = 0; i < offsets.length; i++)
+                {
+                    offsets[i] = in.readLong();
+                }
+                return offsets;
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            // a broken index is simply rebuilt from the csv
+            return null;
+        }
+    }
+
+
+    /**
+     * Saves the offsets to a sidecar index file. If the directory is not
+     * writable the index just stays in memory.
+     *
+     * @param index
+     *            the sidecar index file to write
+     * @param offsets
+     *            the offsets to save
+     */
+    private void writeIndex(File index, long[] offsets)
+    {
+        try
+        {
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index)));
+            try
+            {
+                out.writeInt(INDEX_MAGIC);
+                out.writeLong(length);
+                out.writeLong(lastModified);
+                out.writeInt(offsets.length);
+                for (long offset : offsets)
+                {
+                    out.writeLong(offset);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot write " + index.getPath() + " ***");
+        }
+    }
+}
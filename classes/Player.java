@@ -1,15 +1,19 @@
 package classes;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents a player in the game, implementing Comparable so that the players
- * can be sorted by points in the TreeSet.
+ * can be sorted by points. A player that is on a Leaderboard tells it when its
+ * points change.
  */
 public class Player
     implements Comparable<Object>
 {
 
-    private String username;
-    private int    points;
+    private String               username;
+    private AtomicInteger        points;
+    private volatile Leaderboard leaderboard;
 
     /**
      * Constructs a new player with the given username and points
@@ -20,7 +24,7 @@ public class Player
     public Player(String u, int p)
     {
         username = u;
-        points = p;
+        points = new AtomicInteger(p);
     }
 
 
@@ -33,20 +37,41 @@ public class Player
     public Player(String u)
     {
         username = u;
-        points = 0;
+        points = new AtomicInteger();
     }
 
 
     /**
      * Changes and updates the player's points by p. Player's points will
-     * increase by p if p is positive or decrease by p if p is negative
+     * increase by p if p is positive or decrease by p if p is negative. The
+     * points are an AtomicInteger, so changes from several threads at once
+     * are never lost.
      * 
      * @param p
      *            - amount of points to change the player's current points
      */
     public void changePoints(int p)
     {
-        points = points + p;
+        points.addAndGet(p);
+
+        Leaderboard board = leaderboard;
+        if (board != null)
+        {
+            board.update(this);
+        }
+    }
+
+
+    /**
+     * Sets the leaderboard that ranks this player. Called by the leaderboard
+     * when the player is added or removed.
+     * 
+     * @param board
+     *            the leaderboard, or null if the player is not ranked
+     */
+    void setLeaderboard(Leaderboard board)
+    {
+        leaderboard = board;
     }
 
 
@@ -57,7 +82,7 @@ public class Player
      */
     public int getPoints()
     {
-        return points;
+        return points.get();
     }
 
 
@@ -77,7 +102,7 @@ public class Player
      */
     public String toString()
     {
-        return username + ": " + points;
+        return username + ": " + getPoints();
     }
 
 
@@ -95,11 +120,13 @@ public class Player
     {
         Player otherPlayer = (Player)other;
 
-        if (points > otherPlayer.getPoints())
+        int mine = getPoints();
+        int theirs = otherPlayer.getPoints();
+        if (mine > theirs)
         {
             return 1;
         }
-        else if (points < otherPlayer.getPoints())
+        else if (mine < theirs)
         {
             return -1;
         }
@@ -0,0 +1,260 @@
+package classes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The text of one question: what is asked, the answer, the points and the
+ * category. A Question never changes, so one instance can be shared by every
+ * card and every room that shows it. Play state such as who answered lives in
+ * Card or in a room's board, not here.
+ *
+ * The answer prepared for the current AnswerMatcher is cached here too, so it
+ * is prepared once per question rather than once per card.
+ *
+ * The question and answer are kept as UTF-8 bytes and only decoded into
+ * Strings when asked for, and the category is an id in the shared
+ * CategoryDictionary. With the whole bank in memory this saves a String
+ * object per field and a copy of the category name per question. A question
+ * made from text whose category no bank has keeps the name itself, so it does
+ * not grow the shared dictionary.
+ */
+public final class Question
+{
+    private final byte[]      question;
+    private final byte[]      answer;
+    private final int         points;
+    private final int         category;
+    private final String      categoryName;
+    private final int         row;
+    private volatile Prepared prepared;
+
+    /**
+     * Creates a question
+     *
+     * @param question
+     *            the question text
+     * @param answer
+     *            the answer
+     * @param points
+     *            the point value
+     * @param category
+     *            the category
+     */
+    public Question(String question, String answer, int points, String category)
+    {
+        this(question, answer, points, category, -1);
+    }
+
+
+    /**
+     * Creates a question read from a question bank
+     *
+     * @param question
+     *            the question text
+     * @param answer
+     *            the answer
+     * @param points
+     *            the point value
+     * @param category
+     *            the category
+     * @param row
+     *            the row of the question among those worth the same points in
+     *            the bank
+     */
+    public Question(String question, String answer, int points, String category, int row)
+    {
+        this(question.getBytes(StandardCharsets.UTF_8), answer.getBytes(StandardCharsets.UTF_8),
+            points, CategoryDictionary.getShared().find(category), category, row);
+    }
+
+
+    /**
+     * Creates a question from the UTF-8 bytes a question bank stores. The
+     * arrays are kept, not copied.
+     *
+     * @param question
+     *            the question text as UTF-8
+     * @param answer
+     *            the answer as UTF-8
+     * @param points
+     *            the point value
+     * @param category
+     *            the id of the category in the shared CategoryDictionary
+     * @param row
+     *            the row of the question among those worth the same points in
+     *            the bank
+     */
+    Question(byte[] question, byte[] answer, int points, int category, int row)
+    {
+        this(question, answer, points, category, null, row);
+    }
+
+
+    /**
+     * Creates a question from UTF-8 bytes and a category that may not be in
+     * the shared CategoryDictionary
+     *
+     * @param question
+     *            the question text as UTF-8
+     * @param answer
+     *            the answer as UTF-8
+     * @param points
+     *            the point value
+     * @param category
+     *            the id of the category in the shared CategoryDictionary, or
+     *            -1 if it is not there
+     * @param name
+     *            the name of the category, kept only if it has no id
+     * @param row
+     *            the row of the question among those worth the same points in
+     *            the bank
+     */
+    private Question(byte[] question, byte[] answer, int points, int category, String name,
+        int row)
+    {
+        this.question = question;
+        this.answer = answer;
+        this.points = points;
+        this.category = category;
+        this.categoryName = category < 0 ? name : null;
+        this.row = row;
+    }
+
+
+    /**
+     * Returns the question text
+     *
+     * @return the question
+     */
+    public String getQuestion()
+    {
+        return new String(question, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Returns the answer
+     *
+     * @return the answer
+     */
+    public String getAnswer()
+    {
+        return new String(answer, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Returns the point value
+     *
+     * @return the points
+     */
+    public int getPoints()
+    {
+        return points;
+    }
+
+
+    /**
+     * Returns the category
+     *
+     * @return the category
+     */
+    public String getCategory()
+    {
+        return category < 0 ? categoryName : CategoryDictionary.getShared().getName(category);
+    }
+
+
+    /**
+     * Returns the id of the category in the shared CategoryDictionary
+     *
+     * @return the category id, or -1 if the category is not in the dictionary
+     */
+    public int getCategoryId()
+    {
+        return category;
+    }
+
+
+    /**
+     * Checks if another question has the same question text, without
+     * decoding either
+     *
+     * @param other
+     *            the other question
+     * @return true if the texts are the same
+     */
+    public boolean hasSameText(Question other)
+    {
+        return Arrays.equals(question, other.question);
+    }
+
+
+    /**
+     * Returns where the question is in its question bank
+     *
+     * @return the row among the questions worth the same points, or -1 if the
+     *         question did not come from a bank
+     */
+    public int getRow()
+    {
+        return row;
+    }
+
+
+    /**
+     * Checks a submitted answer with the current answer matcher. The answer
+     * is prepared once per matcher and kept.
+     *
+     * @param submitted
+     *            the submitted answer
+     * @return true if the answer counts as correct
+     */
+    public boolean isCorrectAnswer(String submitted)
+    {
+        AnswerMatcher current = Card.getAnswerMatcher();
+        Prepared forms = prepared;
+        if (forms == null || forms.matcher != current)
+        {
+            forms = new Prepared(current, current.prepare(getAnswer()));
+            prepared = forms;
+        }
+
+        return current.matches(forms.answer, submitted);
+    }
+
+
+    /**
+     * @return the question and answer along with the point value as a string
+     */
+    public String toString()
+    {
+        return getQuestion() + ": " + getAnswer() + " ($" + points + ")";
+    }
+
+
+    /**
+     * The answer as prepared by one answer matcher. Both are kept in one
+     * object so threads always see a matching pair.
+     */
+    private static class Prepared
+    {
+        private final AnswerMatcher matcher;
+        private final String[]      answer;
+
+        /**
+         * Keeps a prepared answer
+         *
+         * @param matcher
+         *            the matcher that prepared it
+         * @param answer
+         *            the prepared forms of the answer
+         */
+        Prepared(AnswerMatcher matcher, String[] answer)
+        {
+            this.matcher = matcher;
+            this.answer = answer;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.NavigableSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A collection of Jeopardy questions grouped by point value that cards can be
+ * drawn from at random. The questions either come straight from the csv files
+ * (CsvQuestionBank) or from a compiled question pack (QuestionPack).
+ */
+public interface QuestionBank
+{
+    /**
+     * Returns the point values that have at least one question. This is known
+     * without reading any questions, so boards can be laid out from it.
+     *
+     * @return the point values in ascending order
+     */
+    NavigableSet<Integer> getPointValues();
+
+
+    /**
+     * Returns the number of questions stored for the given point value
+     *
+     * @param points
+     *            the point value
+     * @return the number of questions worth that many points, 0 if there are
+     *         none
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    int getQuestionCount(int points)
+        throws IOException;
+
+
+    /**
+     * Decodes the card stored in the given row for a point value
+     *
+     * @param points
+     *            the point value of the card
+     * @param row
+     *            the row of the card, starting at 0
+     * @return the card in that row
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    Card getCard(int points, int row)
+        throws IOException;
+
+
+    /**
+     * Returns the category of every question worth the given number of
+     * points, without decoding the questions themselves. Questions in the same
+     * category share one String.
+     *
+     * @param points
+     *            the point value
+     * @return the category of each row, indexed by row
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    String[] getCategories(int points)
+        throws IOException;
+
+
+    /**
+     * Returns a number that identifies the files the questions are read
+     * from, so files built from a bank, such as a SearchIndex, can tell when
+     * the bank has changed since
+     *
+     * @return the fingerprint of the question files
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    long getFingerprint()
+        throws IOException;
+
+
+    /**
+     * Reads a random card worth the given number of points
+     *
+     * @param points
+     *            the point value of the card
+     * @return a random card with that point value
+     * @throws IOException
+     *             if the questions cannot be read or there are no questions
+     *             worth that many points
+     */
+    default Card getRandomCard(int points)
+        throws IOException
+    {
+        int count = getQuestionCount(points);
+        if (count == 0)
+        {
+            throw new IOException("No questions worth " + points + " points");
+        }
+        return getCard(points, ThreadLocalRandom.current().nextInt(count));
+    }
+
+
+    /**
+     * Opens the question pack if it exists, otherwise falls back to reading
+     * the csv files in the given directories
+     *
+     * @param packPath
+     *            path of the compiled question pack
+     * @param csvDirectories
+     *            directories holding the point value csv files
+     * @return the question bank to draw cards from
+     * @throws IOException
+     *             if the question pack exists but cannot be read
+     */
+    static QuestionBank open(String packPath, String... csvDirectories)
+        throws IOException
+    {
+        File pack = new File(packPath);
+        if (pack.isFile())
+        {
+            return new QuestionPack(pack);
+        }
+        return new CsvQuestionBank(csvDirectories);
+    }
+}
@@ -0,0 +1,364 @@
+package classes;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of decoded questions, keyed by point value and row. It
+ * holds at most a fixed number of questions and counts its hits, misses and
+ * evictions. Two eviction policies are offered:
+ *
+ * LRU drops the question used least recently.
+ *
+ * TINY_LFU is W-TinyLFU: a question enters a small LRU window first, and when
+ * it falls out of the window it only takes the place of the least recently
+ * used question of the main part if it has been asked for more often. How
+ * often questions are asked for is estimated by a count-min sketch of 4 bit
+ * counters, which are halved every ten times capacity requests so old
+ * popularity fades. A scan over every question, such as compiling the search
+ * index, then passes through the window without pushing out the questions
+ * that rooms keep drawing.
+ *
+ * All methods are synchronized; a question is decoded outside the cache and
+ * put in afterwards, so a slow read never holds the lock.
+ */
+public class QuestionCache
+{
+    /**
+     * How questions are chosen to be dropped when the cache is full
+     */
+    public enum Policy
+    {
+        LRU, TINY_LFU
+    }
+
+    public static final int               DEFAULT_CAPACITY = 8192;
+
+    private int                           capacity;
+    private Policy                        policy;
+    private LinkedHashMap<Long, Question> window;
+    private LinkedHashMap<Long, Question> main;
+    private int                           windowCapacity;
+    private long[]                        sketch;
+    private int                           samples;
+    private long                          hits;
+    private long                          misses;
+    private long                          evictions;
+
+    /**
+     * Creates an empty cache
+     *
+     * @param capacity
+     *            the most questions the cache holds
+     * @param policy
+     *            how questions are dropped when it is full
+     * @throws IllegalArgumentException
+     *             if the capacity is not positive
+     */
+    public QuestionCache(int capacity, Policy policy)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("A cache needs room for a question");
+        }
+
+        this.capacity = capacity;
+        this.policy = policy;
+        main = new LinkedHashMap<Long, Question>(16, 0.75f, true);
+        if (policy == Policy.TINY_LFU)
+        {
+            // 1% of the room is the window, as in the W-TinyLFU paper
+            windowCapacity = Math.max(1, capacity / 100);
+            window = new LinkedHashMap<Long, Question>(16, 0.75f, true);
+
+            int counters = 16;
+            while (counters < capacity)
+            {
+                counters <<= 1;
+            }
+            sketch = new long[counters / 4];
+        }
+    }
+
+
+    /**
+     * Returns a cached question and counts a hit or a miss
+     *
+     * @param points
+     *            the point value of the question
+     * @param row
+     *            its row among the questions worth that many points
+     * @return the question, or null if it is not cached
+     */
+    public synchronized Question get(int points, int row)
+    {
+        long key = key(points, row);
+        Question question = main.get(key);
+        if (question == null && window != null)
+        {
+            question = window.get(key);
+        }
+        if (sketch != null)
+        {
+            increment(key);
+        }
+
+        if (question == null)
+        {
+            misses++;
+        }
+        else
+        {
+            hits++;
+        }
+        return question;
+    }
+
+
+    /**
+     * Adds a question that was read after a miss. If another thread added it
+     * in the meantime, that question is kept, so everyone shares one
+     * instance.
+     *
+     * @param points
+     *            the point value of the question
+     * @param row
+     *            its row among the questions worth that many points
+     * @param question
+     *            the decoded question
+     * @return the cached question
+     */
+    public synchronized Question put(int points, int row, Question question)
+    {
+        long key = key(points, row);
+        Question cached = main.get(key);
+        if (cached == null && window != null)
+        {
+            cached = window.get(key);
+        }
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        if (window == null)
+        {
+            main.put(key, question);
+            if (main.size() > capacity)
+            {
+                removeEldest(main);
+            }
+        }
+        else
+        {
+            window.put(key, question);
+            if (window.size() > windowCapacity)
+            {
+                admit();
+            }
+        }
+        return question;
+    }
+
+
+    /**
+     * Returns the most questions the cache holds
+     *
+     * @return the capacity
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+
+    /**
+     * Returns the eviction policy
+     *
+     * @return the policy
+     */
+    public Policy getPolicy()
+    {
+        return policy;
+    }
+
+
+    /**
+     * Returns the number of questions in the cache
+     *
+     * @return the number of questions
+     */
+    public synchronized int size()
+    {
+        return main.size() + (window == null ? 0 : window.size());
+    }
+
+
+    /**
+     * Returns how many lookups found their question
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+
+    /**
+     * Returns how many lookups did not find their question
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+
+    /**
+     * Returns how many questions were dropped, or not let in, for lack of
+     * room
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictions;
+    }
+
+
+    /**
+     * Moves the eldest question of the window into the main part, if it is
+     * asked for more often than the question it would push out
+     */
+    private void admit()
+    {
+        Iterator<Map.Entry<Long, Question>> eldest = window.entrySet().iterator();
+        Map.Entry<Long, Question> entry = eldest.next();
+        long candidate = entry.getKey();
+        Question question = entry.getValue();
+        eldest.remove();
+
+        if (main.size() < capacity - windowCapacity)
+        {
+            main.put(candidate, question);
+            return;
+        }
+
+        if (!main.isEmpty())
+        {
+            long victim = main.keySet().iterator().next();
+            if (frequency(candidate) > frequency(victim))
+            {
+                main.remove(victim);
+                main.put(candidate, question);
+            }
+        }
+        evictions++;
+    }
+
+
+    /**
+     * Drops the least recently used question of a map
+     *
+     * @param map
+     *            the map
+     */
+    private void removeEldest(LinkedHashMap<Long, Question> map)
+    {
+        Iterator<Long> eldest = map.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+        evictions++;
+    }
+
+
+    /**
+     * Counts a request for a key in the sketch, halving every counter once
+     * enough requests have been counted
+     *
+     * @param key
+     *            the key
+     */
+    private void increment(long key)
+    {
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            int counter = index(key, i);
+            int shift = (counter & 15) << 2;
+            long slot = sketch[counter >>> 4 & sketch.length - 1];
+            if ((slot >>> shift & 15) < 15)
+            {
+                sketch[counter >>> 4 & sketch.length - 1] = slot + (1L << shift);
+                added = true;
+            }
+        }
+
+        if (added && ++samples >= 10 * capacity)
+        {
+            samples = 0;
+            for (int i = 0; i < sketch.length; i++)
+            {
+                // halve all sixteen counters of the long at once
+                sketch[i] = sketch[i] >>> 1 & 0x7777777777777777L;
+            }
+        }
+    }
+
+
+    /**
+     * Estimates how often a key was requested lately
+     *
+     * @param key
+     *            the key
+     * @return the smallest of its four counters
+     */
+    private int frequency(long key)
+    {
+        int frequency = 15;
+        for (int i = 0; i < 4; i++)
+        {
+            int counter = index(key, i);
+            long slot = sketch[counter >>> 4 & sketch.length - 1];
+            frequency = Math.min(frequency, (int)(slot >>> ((counter & 15) << 2) & 15));
+        }
+        return frequency;
+    }
+
+
+    /**
+     * Hashes a key for one of the four rows of the sketch
+     *
+     * @param key
+     *            the key
+     * @param i
+     *            the row, 0 to 3
+     * @return the counter: the low 4 bits pick one of the sixteen counters
+     *         of a long and the rest pick the long
+     */
+    private static int index(long key, int i)
+    {
+        long h = (key + i) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int)(h ^ (h >>> 32));
+    }
+
+
+    /**
+     * Packs a point value and a row into one key
+     *
+     * @param points
+     *            the point value
+     * @param row
+     *            the row
+     * @return the key
+     */
+    private static long key(int points, int row)
+    {
+        return (long)points << 32 | row & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,153 @@
+package classes;
+
+import java.awt.BorderLayout;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+
+/**
+ * The window that shows a question and takes the current player's answer. A
+ * game window makes one of these and opens it again for every card, so its
+ * components and listeners are only created once. The dialog is modal, which
+ * keeps a second card from being opened while a question is on screen. The
+ * answer is judged and scored by the GameEngine; the dialog only tells the
+ * player the result.
+ */
+public class QuestionDialog
+    extends JDialog
+{
+    public static final Font  QUESTION_FONT    = new Font("Arial", Font.PLAIN, 20);
+    public static final Font  ANSWER_FONT      = new Font("Arial", Font.PLAIN, 16);
+
+    private static final long serialVersionUID = 1L;
+
+    private GameEngine        engine;
+    private JTextArea         questionText;
+    private JTextField        answerField;
+    private Card              card;
+
+    /**
+     * Creates the question dialog of a game window
+     *
+     * @param owner
+     *            the game window
+     * @param engine
+     *            the engine of the game being played
+     */
+    public QuestionDialog(JFrame owner, GameEngine engine)
+    {
+        super(owner, "Question", true);
+        this.engine = engine;
+
+        // Closing the window without answering loses the question
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e)
+            {
+                engine.pass();
+                finish();
+            }
+        });
+
+        JPanel questionPanel = new JPanel(new BorderLayout());
+
+        questionText = new JTextArea();
+        questionText.setWrapStyleWord(true);
+        questionText.setLineWrap(true);
+        questionText.setEditable(false);
+        questionText.setFont(QUESTION_FONT);
+        questionPanel.add(questionText, BorderLayout.NORTH);
+
+        // Create the answer field and submit button
+        answerField = new JTextField();
+        answerField.setFont(ANSWER_FONT);
+        questionPanel.add(answerField, BorderLayout.CENTER);
+
+        JButton submitButton = new JButton("Submit");
+        submitButton.setSize(600, 50);
+        submitButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e)
+            {
+                submit();
+            }
+        });
+        questionPanel.add(submitButton, BorderLayout.SOUTH);
+
+        add(questionPanel);
+        pack();
+        setSize(600, 200);
+        setLocationRelativeTo(null);
+    }
+
+
+    /**
+     * Shows the question of the card the engine just opened and waits for it
+     * to be answered or closed
+     *
+     * @param card
+     *            the open card
+     */
+    public void open(Card card)
+    {
+        this.card = card;
+
+        questionText.setText(card.getQuestion());
+        answerField.setText("");
+        answerField.requestFocusInWindow();
+
+        setVisible(true);
+    }
+
+
+    /**
+     * Judges the typed answer, tells the player the result and closes the
+     * dialog
+     */
+    private void submit()
+    {
+        // Get the player's answer
+        String answer = answerField.getText();
+
+        if (answer.equals(""))
+        {
+            JOptionPane.showMessageDialog(this, "Please enter an answer.");
+            return;
+        }
+
+        boolean correct = engine.answer(answer);
+
+        // Check if the answer is correct
+        if (correct)
+        {
+            JOptionPane.showMessageDialog(this, "Correct!");
+        }
+        else
+        {
+            JOptionPane.showMessageDialog(
+                this,
+                "Incorrect. The correct answer is: " + card.getAnswer());
+        }
+
+        finish();
+    }
+
+
+    /**
+     * Hides the dialog once the engine has closed the card
+     */
+    private void finish()
+    {
+        card = null;
+        setVisible(false);
+    }
+}
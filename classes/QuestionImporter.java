@@ -0,0 +1,443 @@
+package classes;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Imports a dump of questions, such as JEOPARDY_CSV.csv, into the point value
+ * csv files of a question bank. The dump is read one record at a time by a
+ * CsvReader, so its size does not matter; its first record names the
+ * columns, and the Category, Value, Question and Answer columns are used.
+ * Each row is appended to the file of its point value through a buffered
+ * writer, in the format MappedCsvFile reads: every field is quoted and the
+ * fields are separated by ",". Quotes inside a field are written as they
+ * are, not doubled, because the files made by the old sort.py script never
+ * doubled them and MappedCsvFile reads every field as it is. Line breaks
+ * inside fields are turned into spaces so every question stays on one line,
+ * and a space is put after the comma of a "," inside a field, or of a ",
+ * that ends one, since MappedCsvFile splits the fields at the first ",".
+ *
+ * Like a CsvQuestionBank, the importer reads several directories, and the
+ * first one with a file for a point value owns that point value. Rows are
+ * appended to that file, so the bank reads them and no new file hides it; a
+ * point value no directory has yet gets a new file in the first directory.
+ * A question that is already in the file of its point value, or was already
+ * imported, is skipped. Questions are compared by a 64 bit hash of their
+ * points, question and answer, kept in a LongHashSet. Rows without a dollar
+ * value, such as Final Jeopardy questions, are skipped too.
+ *
+ * QuestionBank.open prefers a question pack to the csv files, so when the
+ * default directories are imported into and the default pack exists, main
+ * compiles the pack again afterwards.
+ *
+ * Usage: java classes.QuestionImporter dump.csv [directory...]
+ */
+public class QuestionImporter
+{
+    private static final String[]    DEFAULT_DIRECTORIES =
+        { "assets/jeopardy-questions/main", "assets/jeopardy-questions/other" };
+
+    private static final int         WRITE_BUFFER        = 1 << 16;
+
+    private File[]                   directories;
+    private TreeMap<Integer, Writer> writers;
+    private LongHashSet              seen;
+    private long                     rows;
+    private long                     imported;
+    private long                     duplicates;
+    private long                     skipped;
+
+    /**
+     * Creates an importer that writes to the csv files in the given
+     * directories
+     *
+     * @param directories
+     *            the directories holding the point value csv files, in the
+     *            order a question bank reads them
+     */
+    public QuestionImporter(File... directories)
+    {
+        this.directories = directories;
+        writers = new TreeMap<Integer, Writer>();
+        seen = new LongHashSet(1 << 16);
+    }
+
+
+    /**
+     * Reads a dump and appends its new questions to the csv files. The files
+     * are not complete until the importer is closed.
+     *
+     * @param dump
+     *            the csv text of the dump
+     * @throws IOException
+     *             if the dump cannot be read, has no Category, Value,
+     *             Question and Answer columns, or a file cannot be written
+     */
+    public void importDump(Reader dump)
+        throws IOException
+    {
+        CsvReader in = new CsvReader(dump);
+        ArrayList<String> fields = new ArrayList<String>();
+        if (!in.readRecord(fields))
+        {
+            return;
+        }
+
+        int category = findColumn(fields, "category");
+        int value = findColumn(fields, "value");
+        int question = findColumn(fields, "question");
+        int answer = findColumn(fields, "answer");
+        int columns = Math.max(Math.max(category, value), Math.max(question, answer)) + 1;
+
+        while (in.readRecord(fields))
+        {
+            rows++;
+            int points = fields.size() < columns ? 0 : parseValue(fields.get(value));
+            if (points <= 0)
+            {
+                skipped++;
+                continue;
+            }
+
+            String questionText = clean(fields.get(question));
+            String answerText = clean(fields.get(answer));
+            Writer out = getWriter(points);
+            if (!seen.add(hash(points, questionText, answerText)))
+            {
+                duplicates++;
+                continue;
+            }
+
+            out.write('"');
+            out.write(clean(fields.get(category)));
+            out.write("\",\"$");
+            out.write(Integer.toString(points));
+            out.write("\",\"");
+            out.write(questionText);
+            out.write("\",\"");
+            out.write(answerText);
+            out.write("\"\n");
+            imported++;
+        }
+    }
+
+
+    /**
+     * Flushes and closes every csv file written to
+     *
+     * @throws IOException
+     *             if a file cannot be written
+     */
+    public void close()
+        throws IOException
+    {
+        IOException failed = null;
+        for (Writer out : writers.values())
+        {
+            try
+            {
+                out.close();
+            }
+            catch (IOException ex)
+            {
+                failed = ex;
+            }
+        }
+        writers.clear();
+
+        if (failed != null)
+        {
+            throw failed;
+        }
+    }
+
+
+    /**
+     * Returns the number of rows read from dumps, not counting headers
+     *
+     * @return the number of rows
+     */
+    public long getRowCount()
+    {
+        return rows;
+    }
+
+
+    /**
+     * Returns the number of questions written to the csv files
+     *
+     * @return the number of new questions
+     */
+    public long getImportedCount()
+    {
+        return imported;
+    }
+
+
+    /**
+     * Returns the number of rows skipped as questions that were already there
+     *
+     * @return the number of duplicates
+     */
+    public long getDuplicateCount()
+    {
+        return duplicates;
+    }
+
+
+    /**
+     * Returns the number of rows skipped for having no dollar value
+     *
+     * @return the number of rows without a value
+     */
+    public long getSkippedCount()
+    {
+        return skipped;
+    }
+
+
+    /**
+     * Returns the writer for a point value's csv file, opening it for
+     * appending the first time. The file is the one in the first directory
+     * that has a non-empty file for the point value, or a new file in the
+     * first directory. The questions already in the file are added to the
+     * seen hashes then, so importing the same dump twice adds nothing.
+     *
+     * @param points
+     *            the point value
+     * @return the writer
+     * @throws IOException
+     *             if the file cannot be read or opened
+     */
+    private Writer getWriter(int points)
+        throws IOException
+    {
+        Writer out = writers.get(points);
+        if (out != null)
+        {
+            return out;
+        }
+
+        File directory = directories[0];
+        for (int i = directories.length - 1; i >= 0; i--)
+        {
+            if (new File(directories[i], points + ".csv").length() > 0)
+            {
+                directory = directories[i];
+            }
+        }
+
+        File csv = new File(directory, points + ".csv");
+        if (csv.length() > 0)
+        {
+            MappedCsvFile file = new MappedCsvFile(csv, new File(directory, points + ".idx"));
+            for (int row = 0; row < file.getRowCount(); row++)
+            {
+                Card card = file.getCard(row);
+                seen.add(hash(points, card.getQuestion(), card.getAnswer()));
+            }
+        }
+
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv, true),
+            StandardCharsets.UTF_8), WRITE_BUFFER);
+        writers.put(points, out);
+        return out;
+    }
+
+
+    /**
+     * Finds a column by its name in the header record, ignoring case and
+     * surrounding spaces
+     *
+     * @param header
+     *            the fields of the header record
+     * @param name
+     *            the column name in lower case
+     * @return the index of the column
+     * @throws IOException
+     *             if there is no such column
+     */
+    private static int findColumn(ArrayList<String> header, String name)
+        throws IOException
+    {
+        for (int i = 0; i < header.size(); i++)
+        {
+            if (header.get(i).trim().equalsIgnoreCase(name))
+            {
+                return i;
+            }
+        }
+        throw new IOException("The dump has no " + name + " column");
+    }
+
+
+    /**
+     * Reads a dollar value such as "$2,000"
+     *
+     * @param value
+     *            the value field
+     * @return the points, or 0 if the field has no digits, such as "None"
+     */
+    private static int parseValue(String value)
+    {
+        int points = 0;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9')
+            {
+                points = points * 10 + (c - '0');
+            }
+            else if (c != '$' && c != ',' && c != ' ')
+            {
+                return 0;
+            }
+        }
+        return points;
+    }
+
+
+    /**
+     * Trims a field, turns its line breaks into spaces and puts a space into
+     * any quote, comma, quote sequence, and between the quote and comma a
+     * field ends with
+     *
+     * @param field
+     *            the field as read from the dump
+     * @return the field for one line of a csv file
+     */
+    private static String clean(String field)
+    {
+        // "," is what separates fields in a csv file of the bank
+        String line = field.replace("\r\n", " ").replace('\r', ' ').replace('\n', ' ').trim();
+        while (line.contains("\",\""))
+        {
+            line = line.replace("\",\"", "\", \"");
+        }
+        if (line.endsWith("\","))
+        {
+            line = line.substring(0, line.length() - 1) + " ,";
+        }
+        return line;
+    }
+
+
+    /**
+     * Hashes a question with 64 bit FNV-1a
+     *
+     * @param points
+     *            the point value
+     * @param question
+     *            the question
+     * @param answer
+     *            the answer
+     * @return the hash
+     */
+    private static long hash(int points, String question, String answer)
+    {
+        long h = 0xCBF29CE484222325L ^ points;
+        h = hash(h, question);
+        h = (h ^ 0xFFFF) * 0x100000001B3L; // between the question and answer
+        return hash(h, answer);
+    }
+
+
+    /**
+     * Adds the characters of a string to an FNV-1a hash
+     *
+     * @param h
+     *            the hash so far
+     * @param text
+     *            the string
+     * @return the new hash
+     */
+    private static long hash(long h, String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            h = (h ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+
+    /**
+     * Imports a dump and prints how many rows it had and how fast they were
+     * imported. With no directories the dump goes into
+     * assets/jeopardy-questions/main and assets/jeopardy-questions/other, and
+     * the question pack next to them is compiled again if there is one.
+     *
+     * @param args
+     *            the dump, followed by the directories of the csv files
+     */
+    public static void main(String[] args)
+    {
+        if (args.length == 0)
+        {
+            System.out.println("Usage: java classes.QuestionImporter dump.csv [directory...]");
+            System.exit(1);
+        }
+
+        String[] names = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length)
+            : DEFAULT_DIRECTORIES;
+        File[] directories = new File[names.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            directories[i] = new File(names[i]);
+        }
+
+        QuestionImporter importer = new QuestionImporter(directories);
+        long start = System.nanoTime();
+        try (Reader dump = new InputStreamReader(new FileInputStream(args[0]),
+            StandardCharsets.UTF_8))
+        {
+            importer.importDump(dump);
+            importer.close();
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot import " + args[0] + ": " + ex.getMessage() + " ***");
+            System.exit(1);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d rows: %d imported, %d duplicates, %d without a value "
+            + "in %.2f s (%.0f rows/s)%n", importer.getRowCount(), importer.getImportedCount(),
+            importer.getDuplicateCount(), importer.getSkippedCount(), seconds,
+            importer.getRowCount() / seconds);
+
+        File pack = new File(QuestionPackCompiler.DEFAULT_PACK);
+        if (args.length == 1 && importer.getImportedCount() > 0 && pack.isFile())
+        {
+            // the game would keep reading the old pack instead of the csv files
+            QuestionPackCompiler compiler = new QuestionPackCompiler();
+            for (File directory : directories)
+            {
+                compiler.addDirectory(directory);
+            }
+
+            try
+            {
+                System.out.println("Compiled " + compiler.compile(pack) + " questions to "
+                    + pack.getPath());
+            }
+            catch (IOException ex)
+            {
+                System.out.println("***Cannot compile " + pack.getPath() + ": "
+                    + ex.getMessage() + " ***");
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package classes;
+
+import java.io.IOException;
+
+/**
+ * One version of the question data: a question bank together with the
+ * CategoryIndex and QuestionStore over it. The three always belong to the
+ * same bank, so rows drawn from one can be looked up in the others. A library
+ * never changes; when the question files change, BankReloader builds a new
+ * library and hands it out in place of the old one, while games that were
+ * dealt from the old library keep their cards. Decoded questions are kept in
+ * one bounded cache that board draws and the store share, and every board
+ * dealt from a library draws from its one QuestionSampler, so questions do
+ * not repeat between the games it deals until the bank runs out.
+ */
+public final class QuestionLibrary
+{
+    private final CachedQuestionBank bank;
+    private final CategoryIndex      categoryIndex;
+    private final QuestionStore      store;
+    private final QuestionSampler    sampler;
+
+    /**
+     * Creates a library over a question bank. A bank without a cache is
+     * given one of QuestionCache.DEFAULT_CAPACITY questions.
+     *
+     * @param bank
+     *            the question bank
+     * @throws IOException
+     *             if the question counts cannot be read
+     */
+    public QuestionLibrary(QuestionBank bank)
+        throws IOException
+    {
+        this.bank = CachedQuestionBank.wrap(bank);
+        categoryIndex = new CategoryIndex(this.bank);
+        store = new QuestionStore(this.bank);
+        sampler = new QuestionSampler(this.bank);
+    }
+
+
+    /**
+     * Opens the question pack if it exists, otherwise the csv files in the
+     * given directories
+     *
+     * @param packPath
+     *            path of the compiled question pack
+     * @param csvDirectories
+     *            directories holding the point value csv files
+     * @return the library
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public static QuestionLibrary open(String packPath, String... csvDirectories)
+        throws IOException
+    {
+        return new QuestionLibrary(QuestionBank.open(packPath, csvDirectories));
+    }
+
+
+    /**
+     * Reads the category of every question, so the category index is ready
+     * before the library is used. This is what takes time when a library is
+     * built, and a reloaded library is loaded before it replaces the old one.
+     *
+     * @throws IOException
+     *             if the questions cannot be read
+     */
+    public void load()
+        throws IOException
+    {
+        for (int points : bank.getPointValues())
+        {
+            categoryIndex.getRows(points, "");
+        }
+    }
+
+
+    /**
+     * Returns the question bank
+     *
+     * @return the question bank
+     */
+    public CachedQuestionBank getBank()
+    {
+        return bank;
+    }
+
+
+    /**
+     * Returns the category index over the bank
+     *
+     * @return the category index
+     */
+    public CategoryIndex getCategoryIndex()
+    {
+        return categoryIndex;
+    }
+
+
+    /**
+     * Returns the question store over the bank
+     *
+     * @return the question store
+     */
+    public QuestionStore getStore()
+    {
+        return store;
+    }
+
+
+    /**
+     * Returns the sampler that every board dealt from this library draws from
+     *
+     * @return the question sampler over the bank
+     */
+    public QuestionSampler getSampler()
+    {
+        return sampler;
+    }
+
+
+    /**
+     * Makes a board builder for a layout that draws from this library's
+     * sampler
+     *
+     * @param spec
+     *            the layout of the boards
+     * @return the builder
+     * @throws IOException
+     *             if the question counts cannot be read
+     * @throws IllegalArgumentException
+     *             if a row of the layout does not have enough questions
+     */
+    public BoardBuilder newBuilder(BoardSpec spec)
+        throws IOException
+    {
+        return newBuilder(spec, sampler);
+    }
+
+
+    /**
+     * Makes a board builder for a layout that draws from this library with
+     * another sampler over its bank, such as one kept for a session
+     *
+     * @param spec
+     *            the layout of the boards
+     * @param sampler
+     *            the sampler to draw the questions from
+     * @return the builder
+     * @throws IOException
+     *             if the question counts cannot be read
+     * @throws IllegalArgumentException
+     *             if a row of the layout does not have enough questions, or
+     *             the sampler draws from another bank
+     */
+    public BoardBuilder newBuilder(BoardSpec spec, QuestionSampler sampler)
+        throws IOException
+    {
+        if (sampler.getBank() != bank)
+        {
+            throw new IllegalArgumentException("The sampler draws from another question bank");
+        }
+        spec.validate(bank);
+        return new BoardBuilder(spec, sampler, bank, categoryIndex);
+    }
+}
@@ -0,0 +1,358 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A compiled, read-only question pack built by QuestionPackCompiler. The pack
+ * is memory mapped and only the small header is read when it is opened.
+ * Records are stored in deflated blocks of up to BLOCK_SIZE questions of the
+ * same point value, so drawing a card inflates a single block. All numbers
+ * are big endian.
+ *
+ * <pre>
+ * int     magic "JQPK"
+ * int     version
+ * int     category count
+ *         category table: varint length + UTF-8 bytes per category
+ * int     point value count
+ *         per point value: int points, int first block, int record count
+ * int     block count
+ *         block table: int offset per block plus the end of the last block,
+ *         relative to the start of the blocks
+ *         blocks: deflated records, each record being a varint category id,
+ *         varint length + UTF-8 question and varint length + UTF-8 answer
+ * </pre>
+ */
+public class QuestionPack
+    implements QuestionBank
+{
+    static final int                MAGIC      = 0x4A51504B; // "JQPK"
+    static final int                VERSION    = 1;
+    static final int                BLOCK_SIZE = 64;
+
+    private MappedByteBuffer        buffer;
+    private int[]                   categoryOffsets;
+    private int[]                   categoryIds;
+    private TreeMap<Integer, int[]> pointRanges;
+    private int                     blockTable;
+    private int                     blockStart;
+    private long                    fingerprint = -1;
+
+    /**
+     * Maps the question pack and reads its header
+     *
+     * @param file
+     *            the pack file
+     * @throws IOException
+     *             if the file cannot be read or is not a question pack
+     */
+    public QuestionPack(File file)
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        if (in.getInt() != MAGIC)
+        {
+            throw new IOException(file.getPath() + " is not a question pack");
+        }
+        if (in.getInt() != VERSION)
+        {
+            throw new IOException(file.getPath() + " has an unsupported version");
+        }
+
+        categoryOffsets = new int[in.getInt()];
+        categoryIds = new int[categoryOffsets.length];
+        Arrays.fill(categoryIds, -1);
+        for (int i = 0; i < categoryOffsets.length; i++)
+        {
+            categoryOffsets[i] = in.position();
+            skipString(in);
+        }
+
+        pointRanges = new TreeMap<Integer, int[]>();
+        int pointCount = in.getInt();
+        for (int i = 0; i < pointCount; i++)
+        {
+            int points = in.getInt();
+            int first = in.getInt();
+            int count = in.getInt();
+            if (count > 0)
+            {
+                pointRanges.put(points, new int[] { first, count });
+            }
+        }
+
+        int blockCount = in.getInt();
+        blockTable = in.position();
+        blockStart = blockTable + (blockCount + 1) * 4;
+    }
+
+
+    /**
+     * Returns the point values that have at least one question
+     *
+     * @return the point values in ascending order
+     */
+    public NavigableSet<Integer> getPointValues()
+    {
+        return Collections.unmodifiableNavigableSet(pointRanges.navigableKeySet());
+    }
+
+
+    /**
+     * Returns the number of questions stored for the given point value
+     *
+     * @param points
+     *            the point value
+     * @return the number of questions worth that many points, 0 if there are
+     *         none
+     */
+    public int getQuestionCount(int points)
+    {
+        int[] range = pointRanges.get(points);
+        return range == null ? 0 : range[1];
+    }
+
+
+    /**
+     * Decodes the card stored in the given row for a point value
+     *
+     * @param points
+     *            the point value of the card
+     * @param row
+     *            the row of the card, starting at 0
+     * @return the card in that row
+     */
+    public Card getCard(int points, int row)
+    {
+        int[] range = pointRanges.get(points);
+        if (range == null || row < 0 || row >= range[1])
+        {
+            throw new IndexOutOfBoundsException("No row " + row + " for " + points + " points");
+        }
+
+        ByteBuffer in = inflateBlock(range[0] + row / BLOCK_SIZE);
+        for (int i = row % BLOCK_SIZE; i > 0; i--)
+        {
+            readVarInt(in);
+            skipString(in);
+            skipString(in);
+        }
+
+        int category = getCategoryId(readVarInt(in));
+        byte[] question = readBytes(in);
+        byte[] answer = readBytes(in);
+
+        return new Card(new Question(question, answer, points, category, row));
+    }
+
+
+    /**
+     * Returns the category of every question worth the given number of
+     * points. Each block is inflated once and only the category ids are read.
+     *
+     * @param points
+     *            the point value
+     * @return the category of each row, indexed by row
+     */
+    public String[] getCategories(int points)
+    {
+        int[] range = pointRanges.get(points);
+        if (range == null)
+        {
+            return new String[0];
+        }
+
+        String[] rows = new String[range[1]];
+        ByteBuffer in = null;
+        for (int row = 0; row < rows.length; row++)
+        {
+            if (row % BLOCK_SIZE == 0)
+            {
+                in = inflateBlock(range[0] + row / BLOCK_SIZE);
+            }
+
+            rows[row] = CategoryDictionary.getShared().getName(getCategoryId(readVarInt(in)));
+            skipString(in);
+            skipString(in);
+        }
+
+        return rows;
+    }
+
+
+    /**
+     * Returns a fingerprint of the pack: its length and the CRC-32 of its
+     * bytes. The checksum reads the whole pack, so it is only computed the
+     * first time it is asked for.
+     *
+     * @return the fingerprint of the pack
+     */
+    public synchronized long getFingerprint()
+    {
+        if (fingerprint < 0)
+        {
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().clear());
+            fingerprint = (long)buffer.capacity() << 32 | checksum.getValue();
+        }
+        return fingerprint;
+    }
+
+
+    /**
+     * Inflates one block of records
+     *
+     * @param block
+     *            the index of the block
+     * @return a buffer positioned at the first record of the block
+     */
+    private ByteBuffer inflateBlock(int block)
+    {
+        int start = buffer.getInt(blockTable + block * 4);
+        int end = buffer.getInt(blockTable + (block + 1) * 4);
+
+        ByteBuffer compressed = buffer.slice(blockStart + start, end - start);
+        byte[] records = new byte[BLOCK_SIZE * 256];
+        int length = 0;
+
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed);
+            while (!inflater.finished())
+            {
+                if (length == records.length)
+                {
+                    records = Arrays.copyOf(records, records.length * 2);
+                }
+                int read = inflater.inflate(records, length, records.length - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw new IllegalStateException("Truncated question pack block " + block);
+                }
+                length += read;
+            }
+        }
+        catch (DataFormatException ex)
+        {
+            throw new IllegalStateException("Corrupt question pack block " + block, ex);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        return ByteBuffer.wrap(records, 0, length);
+    }
+
+
+    /**
+     * Returns the id in the shared CategoryDictionary of the category with
+     * the given id in the pack, decoding it the first time it is used
+     *
+     * @param id
+     *            the category id in the pack
+     * @return the category id in the dictionary
+     */
+    private int getCategoryId(int id)
+    {
+        int category = categoryIds[id];
+        if (category < 0)
+        {
+            ByteBuffer in = buffer.duplicate();
+            in.position(categoryOffsets[id]);
+            category = CategoryDictionary.getShared().getId(readString(in));
+            categoryIds[id] = category;
+        }
+        return category;
+    }
+
+
+    /**
+     * Reads a varint length followed by that many UTF-8 bytes
+     *
+     * @param in
+     *            the buffer to read from
+     * @return the decoded string
+     */
+    private static String readString(ByteBuffer in)
+    {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Reads a varint length followed by that many bytes, without decoding
+     * them
+     *
+     * @param in
+     *            the buffer to read from
+     * @return the bytes
+     */
+    private static byte[] readBytes(ByteBuffer in)
+    {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.get(bytes);
+        return bytes;
+    }
+
+
+    /**
+     * Skips over a varint length and that many bytes
+     *
+     * @param in
+     *            the buffer to read from
+     */
+    private static void skipString(ByteBuffer in)
+    {
+        int length = readVarInt(in);
+        in.position(in.position() + length);
+    }
+
+
+    /**
+     * Reads an unsigned variable length int, seven bits per byte
+     *
+     * @param in
+     *            the buffer to read from
+     * @return the decoded value
+     */
+    static int readVarInt(ByteBuffer in)
+    {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+
+        return value;
+    }
+}
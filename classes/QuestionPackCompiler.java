@@ -0,0 +1,314 @@
+package classes;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * Compiles the point value csv files into a single QuestionPack. Category
+ * names are stored once and referenced by id, and questions and answers are
+ * stored as length prefixed UTF-8 without any quoting, deflated in blocks of
+ * QuestionPack.BLOCK_SIZE records.
+ *
+ * Directories are read the way CsvQuestionBank reads them: if two of them
+ * have a file for the same point value the first one wins, so the pack holds
+ * the same questions in the same rows as the csv files it replaces. Nothing
+ * is written next to the csv files; only the pack is written.
+ *
+ * Usage: java classes.QuestionPackCompiler [output.pack] [csv directory...]
+ */
+public class QuestionPackCompiler
+{
+    public static final String       DEFAULT_PACK =
+        "assets/jeopardy-questions/questions.pack";
+
+    private HashMap<String, Integer> categoryIds;
+    private ArrayList<String>        categories;
+    private TreeMap<Integer, File>   pointFiles;
+
+    /**
+     * Creates a compiler with no input files
+     */
+    public QuestionPackCompiler()
+    {
+        categoryIds = new HashMap<String, Integer>();
+        categories = new ArrayList<String>();
+        pointFiles = new TreeMap<Integer, File>();
+    }
+
+
+    /**
+     * Adds every point value csv file in a directory. Files that are not named
+     * after a point value, such as None.csv, empty files and point values
+     * that an earlier directory already has are skipped.
+     *
+     * @param directory
+     *            the directory holding the csv files
+     */
+    public void addDirectory(File directory)
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            System.out.println("***Cannot open " + directory.getPath() + " ***");
+            return;
+        }
+
+        for (File file : files)
+        {
+            String name = file.getName();
+            if (!name.matches("[0-9]+\\.csv") || file.length() == 0)
+            {
+                continue;
+            }
+
+            int points = Integer.parseInt(name.substring(0, name.length() - 4));
+            if (!pointFiles.containsKey(points))
+            {
+                pointFiles.put(points, file);
+            }
+        }
+    }
+
+
+    /**
+     * Reads all added csv files and writes the question pack. The pack is
+     * written to a temporary file first and then moved into place.
+     *
+     * @param output
+     *            the pack file to write
+     * @return the number of questions written
+     * @throws IOException
+     *             if a csv file cannot be read or the pack cannot be written
+     */
+    public int compile(File output)
+        throws IOException
+    {
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream(1 << 20);
+        ByteArrayOutputStream block = new ByteArrayOutputStream(1 << 14);
+        ArrayList<Integer> blockOffsets = new ArrayList<Integer>();
+        TreeMap<Integer, int[]> pointRanges = new TreeMap<Integer, int[]>();
+        int total = 0;
+
+        for (int points : pointFiles.keySet())
+        {
+            int first = blockOffsets.size();
+            int count = 0;
+            // the csv is read once, so no sidecar index is kept for it
+            MappedCsvFile file = new MappedCsvFile(pointFiles.get(points), null);
+            for (int row = 0; row < file.getRowCount(); row++)
+            {
+                Card card = file.getCard(row);
+
+                writeVarInt(block, getCategoryId(card.getCategory()));
+                writeString(block, card.getQuestion());
+                writeString(block, card.getAnswer());
+                count++;
+
+                if (count % QuestionPack.BLOCK_SIZE == 0)
+                {
+                    blockOffsets.add(blocks.size());
+                    writeBlock(blocks, block);
+                }
+            }
+
+            if (block.size() > 0)
+            {
+                blockOffsets.add(blocks.size());
+                writeBlock(blocks, block);
+            }
+
+            pointRanges.put(points, new int[] { first, count });
+            total += count;
+        }
+        blockOffsets.add(blocks.size());
+
+        File temp = new File(output.getPath() + ".tmp");
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        try
+        {
+            out.writeInt(QuestionPack.MAGIC);
+            out.writeInt(QuestionPack.VERSION);
+
+            out.writeInt(categories.size());
+            for (String category : categories)
+            {
+                writeString(out, category);
+            }
+
+            out.writeInt(pointRanges.size());
+            for (int points : pointRanges.keySet())
+            {
+                int[] range = pointRanges.get(points);
+                out.writeInt(points);
+                out.writeInt(range[0]);
+                out.writeInt(range[1]);
+            }
+
+            out.writeInt(blockOffsets.size() - 1);
+            for (int offset : blockOffsets)
+            {
+                out.writeInt(offset);
+            }
+            blocks.writeTo(out);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return total;
+    }
+
+
+    /**
+     * Deflates the pending records of a block onto the blocks stream and
+     * empties the block
+     *
+     * @param blocks
+     *            the stream of compressed blocks
+     * @param block
+     *            the uncompressed records of the block
+     */
+    private static void writeBlock(ByteArrayOutputStream blocks, ByteArrayOutputStream block)
+    {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try
+        {
+            deflater.setInput(block.toByteArray());
+            deflater.finish();
+
+            byte[] buffer = new byte[1 << 14];
+            while (!deflater.finished())
+            {
+                int length = deflater.deflate(buffer);
+                blocks.write(buffer, 0, length);
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+
+        block.reset();
+    }
+
+
+    /**
+     * Returns the id of a category, adding it to the category table the first
+     * time it is seen
+     *
+     * @param category
+     *            the category name
+     * @return the id of the category
+     */
+    private int getCategoryId(String category)
+    {
+        Integer id = categoryIds.get(category);
+        if (id == null)
+        {
+            id = categories.size();
+            categories.add(category);
+            categoryIds.put(category, id);
+        }
+        return id;
+    }
+
+
+    /**
+     * Writes a varint length followed by the UTF-8 bytes of a string
+     *
+     * @param out
+     *            the stream to write to
+     * @param str
+     *            the string to write
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    private static void writeString(OutputStream out, String str)
+        throws IOException
+    {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+
+    /**
+     * Writes an unsigned variable length int, seven bits per byte
+     *
+     * @param out
+     *            the stream to write to
+     * @param value
+     *            the value to write
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    static void writeVarInt(OutputStream out, int value)
+        throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+    /**
+     * Compiles the question pack. With no arguments the csv files in
+     * assets/jeopardy-questions/main and assets/jeopardy-questions/other are
+     * compiled into assets/jeopardy-questions/questions.pack.
+     *
+     * @param args
+     *            the output pack followed by the csv directories
+     */
+    public static void main(String[] args)
+    {
+        String output = args.length > 0 ? args[0] : DEFAULT_PACK;
+
+        QuestionPackCompiler compiler = new QuestionPackCompiler();
+        if (args.length > 1)
+        {
+            for (int i = 1; i < args.length; i++)
+            {
+                compiler.addDirectory(new File(args[i]));
+            }
+        }
+        else
+        {
+            compiler.addDirectory(new File("assets/jeopardy-questions/main"));
+            compiler.addDirectory(new File("assets/jeopardy-questions/other"));
+        }
+
+        try
+        {
+            long start = System.nanoTime();
+            int count = compiler.compile(new File(output));
+            long millis = (System.nanoTime() - start) / 1000000;
+
+            System.out.println("Wrote " + count + " questions in " + compiler.categories.size()
+                + " categories to " + output + " (" + new File(output).length() + " bytes, "
+                + millis + " ms)");
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot compile " + output + ": " + ex.getMessage() + " ***");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package classes;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws cards from a question bank without repeating a question. Each point
+ * value gets its own RowSampler, created the first time the point value is
+ * used. A board never shows the same question twice, and since a sampler
+ * only starts over between the rows of boards, sharing one sampler between
+ * the games of a session, as a QuestionLibrary does, keeps questions from
+ * repeating across the whole session until every question of a point value
+ * has been used.
+ */
+public class QuestionSampler
+{
+    private QuestionBank                           bank;
+    private ConcurrentHashMap<Integer, RowSampler> samplers;
+
+    /**
+     * Creates a sampler that draws from the given question bank
+     *
+     * @param bank
+     *            the question bank to draw from
+     */
+    public QuestionSampler(QuestionBank bank)
+    {
+        this.bank = bank;
+        samplers = new ConcurrentHashMap<Integer, RowSampler>();
+    }
+
+
+    /**
+     * Returns the question bank the rows are drawn from
+     *
+     * @return the question bank
+     */
+    public QuestionBank getBank()
+    {
+        return bank;
+    }
+
+
+    /**
+     * Draws a card worth the given number of points that this sampler has not
+     * drawn before
+     *
+     * @param points
+     *            the point value of the card
+     * @return the card
+     * @throws IOException
+     *             if the question bank cannot be read or has no questions
+     *             worth that many points
+     */
+    public Card draw(int points)
+        throws IOException
+    {
+        return bank.getCard(points, drawRow(points));
+    }
+
+
+    /**
+     * Draws the row of a question worth the given number of points that this
+     * sampler has not drawn before, without reading the question
+     *
+     * @param points
+     *            the point value of the question
+     * @return the row of the question among those worth that many points
+     * @throws IOException
+     *             if the question bank cannot be read or has no questions
+     *             worth that many points
+     */
+    public int drawRow(int points)
+        throws IOException
+    {
+        return getSampler(points).next(1, new int[0])[0];
+    }
+
+
+    /**
+     * Draws the rows of the questions for one row of a board. The rows are
+     * different from each other and from the rows the board row already
+     * holds, and have not been drawn before unless the sampler had to start
+     * over for them.
+     *
+     * @param points
+     *            the point value of the questions
+     * @param count
+     *            the number of rows to draw
+     * @param kept
+     *            different rows the board row already holds
+     * @return the rows of the questions among those worth that many points
+     * @throws IOException
+     *             if the question bank cannot be read or has too few
+     *             questions worth that many points
+     */
+    public int[] drawRows(int points, int count, int[] kept)
+        throws IOException
+    {
+        RowSampler sampler = getSampler(points);
+        if (count + kept.length > sampler.size())
+        {
+            throw new IOException("Only " + sampler.size() + " questions worth " + points
+                + " points");
+        }
+        return sampler.next(count, kept);
+    }
+
+
+    /**
+     * Marks a question that was picked some other way, such as from a
+     * category, as drawn
+     *
+     * @param points
+     *            the point value of the question
+     * @param row
+     *            the row of the question among those worth that many points
+     * @return true if the question had not been drawn before
+     * @throws IOException
+     *             if the question bank cannot be read or has no questions
+     *             worth that many points
+     */
+    public boolean take(int points, int row)
+        throws IOException
+    {
+        return getSampler(points).take(row);
+    }
+
+
+    /**
+     * Makes every question available again
+     */
+    public void reset()
+    {
+        for (RowSampler sampler : samplers.values())
+        {
+            sampler.reset();
+        }
+    }
+
+
+    /**
+     * Returns the row sampler for a point value, creating it the first time
+     *
+     * @param points
+     *            the point value
+     * @return the row sampler over all questions with that point value
+     * @throws IOException
+     *             if the question bank cannot be read or has no questions
+     *             worth that many points
+     */
+    private RowSampler getSampler(int points)
+        throws IOException
+    {
+        RowSampler sampler = samplers.get(points);
+        if (sampler == null)
+        {
+            int count = bank.getQuestionCount(points);
+            if (count == 0)
+            {
+                throw new IOException("No questions worth " + points + " points");
+            }
+
+            RowSampler created = new RowSampler(count);
+            sampler = samplers.putIfAbsent(points, created);
+            if (sampler == null)
+            {
+                sampler = created;
+            }
+        }
+        return sampler;
+    }
+}
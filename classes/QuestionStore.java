@@ -0,0 +1,178 @@
+package classes;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NavigableSet;
+
+/**
+ * The questions of a question bank as shared, immutable Question objects with
+ * a compact int id each. Ids run through every point value of the bank in
+ * order, so an id is the row of the question plus the number of questions
+ * worth fewer points. Questions are read through a CachedQuestionBank, so
+ * rooms that show the same question share one instance while it is cached
+ * and a board only has to hold ints. The cache is bounded, so a server that
+ * deals boards from every question of the bank does not end up holding all
+ * of them.
+ */
+public class QuestionStore
+{
+    private CachedQuestionBank bank;
+    private int[]              pointValues;
+    private int[]              firstIds;
+
+    /**
+     * Creates a store over a question bank. A bank without a cache is given
+     * one of QuestionCache.DEFAULT_CAPACITY questions.
+     *
+     * @param bank
+     *            the question bank
+     * @throws IOException
+     *             if the question counts cannot be read
+     */
+    public QuestionStore(QuestionBank bank)
+        throws IOException
+    {
+        this.bank = CachedQuestionBank.wrap(bank);
+
+        NavigableSet<Integer> values = bank.getPointValues();
+        pointValues = new int[values.size()];
+        firstIds = new int[values.size() + 1];
+        int i = 0;
+        for (int points : values)
+        {
+            pointValues[i] = points;
+            firstIds[i + 1] = firstIds[i] + bank.getQuestionCount(points);
+            i++;
+        }
+    }
+
+
+    /**
+     * Returns the question bank the store reads from
+     *
+     * @return the question bank
+     */
+    public CachedQuestionBank getBank()
+    {
+        return bank;
+    }
+
+
+    /**
+     * Returns the number of ids, which is the number of questions in the bank
+     *
+     * @return the number of questions
+     */
+    public int size()
+    {
+        return firstIds[firstIds.length - 1];
+    }
+
+
+    /**
+     * Returns the number of questions cached right now
+     *
+     * @return the number of shared Question objects
+     */
+    public int getLoadedCount()
+    {
+        return bank.getCache().size();
+    }
+
+
+    /**
+     * Returns the id of a question
+     *
+     * @param points
+     *            the point value of the question
+     * @param row
+     *            the row of the question among those worth that many points
+     * @return the id
+     * @throws IllegalArgumentException
+     *             if there is no such question
+     */
+    public int getId(int points, int row)
+    {
+        int i = Arrays.binarySearch(pointValues, points);
+        if (i < 0 || row < 0 || row >= firstIds[i + 1] - firstIds[i])
+        {
+            throw new IllegalArgumentException("No question " + row + " worth " + points);
+        }
+        return firstIds[i] + row;
+    }
+
+
+    /**
+     * Returns the point value of a question
+     *
+     * @param id
+     *            the id of the question
+     * @return its point value
+     */
+    public int getPoints(int id)
+    {
+        return pointValues[getPointIndex(id)];
+    }
+
+
+    /**
+     * Returns the row of a question among those with the same point value
+     *
+     * @param id
+     *            the id of the question
+     * @return its row
+     */
+    public int getRow(int id)
+    {
+        return id - firstIds[getPointIndex(id)];
+    }
+
+
+    /**
+     * Returns the shared question for an id, reading it from the bank if it
+     * is not cached
+     *
+     * @param id
+     *            the id of the question
+     * @return the question
+     * @throws IOException
+     *             if the question cannot be read
+     */
+    public Question get(int id)
+        throws IOException
+    {
+        int i = getPointIndex(id);
+        return bank.getQuestion(pointValues[i], id - firstIds[i]);
+    }
+
+
+    /**
+     * Finds the point value an id belongs to
+     *
+     * @param id
+     *            the id of a question
+     * @return the index of its point value
+     * @throws IllegalArgumentException
+     *             if the id is out of range
+     */
+    private int getPointIndex(int id)
+    {
+        if (id < 0 || id >= size())
+        {
+            throw new IllegalArgumentException("No question " + id);
+        }
+
+        // the last point value whose first id is not past the id
+        int i = Arrays.binarySearch(firstIds, id);
+        if (i < 0)
+        {
+            return -i - 2;
+        }
+        while (firstIds[i + 1] == id)
+        {
+            // skip point values without questions
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,165 @@
+package classes;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * The open GameRooms of a server by name. The names are spread over a number
+ * of shards, each a plain HashMap with its own lock, so joins to different
+ * rooms rarely wait for each other. A new room is built outside the lock and
+ * only put in if no other thread opened the same room first.
+ *
+ * Rooms are not removed when their last player leaves, so players can come
+ * back to a game they dropped out of. evictIdle closes and removes the rooms
+ * that nobody has used for a while.
+ */
+public class RoomRegistry
+{
+    private Shard[] shards;
+
+    /**
+     * Creates an empty registry
+     *
+     * @param shardCount
+     *            the number of shards, rounded up to a power of two
+     */
+    public RoomRegistry(int shardCount)
+    {
+        int size = 1;
+        while (size < shardCount)
+        {
+            size <<= 1;
+        }
+
+        shards = new Shard[size];
+        for (int i = 0; i < shards.length; i++)
+        {
+            shards[i] = new Shard();
+        }
+    }
+
+
+    /**
+     * Returns a room, opening it if there is none by that name
+     *
+     * @param name
+     *            the name of the room
+     * @param factory
+     *            makes a new room with the given name
+     * @return the room by that name
+     */
+    public GameRoom getOrCreate(String name, Function<String, GameRoom> factory)
+    {
+        Shard shard = getShard(name);
+        synchronized (shard)
+        {
+            GameRoom room = shard.rooms.get(name);
+            if (room != null)
+            {
+                return room;
+            }
+        }
+
+        // building a board can read the question bank, so not under the lock
+        GameRoom created = factory.apply(name);
+        synchronized (shard)
+        {
+            GameRoom room = shard.rooms.putIfAbsent(name, created);
+            return room == null ? created : room;
+        }
+    }
+
+
+    /**
+     * Removes a room, if the name still belongs to it
+     *
+     * @param name
+     *            the name of the room
+     * @param room
+     *            the room to remove
+     * @return true if the room was removed
+     */
+    public boolean remove(String name, GameRoom room)
+    {
+        Shard shard = getShard(name);
+        synchronized (shard)
+        {
+            return shard.rooms.remove(name, room);
+        }
+    }
+
+
+    /**
+     * Returns the number of rooms
+     *
+     * @return the number of rooms in all shards
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Shard shard : shards)
+        {
+            synchronized (shard)
+            {
+                size += shard.rooms.size();
+            }
+        }
+        return size;
+    }
+
+
+    /**
+     * Closes and removes every room that nobody is connected to and nobody
+     * used for the given time. One shard is locked at a time.
+     *
+     * @param idleMillis
+     *            how long a room has to be unused
+     * @return the number of rooms removed
+     */
+    public int evictIdle(long idleMillis)
+    {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+        for (Shard shard : shards)
+        {
+            synchronized (shard)
+            {
+                Iterator<GameRoom> rooms = shard.rooms.values().iterator();
+                while (rooms.hasNext())
+                {
+                    if (rooms.next().closeIfIdle(cutoff))
+                    {
+                        rooms.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+
+    /**
+     * Finds the shard for a room name
+     *
+     * @param name
+     *            the name of the room
+     * @return its shard
+     */
+    private Shard getShard(String name)
+    {
+        int hash = name.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+    }
+
+
+    /**
+     * The rooms whose names hash to one shard. The shard itself is the lock
+     * for its map.
+     */
+    private static class Shard
+    {
+        private HashMap<String, GameRoom> rooms = new HashMap<String, GameRoom>();
+    }
+}
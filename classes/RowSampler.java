@@ -0,0 +1,197 @@
+package classes;
+
+import java.util.BitSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws row numbers from 0 to size - 1 without replacement. This is a Fisher
+ * Yates shuffle that is only advanced one step per draw, so every draw costs
+ * O(1) and no row is returned twice until all rows have been drawn. The
+ * permutation array starts out as all zeros, which stands for "this slot still
+ * holds its own index", so creating a sampler does not touch every row.
+ *
+ * A sampler never starts over in the middle of a group of draws: next(count,
+ * kept) refills it only before drawing a whole group, such as the row of a
+ * board, so the group never repeats a row. Rows picked some other way, such
+ * as from a category, can be marked with take, and next skips them.
+ */
+public class RowSampler
+{
+    private int[]  slots;
+    private BitSet used;
+    private int    drawn;
+    private int    pending;
+
+    /**
+     * Creates a sampler over the rows 0 to size - 1
+     *
+     * @param size
+     *            the number of rows
+     */
+    public RowSampler(int size)
+    {
+        slots = new int[size];
+        used = new BitSet(size);
+        drawn = 0;
+    }
+
+
+    /**
+     * Returns the number of rows the sampler draws from
+     *
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return slots.length;
+    }
+
+
+    /**
+     * Returns how many rows can still be drawn before the sampler has to be
+     * reset
+     *
+     * @return the number of rows that have not been drawn or taken yet
+     */
+    public synchronized int remaining()
+    {
+        return slots.length - drawn - pending;
+    }
+
+
+    /**
+     * Draws a row that has not been drawn or taken since the last reset
+     *
+     * @return a row number between 0 and size - 1
+     * @throws IllegalStateException
+     *             if every row has been drawn since the last reset
+     */
+    public synchronized int next()
+    {
+        if (remaining() == 0)
+        {
+            throw new IllegalStateException("Every row has been drawn");
+        }
+
+        while (true)
+        {
+            int pick = drawn + ThreadLocalRandom.current().nextInt(slots.length - drawn);
+            int row = get(pick);
+            set(pick, get(drawn));
+            set(drawn, row);
+            drawn++;
+
+            if (!used.get(row))
+            {
+                used.set(row);
+                return row;
+            }
+            // taken since the last reset, and now out of the way
+            pending--;
+        }
+    }
+
+
+    /**
+     * Draws a group of different rows, such as the row of a board, that are
+     * also different from the rows the group already holds. If fewer rows
+     * than that are left, the sampler is reset first and the kept rows are
+     * taken again, so the group never repeats a row.
+     *
+     * @param count
+     *            the number of rows to draw
+     * @param kept
+     *            different rows the group already holds, which are taken
+     * @return the rows
+     * @throws IllegalArgumentException
+     *             if the sampler has fewer rows than the group needs
+     */
+    public synchronized int[] next(int count, int[] kept)
+    {
+        if (count + kept.length > slots.length)
+        {
+            throw new IllegalArgumentException("Cannot draw " + (count + kept.length) + " of "
+                + slots.length + " rows");
+        }
+        for (int row : kept)
+        {
+            take(row);
+        }
+        if (remaining() < count)
+        {
+            reset();
+            for (int row : kept)
+            {
+                take(row);
+            }
+        }
+
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            rows[i] = next();
+        }
+        return rows;
+    }
+
+
+    /**
+     * Marks a row that was picked some other way as drawn, so next does not
+     * return it until the sampler is reset
+     *
+     * @param row
+     *            the row
+     * @return true if the row had not been drawn or taken since the last
+     *         reset
+     */
+    public synchronized boolean take(int row)
+    {
+        if (used.get(row))
+        {
+            return false;
+        }
+        used.set(row);
+        pending++;
+        return true;
+    }
+
+
+    /**
+     * Makes every row available again. The rows are not put back in order,
+     * which does not matter because the next draws pick at random anyway.
+     */
+    public synchronized void reset()
+    {
+        drawn = 0;
+        pending = 0;
+        used.clear();
+    }
+
+
+    /**
+     * Returns the row held in a slot of the permutation
+     *
+     * @param slot
+     *            the slot
+     * @return the row in that slot
+     */
+    private int get(int slot)
+    {
+        int value = slots[slot];
+        return value == 0 ? slot : value - 1;
+    }
+
+
+    /**
+     * Stores a row in a slot of the permutation
+     *
+     * @param slot
+     *            the slot
+     * @param row
+     *            the row to store
+     */
+    private void set(int slot, int row)
+    {
+        slots[slot] = row == slot ? 0 : row + 1;
+    }
+}
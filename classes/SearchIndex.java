@@ -0,0 +1,540 @@
+package classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A read-only full-text index over the category, question and answer of every
+ * question in a bank, built by SearchIndexCompiler. The index is memory
+ * mapped and only its small header is read when it is opened. Questions are
+ * numbered the same way as in a QuestionStore over the bank, so the questions
+ * worth one point value are a single range of ids and a search for one point
+ * value only decodes that range of every posting list. All numbers are big
+ * endian.
+ *
+ * <pre>
+ * int     magic "JQSX"
+ * int     version
+ * long    fingerprint of the question bank the index was built from
+ * int     question count
+ * int     point value count
+ *         per point value: int points, int first id, int question count
+ * int     term count
+ *         term table, sorted by term: per term int term offset, int postings
+ *         offset, int posting count, plus one entry holding the end offsets
+ * int     length of the term bytes
+ *         term bytes: the UTF-8 bytes of every term
+ *         postings: the ids of the questions that contain each term, in
+ *         ascending order, as varint gaps
+ * </pre>
+ *
+ * A query is a list of words and matches the questions that contain all of
+ * them. A word that ends in * matches every term it is a prefix of, even a
+ * single letter such as a*, which is not a term on its own.
+ */
+public class SearchIndex
+{
+    static final int                     MAGIC         = 0x4A515358; // "JQSX"
+    static final int                     VERSION       = 2;
+    public static final String           DEFAULT_INDEX =
+        "assets/jeopardy-questions/questions.search";
+
+    private static final HashSet<String> STOP_WORDS    = new HashSet<String>(Arrays.asList(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of",
+        "on", "or", "that", "the", "this", "to", "was", "with"));
+
+    private MappedByteBuffer             buffer;
+    private long                         fingerprint;
+    private int                          questionCount;
+    private TreeMap<Integer, int[]>      pointRanges;
+    private int                          termCount;
+    private int                          termTable;
+    private int                          termStart;
+    private int                          postingStart;
+
+    /**
+     * Maps the index and reads its header
+     *
+     * @param file
+     *            the index file
+     * @throws IOException
+     *             if the file cannot be read or is not a search index
+     */
+    public SearchIndex(File file)
+        throws IOException
+    {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try
+        {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        if (in.remaining() < 8 || in.getInt() != MAGIC)
+        {
+            throw new IOException(file.getPath() + " is not a search index");
+        }
+        if (in.getInt() != VERSION)
+        {
+            throw new IOException(file.getPath() + " has an unsupported version");
+        }
+
+        fingerprint = in.getLong();
+        questionCount = in.getInt();
+        pointRanges = new TreeMap<Integer, int[]>();
+        int pointCount = in.getInt();
+        for (int i = 0; i < pointCount; i++)
+        {
+            int points = in.getInt();
+            int first = in.getInt();
+            pointRanges.put(points, new int[] { first, in.getInt() });
+        }
+
+        termCount = in.getInt();
+        termTable = in.position();
+        in.position(termTable + (termCount + 1) * 12);
+        int termLength = in.getInt();
+        termStart = in.position();
+        postingStart = termStart + termLength;
+    }
+
+
+    /**
+     * Opens the index of a bank, compiling it first if the file does not
+     * exist yet, cannot be read or was built from other question files than
+     * the bank's, as told by the fingerprint of the bank
+     *
+     * @param file
+     *            the index file
+     * @param bank
+     *            the question bank the index is over
+     * @return the index
+     * @throws IOException
+     *             if the bank cannot be read or the index cannot be written
+     */
+    public static SearchIndex open(File file, QuestionBank bank)
+        throws IOException
+    {
+        if (file.isFile())
+        {
+            try
+            {
+                SearchIndex index = new SearchIndex(file);
+                if (index.fingerprint == bank.getFingerprint())
+                {
+                    return index;
+                }
+            }
+            catch (IOException ex)
+            {
+                // an index of an older version is built again
+            }
+        }
+
+        new SearchIndexCompiler(bank).compile(file);
+        return new SearchIndex(file);
+    }
+
+
+    /**
+     * Returns the number of questions in the index
+     *
+     * @return the number of questions
+     */
+    public int getQuestionCount()
+    {
+        return questionCount;
+    }
+
+
+    /**
+     * Returns the number of distinct terms in the index
+     *
+     * @return the number of terms
+     */
+    public int getTermCount()
+    {
+        return termCount;
+    }
+
+
+    /**
+     * Finds the questions worth a point value that match a query
+     *
+     * @param query
+     *            the words to look for, where a word ending in * is a prefix
+     * @param points
+     *            the point value
+     * @return the rows of the matching questions for that point value, in
+     *         ascending order; empty if the query has no words
+     */
+    public int[] search(String query, int points)
+    {
+        int[] range = pointRanges.get(points);
+        if (range == null)
+        {
+            return new int[0];
+        }
+
+        int[] ids = search(query, range[0], range[0] + range[1]);
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] -= range[0];
+        }
+        return ids;
+    }
+
+
+    /**
+     * Finds the questions of any point value that match a query
+     *
+     * @param query
+     *            the words to look for, where a word ending in * is a prefix
+     * @return the QuestionStore ids of the matching questions, in ascending
+     *         order; empty if the query has no words
+     */
+    public int[] search(String query)
+    {
+        return search(query, 0, questionCount);
+    }
+
+
+    /**
+     * Finds the questions with ids in a range that match a query. Each word
+     * is looked up in turn and only the questions every word matched so far
+     * are kept.
+     *
+     * @param query
+     *            the query
+     * @param from
+     *            the first id to consider
+     * @param to
+     *            the end of the range of ids
+     * @return the matching ids in ascending order
+     */
+    private int[] search(String query, int from, int to)
+    {
+        int[] matched = null;
+        for (String word : query.trim().split("\\s+"))
+        {
+            boolean prefix = word.endsWith("*");
+            ArrayList<String> terms = new ArrayList<String>();
+            addTerms(prefix ? word.substring(0, word.length() - 1) : word, terms, prefix);
+
+            for (int i = 0; i < terms.size(); i++)
+            {
+                // only the last term of a word like "new-york*" is a prefix
+                int[] ids = prefix && i == terms.size() - 1
+                    ? findPrefix(terms.get(i), from, to) : findTerm(terms.get(i), from, to);
+                matched = matched == null ? ids : intersect(matched, ids);
+                if (matched.length == 0)
+                {
+                    return matched;
+                }
+            }
+        }
+        return matched == null ? new int[0] : matched;
+    }
+
+
+    /**
+     * Returns the ids in a range of the questions that contain a term
+     *
+     * @param term
+     *            the term
+     * @param from
+     *            the first id to consider
+     * @param to
+     *            the end of the range of ids
+     * @return the ids in ascending order
+     */
+    private int[] findTerm(String term, int from, int to)
+    {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int entry = lowerBound(key);
+        if (entry == termCount || compareTerm(entry, key) != 0)
+        {
+            return new int[0];
+        }
+
+        int[] ids = new int[Math.min(getPostingCount(entry), to - from)];
+        int count = 0;
+        ByteBuffer in = getPostings(entry);
+        int id = 0;
+        for (int i = getPostingCount(entry); i > 0; i--)
+        {
+            id += QuestionPack.readVarInt(in);
+            if (id >= to)
+            {
+                break;
+            }
+            if (id >= from)
+            {
+                ids[count++] = id;
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+
+    /**
+     * Returns the ids in a range of the questions that contain any term that
+     * starts with a prefix
+     *
+     * @param prefix
+     *            the start of the terms
+     * @param from
+     *            the first id to consider
+     * @param to
+     *            the end of the range of ids
+     * @return the ids in ascending order
+     */
+    private int[] findPrefix(String prefix, int from, int to)
+    {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        BitSet found = new BitSet(to - from);
+        for (int entry = lowerBound(key); entry < termCount && startsWith(entry, key); entry++)
+        {
+            ByteBuffer in = getPostings(entry);
+            int id = 0;
+            for (int i = getPostingCount(entry); i > 0; i--)
+            {
+                id += QuestionPack.readVarInt(in);
+                if (id >= to)
+                {
+                    break;
+                }
+                if (id >= from)
+                {
+                    found.set(id - from);
+                }
+            }
+        }
+
+        int[] ids = new int[found.cardinality()];
+        int count = 0;
+        for (int bit = found.nextSetBit(0); bit >= 0; bit = found.nextSetBit(bit + 1))
+        {
+            ids[count++] = from + bit;
+        }
+        return ids;
+    }
+
+
+    /**
+     * Returns the first term that is not less than a key
+     *
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @return the index of the term, or the term count if every term is less
+     */
+    private int lowerBound(byte[] key)
+    {
+        int low = 0;
+        int high = termCount;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compareTerm(middle, key) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Compares a term of the index with a key, byte by byte
+     *
+     * @param entry
+     *            the index of the term
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @return less than, equal to or greater than 0 as the term is less than,
+     *         equal to or greater than the key
+     */
+    private int compareTerm(int entry, byte[] key)
+    {
+        int start = termStart + buffer.getInt(termTable + entry * 12);
+        int length = termStart + buffer.getInt(termTable + (entry + 1) * 12) - start;
+        for (int i = 0; i < length && i < key.length; i++)
+        {
+            int difference = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0)
+            {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+
+    /**
+     * Checks if a term of the index starts with a key
+     *
+     * @param entry
+     *            the index of the term
+     * @param key
+     *            the UTF-8 bytes of the key
+     * @return true if the key is a prefix of the term
+     */
+    private boolean startsWith(int entry, byte[] key)
+    {
+        int start = termStart + buffer.getInt(termTable + entry * 12);
+        int length = termStart + buffer.getInt(termTable + (entry + 1) * 12) - start;
+        if (length < key.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++)
+        {
+            if (buffer.get(start + i) != key[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the number of questions that contain a term
+     *
+     * @param entry
+     *            the index of the term
+     * @return the length of its posting list
+     */
+    private int getPostingCount(int entry)
+    {
+        return buffer.getInt(termTable + entry * 12 + 8);
+    }
+
+
+    /**
+     * Returns the encoded posting list of a term
+     *
+     * @param entry
+     *            the index of the term
+     * @return a buffer positioned at the first gap of the list
+     */
+    private ByteBuffer getPostings(int entry)
+    {
+        int start = buffer.getInt(termTable + entry * 12 + 4);
+        int end = buffer.getInt(termTable + (entry + 1) * 12 + 4);
+        return buffer.slice(postingStart + start, end - start);
+    }
+
+
+    /**
+     * Keeps the ids that are in both of two ascending lists
+     *
+     * @param a
+     *            the first list
+     * @param b
+     *            the second list
+     * @return the ids in both, in ascending order
+     */
+    private static int[] intersect(int[] a, int[] b)
+    {
+        int[] both = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length)
+        {
+            if (a[i] < b[j])
+            {
+                i++;
+            }
+            else if (a[i] > b[j])
+            {
+                j++;
+            }
+            else
+            {
+                both[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, count);
+    }
+
+
+    /**
+     * Splits text into the terms that are indexed: runs of letters and digits
+     * in lower case, with apostrophes dropped and html tags skipped. Single
+     * letters and common words such as "the" are left out.
+     *
+     * @param text
+     *            the text
+     * @param terms
+     *            the list to add the terms to, in the order they appear
+     */
+    static void addTerms(String text, List<String> terms)
+    {
+        addTerms(text, terms, false);
+    }
+
+
+    /**
+     * Splits text into terms like addTerms(text, terms), but can keep a last
+     * term that is a single letter or a common word, as the start of a prefix
+     * such as a* or the*
+     *
+     * @param text
+     *            the text
+     * @param terms
+     *            the list to add the terms to, in the order they appear
+     * @param keepLast
+     *            true to keep the term at the very end of the text
+     */
+    private static void addTerms(String text, List<String> terms, boolean keepLast)
+    {
+        StringBuilder term = new StringBuilder();
+        boolean inTag = false;
+        for (int i = 0; i <= text.length(); i++)
+        {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (inTag)
+            {
+                inTag = c != '>';
+            }
+            else if (Character.isLetterOrDigit(c))
+            {
+                term.append(Character.toLowerCase(c));
+            }
+            else if (c != '\'' || term.length() == 0)
+            {
+                boolean last = keepLast && i == text.length();
+                if (term.length() > 1 && !STOP_WORDS.contains(term.toString())
+                    || last && term.length() > 0)
+                {
+                    terms.add(term.toString());
+                }
+                term.setLength(0);
+                inTag = c == '<';
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package classes;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compiles the full-text SearchIndex of a question bank. Every question is
+ * read once, its category, question and answer are split into terms by
+ * SearchIndex.addTerms, and the ids of the questions that contain a term are
+ * collected in ascending order. The terms are written sorted by their UTF-8
+ * bytes so the index can binary search them.
+ *
+ * Usage: java classes.SearchIndexCompiler [output.search]
+ */
+public class SearchIndexCompiler
+{
+    private QuestionBank           bank;
+    private HashMap<String, int[]> postings;
+    private int                    postingCount;
+
+    /**
+     * Creates a compiler for a question bank
+     *
+     * @param bank
+     *            the question bank to index
+     */
+    public SearchIndexCompiler(QuestionBank bank)
+    {
+        this.bank = bank;
+        postings = new HashMap<String, int[]>();
+    }
+
+
+    /**
+     * Indexes every question of the bank and writes the index. The index is
+     * written to a temporary file first and then moved into place. Each call
+     * indexes the bank from scratch.
+     *
+     * @param output
+     *            the index file to write
+     * @return the number of questions indexed
+     * @throws IOException
+     *             if the bank cannot be read or the index cannot be written
+     */
+    public int compile(File output)
+        throws IOException
+    {
+        postings.clear();
+        postingCount = 0;
+
+        ArrayList<String> terms = new ArrayList<String>();
+        ArrayList<int[]> ranges = new ArrayList<int[]>();
+        int id = 0;
+        for (int points : bank.getPointValues())
+        {
+            int count = bank.getQuestionCount(points);
+            ranges.add(new int[] { points, id, count });
+            for (int row = 0; row < count; row++, id++)
+            {
+                Card card = bank.getCard(points, row);
+                terms.clear();
+                SearchIndex.addTerms(card.getCategory(), terms);
+                SearchIndex.addTerms(card.getQuestion(), terms);
+                SearchIndex.addTerms(card.getAnswer(), terms);
+                for (String term : terms)
+                {
+                    addPosting(term, id);
+                }
+            }
+        }
+
+        byte[][] sorted = new byte[postings.size()][];
+        int next = 0;
+        for (String term : postings.keySet())
+        {
+            sorted[next++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(sorted, Arrays::compareUnsigned);
+
+        // the term table has an extra entry that marks the end of the last
+        // term and of its postings
+        ByteArrayOutputStream termBytes = new ByteArrayOutputStream(sorted.length * 8);
+        ByteArrayOutputStream postingBytes = new ByteArrayOutputStream(postingCount * 2);
+        int[] table = new int[(sorted.length + 1) * 3];
+        for (int i = 0; i < sorted.length; i++)
+        {
+            int[] list = postings.get(new String(sorted[i], StandardCharsets.UTF_8));
+            table[i * 3] = termBytes.size();
+            table[i * 3 + 1] = postingBytes.size();
+            table[i * 3 + 2] = list[0];
+
+            termBytes.write(sorted[i]);
+            int last = 0;
+            for (int j = 1; j <= list[0]; j++)
+            {
+                QuestionPackCompiler.writeVarInt(postingBytes, list[j] - last);
+                last = list[j];
+            }
+        }
+        table[sorted.length * 3] = termBytes.size();
+        table[sorted.length * 3 + 1] = postingBytes.size();
+
+        File temp = new File(output.getPath() + ".tmp");
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+        try
+        {
+            out.writeInt(SearchIndex.MAGIC);
+            out.writeInt(SearchIndex.VERSION);
+            out.writeLong(bank.getFingerprint());
+            out.writeInt(id);
+
+            out.writeInt(ranges.size());
+            for (int[] range : ranges)
+            {
+                out.writeInt(range[0]);
+                out.writeInt(range[1]);
+                out.writeInt(range[2]);
+            }
+
+            out.writeInt(sorted.length);
+            for (int value : table)
+            {
+                out.writeInt(value);
+            }
+            out.writeInt(termBytes.size());
+            termBytes.writeTo(out);
+            postingBytes.writeTo(out);
+        }
+        finally
+        {
+            out.close();
+        }
+
+        Files.move(temp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return id;
+    }
+
+
+    /**
+     * Returns the number of distinct terms found by the last compile
+     *
+     * @return the number of terms
+     */
+    public int getTermCount()
+    {
+        return postings.size();
+    }
+
+
+    /**
+     * Adds a question to the postings of a term. Questions are added in
+     * ascending order, so a question that uses a term twice is only added
+     * once.
+     *
+     * @param term
+     *            the term
+     * @param id
+     *            the id of the question
+     */
+    private void addPosting(String term, int id)
+    {
+        // list[0] is the number of ids that follow it
+        int[] list = postings.get(term);
+        if (list == null)
+        {
+            list = new int[4];
+            postings.put(term, list);
+        }
+        else if (list[list[0]] == id)
+        {
+            return;
+        }
+        else if (list[0] + 1 == list.length)
+        {
+            list = Arrays.copyOf(list, list.length * 2);
+            postings.put(term, list);
+        }
+
+        list[++list[0]] = id;
+        postingCount++;
+    }
+
+
+    /**
+     * Compiles the search index of the shared question bank. With no
+     * arguments it is written to assets/jeopardy-questions/questions.search.
+     *
+     * @param args
+     *            the output index
+     */
+    public static void main(String[] args)
+    {
+        String output = args.length > 0 ? args[0] : SearchIndex.DEFAULT_INDEX;
+        SearchIndexCompiler compiler = new SearchIndexCompiler(JeopardyGame.getBank());
+
+        try
+        {
+            long start = System.nanoTime();
+            int count = compiler.compile(new File(output));
+            long millis = (System.nanoTime() - start) / 1000000;
+
+            System.out.println("Indexed " + count + " questions under " + compiler.getTermCount()
+                + " terms to " + output + " (" + new File(output).length() + " bytes, "
+                + millis + " ms)");
+        }
+        catch (IOException ex)
+        {
+            System.out.println("***Cannot compile " + output + ": " + ex.getMessage() + " ***");
+            System.exit(1);
+        }
+    }
+}